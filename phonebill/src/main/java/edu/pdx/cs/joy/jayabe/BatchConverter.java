@@ -0,0 +1,345 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Converts many phone bill files into one database, for {@link Converter}'s batch mode.
+ *
+ * <p>The files are parsed in parallel by a fixed pool of worker threads, each into a
+ * {@link PhoneBill}. The bills are saved by the calling thread, which owns the only
+ * connection to the database, as they become ready. No more than twice as many files as
+ * there are workers are parsed ahead of the database, so memory stays bounded however many
+ * files there are. The calls of several files are saved in each transaction, which is
+ * committed after about {@value #CALLS_PER_TRANSACTION} calls.
+ *
+ * <p>Each file that is saved is recorded in the <code>converted_files</code> table created by
+ * {@link PhoneBillDAO#createTable}, in the same transaction as its calls, together with its
+ * length and when it was last modified. A later run skips a file that is recorded and has not
+ * changed since, so a batch that was interrupted can simply be run again. A file that cannot
+ * be read or parsed is reported and skipped without stopping the others, and is tried again
+ * by the next run.
+ *
+ * <p>Progress is printed at most once a second, as files and calls per second.
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+final class BatchConverter {
+  /** The number of calls after which the transaction is committed */
+  static final int CALLS_PER_TRANSACTION = 10_000;
+  /** How often progress is printed, in nanoseconds */
+  private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+  private final Connection connection;
+  private final int threads;
+  private final PrintStream out;
+  private final PrintStream err;
+
+  private int converted;
+  private int skipped;
+  private int failed;
+  private long calls;
+
+  /**
+   * Creates a converter that saves into the given database.
+   *
+   * @param connection the connection to the database
+   * @param threads the number of files to parse at once
+   * @param out where progress is printed
+   * @param err where files that cannot be converted are reported
+   */
+  BatchConverter(Connection connection, int threads, PrintStream out, PrintStream err) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+    }
+    this.connection = connection;
+    this.threads = threads;
+    this.out = out;
+    this.err = err;
+  }
+
+  /**
+   * Lists the files named by a directory or a glob pattern, in order of their names. A
+   * directory stands for all of the regular files in it. A glob, such as
+   * <code>bills/*.txt</code>, may only have wildcards in its last name.
+   *
+   * @param directoryOrGlob the name of a directory or a glob pattern
+   * @return the files, which may be none
+   * @throws IOException if the directory cannot be read
+   */
+  static List<File> listFiles(String directoryOrGlob) throws IOException {
+    Path directory;
+    String glob;
+    File named = new File(directoryOrGlob);
+    if (named.isDirectory()) {
+      directory = named.toPath();
+      glob = "*";
+
+    } else {
+      int wildcard = indexOfWildcard(directoryOrGlob);
+      if (wildcard < 0) {
+        throw new IllegalArgumentException("Not a directory or glob pattern: " + directoryOrGlob);
+      }
+      int separator = Math.max(directoryOrGlob.lastIndexOf('/', wildcard),
+              directoryOrGlob.lastIndexOf(File.separatorChar, wildcard));
+      directory = Path.of(separator < 0 ? "." : directoryOrGlob.substring(0, separator + 1));
+      glob = directoryOrGlob.substring(separator + 1);
+      if (glob.indexOf('/') >= 0 || glob.indexOf(File.separatorChar) >= 0) {
+        throw new IllegalArgumentException("Wildcards are only allowed in the last name: " + directoryOrGlob);
+      }
+    }
+
+    List<File> files = new ArrayList<>();
+    try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, glob)) {
+      for (Path path : paths) {
+        if (Files.isRegularFile(path)) {
+          files.add(path.toFile());
+        }
+      }
+    }
+    files.sort(Comparator.comparing(File::getName));
+    return files;
+  }
+
+  private static int indexOfWildcard(String pattern) {
+    for (int i = 0; i < pattern.length(); i++) {
+      if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Converts files into the database, skipping those that have already been converted.
+   *
+   * @param files the files to convert
+   * @throws SQLException if the database cannot be written; files whose calls were committed
+   *         stay converted
+   */
+  void convert(List<File> files) throws SQLException {
+    PhoneBillDAO.createTable(this.connection);
+    this.connection.setAutoCommit(false);
+
+    Map<String, long[]> done = convertedFiles();
+    List<File> pending = new ArrayList<>();
+    for (File file : files) {
+      long[] recorded = done.get(keyOf(file));
+      if (recorded != null && recorded[0] == file.length() && recorded[1] == file.lastModified()) {
+        this.skipped++;
+      } else {
+        pending.add(file);
+      }
+    }
+
+    ExecutorService workers = Executors.newFixedThreadPool(this.threads);
+    CompletionService<Parsed> parsed = new ExecutorCompletionService<>(workers);
+    long start = System.nanoTime();
+    long lastProgress = start;
+    long uncommitted = 0;
+    try {
+      Iterator<File> next = pending.iterator();
+      int running = 0;
+      while (running < 2 * this.threads && next.hasNext()) {
+        File file = next.next();
+        parsed.submit(() -> parse(file));
+        running++;
+      }
+
+      while (running > 0) {
+        Parsed result = take(parsed);
+        running--;
+        if (next.hasNext()) {
+          File file = next.next();
+          parsed.submit(() -> parse(file));
+          running++;
+        }
+
+        if (result.error != null) {
+          this.failed++;
+          this.err.println("Error converting " + result.file + ": " + result.error);
+        } else {
+          save(result);
+          uncommitted += result.bill.getPhoneCalls().size() + 1;
+          if (uncommitted >= CALLS_PER_TRANSACTION) {
+            this.connection.commit();
+            uncommitted = 0;
+          }
+        }
+
+        long now = System.nanoTime();
+        if (now - lastProgress >= PROGRESS_INTERVAL) {
+          printProgress(pending.size(), now - start);
+          lastProgress = now;
+        }
+      }
+      this.connection.commit();
+
+    } catch (SQLException | RuntimeException e) {
+      this.connection.rollback();
+      throw e;
+
+    } finally {
+      workers.shutdownNow();
+    }
+
+    printProgress(pending.size(), System.nanoTime() - start);
+  }
+
+  private static Parsed take(CompletionService<Parsed> parsed) {
+    try {
+      return parsed.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while converting files", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Error parsing a file", e.getCause());
+    }
+  }
+
+  /**
+   * Saves a parsed file's calls and records that it was converted, without committing.
+   */
+  private void save(Parsed result) throws SQLException {
+    try {
+      new JDBCDumper(this.connection).dump(result.bill);
+    } catch (IOException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw new SQLException(e.getMessage(), e);
+    }
+
+    String key = keyOf(result.file);
+    try (PreparedStatement delete = this.connection.prepareStatement("DELETE FROM converted_files WHERE path = ?")) {
+      delete.setString(1, key);
+      delete.executeUpdate();
+    }
+    String insertSQL = "INSERT INTO converted_files (path, length, modified, calls) VALUES (?, ?, ?, ?)";
+    try (PreparedStatement insert = this.connection.prepareStatement(insertSQL)) {
+      insert.setString(1, key);
+      insert.setLong(2, result.length);
+      insert.setLong(3, result.modified);
+      insert.setInt(4, result.bill.getPhoneCalls().size());
+      insert.executeUpdate();
+    }
+
+    this.converted++;
+    this.calls += result.bill.getPhoneCalls().size();
+  }
+
+  /**
+   * @return the length and modification time of each file already converted, by path
+   */
+  private Map<String, long[]> convertedFiles() throws SQLException {
+    Map<String, long[]> files = new HashMap<>();
+    try (Statement statement = this.connection.createStatement();
+         ResultSet rs = statement.executeQuery("SELECT path, length, modified FROM converted_files")) {
+      while (rs.next()) {
+        files.put(rs.getString(1), new long[] {rs.getLong(2), rs.getLong(3)});
+      }
+    }
+    return files;
+  }
+
+  private static String keyOf(File file) {
+    return file.getAbsoluteFile().toPath().normalize().toString();
+  }
+
+  /**
+   * Parses a whole file into a phone bill. The length and modification time are taken
+   * before the file is read, so a file that changes while it is read is converted again by
+   * the next run.
+   */
+  private static Parsed parse(File file) {
+    long length = file.length();
+    long modified = file.lastModified();
+    try {
+      return new Parsed(file, length, modified, load(file), null);
+    } catch (IOException | ParserException | TextParser.UncheckedParserException e) {
+      return new Parsed(file, length, modified, null, e.getMessage());
+    }
+  }
+
+  /**
+   * Loads a text, compressed text or binary phone bill, recognizing its format by its first
+   * bytes.
+   */
+  static PhoneBill load(File file) throws IOException, ParserException {
+    if (Converter.isBinaryFile(file.getPath())) {
+      try (FileChannel channel = new FileInputStream(file).getChannel()) {
+        return new BinaryParser(channel).parse();
+      }
+    }
+
+    Reader text = CompressedTextFile.isCompressed(file)
+            ? CompressedTextFile.open(file).reader()
+            : new FileReader(file);
+    try (Reader reader = text) {
+      return new TextParser(reader).parse();
+    }
+  }
+
+  private void printProgress(int files, long elapsed) {
+    double seconds = Math.max(elapsed, 1) / 1e9;
+    int finished = this.converted + this.failed;
+    this.out.printf("Converted %d of %d files, %d calls (%.1f files/sec, %.1f calls/sec)%n",
+            finished, files, this.calls, finished / seconds, this.calls / seconds);
+  }
+
+  /**
+   * @return the number of files converted by {@link #convert}
+   */
+  int getConvertedCount() {
+    return this.converted;
+  }
+
+  /**
+   * @return the number of files skipped because they had already been converted
+   */
+  int getSkippedCount() {
+    return this.skipped;
+  }
+
+  /**
+   * @return the number of files that could not be read or parsed
+   */
+  int getFailedCount() {
+    return this.failed;
+  }
+
+  /**
+   * @return the number of calls saved
+   */
+  long getCallCount() {
+    return this.calls;
+  }
+
+  /**
+   * A file parsed by a worker: either its bill or the reason it could not be parsed.
+   */
+  private static class Parsed {
+    private final File file;
+    private final long length;
+    private final long modified;
+    private final PhoneBill bill;
+    private final String error;
+
+    Parsed(File file, long length, long modified, PhoneBill bill, String error) {
+      this.file = file;
+      this.length = length;
+      this.modified = modified;
+      this.bill = bill;
+      this.error = error;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.AbstractPhoneBill;
+import edu.pdx.cs.joy.PhoneBillDumper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Dumps a phone bill to a channel in the binary format described by {@link BinaryFormat}.
+ *
+ * <p>Each call takes 32 bytes, less than half the size of a line of the text format, and
+ * nothing needs to be formatted: phone numbers are written as their packed digits and times
+ * as minutes since 1970. The calls are written through a {@link ByteBuffer} that is passed to
+ * the channel whenever it fills. The channel is not closed.
+ *
+ * <p>Example usage:
+ * <pre>
+ *   try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+ *     new BinaryDumper(channel).dump(bill);
+ *   }
+ * </pre>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public class BinaryDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>> {
+  /** The size of the buffer that calls are written through */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final WritableByteChannel channel;
+
+  /**
+   * Constructs a BinaryDumper that writes to the given channel.
+   *
+   * @param channel the channel to write the phone bill to
+   */
+  public BinaryDumper(WritableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  @Override
+  public void dump(AbstractPhoneBill<PhoneCall> bill) throws IOException {
+    if (bill == null) {
+      return;
+    }
+
+    dump(bill.getCustomer(), bill.getPhoneCalls());
+  }
+
+  /**
+   * Dumps a customer's phone calls without first collecting them into a phone bill. The
+   * calls are written in the order they are given, so they should be sorted for the file to
+   * load as quickly as possible.
+   *
+   * @param customer the name of the customer
+   * @param calls the phone calls to write
+   * @throws IOException if the calls cannot be written, or if a call's phone number is not
+   *         formatted as nnn-nnn-nnnn
+   */
+  public void dump(String customer, Collection<? extends PhoneCall> calls) throws IOException {
+    dump(customer, calls.size(), calls);
+  }
+
+  /**
+   * Dumps a known number of a customer's phone calls from a sequence that need not be held
+   * in memory, such as the rows of a query. The number of calls is written before the calls,
+   * so it must be known in advance.
+   *
+   * @param customer the name of the customer
+   * @param count the number of calls in the sequence
+   * @param calls the phone calls to write
+   * @throws IOException if the calls cannot be written, if a call's phone number is not
+   *         formatted as nnn-nnn-nnnn, or if the sequence does not hold <code>count</code> calls
+   */
+  public void dump(String customer, int count, Iterable<? extends PhoneCall> calls) throws IOException {
+    byte[] name = customer.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, BinaryFormat.HEADER_SIZE + name.length + Integer.BYTES));
+    buffer.putInt(BinaryFormat.MAGIC)
+            .putShort(BinaryFormat.VERSION)
+            .putShort((short) 0)
+            .putInt(name.length)
+            .put(name)
+            .putInt(count);
+
+    int written = 0;
+    for (PhoneCall call : calls) {
+      if (buffer.remaining() < BinaryFormat.RECORD_SIZE) {
+        flush(buffer);
+      }
+      buffer.putLong(packed(call.getPackedCaller(), call.getCaller()))
+              .putLong(packed(call.getPackedCallee(), call.getCallee()))
+              .putLong(BinaryFormat.toEpochMinutes(call.getBeginTime()))
+              .putLong(BinaryFormat.toEpochMinutes(call.getEndTime()));
+      written++;
+    }
+    if (written != count) {
+      throw new IOException("Expected " + count + " calls but found " + written);
+    }
+
+    flush(buffer);
+  }
+
+  private static long packed(long packed, String phoneNumber) throws IOException {
+    if (packed < 0) {
+      throw new IOException("Cannot write phone number " + phoneNumber + " (expected nnn-nnn-nnnn)");
+    }
+    return packed;
+  }
+
+  private void flush(ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      this.channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
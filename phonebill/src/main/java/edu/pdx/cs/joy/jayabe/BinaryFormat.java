@@ -0,0 +1,75 @@
+package edu.pdx.cs.joy.jayabe;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Describes the binary phone bill format written by {@link BinaryDumper} and read by
+ * {@link BinaryParser}.
+ *
+ * <p>A file starts with a header:
+ * <pre>
+ *   int    magic number, the ASCII characters "PBIL"
+ *   short  format version, currently 1
+ *   short  reserved, always 0
+ *   int    length in bytes of the customer name
+ *   byte[] customer name in UTF-8
+ *   int    number of calls
+ * </pre>
+ * followed by one fixed-size record per call, in sorted order:
+ * <pre>
+ *   long   caller's phone number, packed as by {@link PhoneNumber#toLong()}
+ *   long   callee's phone number, packed the same way
+ *   long   begin time, in minutes since 1970-01-01T00:00
+ *   long   end time, in minutes since 1970-01-01T00:00
+ * </pre>
+ * All values are big-endian. Like the text format, times are kept to the minute.
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+final class BinaryFormat {
+  /** The first four bytes of every binary phone bill: "PBIL" */
+  static final int MAGIC = 0x5042494C;
+  /** The version of the format written by this program */
+  static final short VERSION = 1;
+  /** The size of the header before the customer name */
+  static final int HEADER_SIZE = 12;
+  /** The size of each call record */
+  static final int RECORD_SIZE = 32;
+
+  private BinaryFormat() {
+    // Only constants and static methods
+  }
+
+  /**
+   * Returns whether the buffer's next four bytes are the magic number of a binary phone bill.
+   */
+  static boolean hasMagic(ByteBuffer bytes) {
+    return bytes.remaining() >= Integer.BYTES && bytes.getInt(bytes.position()) == MAGIC;
+  }
+
+  /**
+   * @return the number of minutes between 1970-01-01T00:00 and the given time
+   */
+  static long toEpochMinutes(LocalDateTime dateTime) {
+    return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+  }
+
+  /**
+   * Reads from the channel until the buffer is full.
+   *
+   * @throws EOFException if the channel ends first
+   */
+  static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException("File is truncated");
+      }
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import edu.pdx.cs.joy.PhoneBillParser;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Parses a phone bill from a channel in the binary format written by {@link BinaryDumper}
+ * and described by {@link BinaryFormat}.
+ *
+ * <p>Loading a binary bill is a bulk copy rather than a parse. Once the header has been read,
+ * every call record is read into a single {@link ByteBuffer} with as few reads as the channel
+ * allows, and each call is built straight from the numbers in its record. No text is scanned
+ * and no dates are parsed. Because the records are written in sorted order, the date of the
+ * previous call is usually the date of the next one and is reused, and the times of day come
+ * from the same table {@link CallLineParser} uses. The channel is not closed.
+ *
+ * <p>Example usage:
+ * <pre>
+ *   try (FileChannel channel = FileChannel.open(path, READ)) {
+ *     PhoneBill bill = new BinaryParser(channel).parse();
+ *   }
+ * </pre>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public class BinaryParser implements PhoneBillParser<PhoneBill> {
+  /** The number of minutes in a day */
+  private static final int MINUTES_PER_DAY = 24 * 60;
+  /** The most bytes allocated for a section of a channel whose length is not known */
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private final ReadableByteChannel channel;
+
+  /**
+   * Constructs a BinaryParser that reads from the given channel.
+   *
+   * @param channel the channel to read the phone bill from
+   */
+  public BinaryParser(ReadableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  @Override
+  public PhoneBill parse() throws ParserException {
+    try {
+      ByteBuffer header = ByteBuffer.allocate(BinaryFormat.HEADER_SIZE);
+      if (this.channel.read(header) <= 0) {
+        throw new ParserException("File is empty or missing the customer name");
+      }
+      BinaryFormat.readFully(this.channel, header);
+      header.flip();
+      if (!BinaryFormat.hasMagic(header)) {
+        throw new ParserException("Not a binary phone bill");
+      }
+      header.getInt();
+      short version = header.getShort();
+      if (version != BinaryFormat.VERSION) {
+        throw new ParserException("Unsupported binary phone bill version: " + version);
+      }
+      header.getShort();
+      int nameLength = header.getInt();
+      if (nameLength <= 0) {
+        throw new ParserException("File is empty or missing the customer name");
+      } else if (nameLength > Integer.MAX_VALUE - Integer.BYTES) {
+        throw new ParserException("Invalid customer name length: " + nameLength);
+      }
+
+      ByteBuffer name = read((long) nameLength + Integer.BYTES);
+      name.limit(nameLength);
+      String customer = StandardCharsets.UTF_8.newDecoder().decode(name).toString();
+      int count = name.limit(nameLength + Integer.BYTES).getInt();
+      if (count < 0 || count > Integer.MAX_VALUE / BinaryFormat.RECORD_SIZE) {
+        throw new ParserException("Invalid number of calls: " + count);
+      }
+
+      ByteBuffer records = read((long) count * BinaryFormat.RECORD_SIZE);
+      return toPhoneBill(customer, records, count);
+
+    } catch (CharacterCodingException e) {
+      throw new ParserException("Customer name is not valid UTF-8", e);
+
+    } catch (EOFException e) {
+      throw new ParserException("File is truncated", e);
+
+    } catch (IOException e) {
+      throw new ParserException("Error reading file: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Reads the given number of bytes, which the header says follow, into a buffer ready to be
+   * read. Because the header may be corrupt, the bytes are only allocated up front when the
+   * channel is known to hold them. Otherwise the buffer grows as the bytes arrive, so that a
+   * bad length fails at the end of the channel instead of allocating more than it holds.
+   *
+   * @throws EOFException if the channel ends before the given number of bytes
+   */
+  private ByteBuffer read(long length) throws IOException {
+    if (this.channel instanceof SeekableByteChannel seekable) {
+      if (length > seekable.size() - seekable.position()) {
+        throw new EOFException("File is truncated");
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) length);
+      BinaryFormat.readFully(this.channel, buffer);
+      return buffer.flip();
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, CHUNK_SIZE));
+    while (true) {
+      BinaryFormat.readFully(this.channel, buffer);
+      if (buffer.capacity() == length) {
+        return buffer.flip();
+      }
+      ByteBuffer larger = ByteBuffer.allocate((int) Math.min(length, 2L * buffer.capacity()));
+      buffer = larger.put(buffer.flip());
+    }
+  }
+
+  private static PhoneBill toPhoneBill(String customer, ByteBuffer records, int count) throws ParserException {
+    PhoneBill bill = new PhoneBill(customer);
+    DateCache dates = new DateCache();
+
+    for (int i = 0; i < count; i++) {
+      int offset = i * BinaryFormat.RECORD_SIZE;
+      long callerDigits = records.getLong(offset);
+      long calleeDigits = records.getLong(offset + 8);
+      if (!PhoneNumber.isValid(callerDigits) || !PhoneNumber.isValid(calleeDigits)) {
+        throw new ParserException("Call " + (i + 1) + ": invalid phone number");
+      }
+
+      try {
+        LocalDateTime begin = dates.toDateTime(records.getLong(offset + 16));
+        LocalDateTime end = dates.toDateTime(records.getLong(offset + 24));
+        bill.addPhoneCall(new PhoneCall(customer, callerDigits, calleeDigits, begin, end));
+      } catch (DateTimeException e) {
+        throw new ParserException("Call " + (i + 1) + ": invalid date/time: " + e.getMessage(), e);
+      }
+    }
+    return bill;
+  }
+
+  /**
+   * Converts minutes since 1970 to date-times, reusing the date of the previous conversion
+   * when it is on the same day.
+   */
+  private static class DateCache {
+    private long lastDay = Long.MIN_VALUE;
+    private LocalDate lastDate;
+
+    LocalDateTime toDateTime(long epochMinutes) {
+      long day = Math.floorDiv(epochMinutes, MINUTES_PER_DAY);
+      if (day != this.lastDay) {
+        this.lastDate = LocalDate.ofEpochDay(day);
+        this.lastDay = day;
+      }
+      return LocalDateTime.of(this.lastDate, CallLineParser.TIMES[Math.floorMod(epochMinutes, MINUTES_PER_DAY)]);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package edu.pdx.cs.joy.jayabe;
+
+/**
+ * A compact hash set of 64-bit fingerprints of phone calls, used to detect duplicate calls.
+ *
+ * <p>A call's fingerprint is a hash of its caller, callee, begin time and end time. The
+ * fingerprints are stored in a single open-addressed <code>long[]</code>, which costs far less
+ * memory than a set of objects. Different calls can have the same fingerprint, so the set can
+ * only say that a call is <em>definitely new</em> or <em>possibly a duplicate</em>; callers
+ * must confirm a possible duplicate by comparing it with the calls they already have.
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+class CallFingerprintSet {
+  /** The number of slots in a new set; always a power of two */
+  private static final int INITIAL_CAPACITY = 16;
+  /** Marks an empty slot. A fingerprint that happens to be zero is stored as one instead. */
+  private static final long EMPTY = 0L;
+
+  private long[] slots = new long[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Adds the fingerprint of the given call to this set.
+   *
+   * @param call the phone call
+   * @return <code>true</code> if the fingerprint was not already in the set, meaning that the
+   *         call is definitely not a duplicate; <code>false</code> if it may be a duplicate
+   */
+  boolean add(PhoneCall call) {
+    return add(fingerprint(call));
+  }
+
+  private boolean add(long fingerprint) {
+    if (fingerprint == EMPTY) {
+      fingerprint = 1L;
+    }
+
+    int mask = this.slots.length - 1;
+    int slot = (int) fingerprint & mask;
+    while (this.slots[slot] != EMPTY) {
+      if (this.slots[slot] == fingerprint) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    this.slots[slot] = fingerprint;
+    if (++this.size > this.slots.length / 2) {
+      grow();
+    }
+    return true;
+  }
+
+  private void grow() {
+    long[] old = this.slots;
+    this.slots = new long[old.length * 2];
+    int mask = this.slots.length - 1;
+    for (long fingerprint : old) {
+      if (fingerprint != EMPTY) {
+        int slot = (int) fingerprint & mask;
+        while (this.slots[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        this.slots[slot] = fingerprint;
+      }
+    }
+  }
+
+  /**
+   * Computes the fingerprint of a phone call from its caller, callee, begin time and end time.
+   */
+  static long fingerprint(PhoneCall call) {
+    long numbers = mix(call.getPackedCaller()) ^ call.getPackedCallee();
+    long times = ((long) call.getBeginTime().hashCode() << 32) | (call.getEndTime().hashCode() & 0xFFFFFFFFL);
+    return mix(mix(numbers) ^ times);
+  }
+
+  /**
+   * Spreads the bits of a value so that similar values have very different fingerprints.
+   * This is the finalizer of the SplitMix64 generator.
+   */
+  private static long mix(long value) {
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+}
@@ -0,0 +1,167 @@
+package edu.pdx.cs.joy.jayabe;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An interval tree over the begin and end times of {@link PhoneCall}s. It answers which calls
+ * were in progress at a given instant, or which calls overlap a window of time, without
+ * examining every call.
+ *
+ * <p>The index is a self-balancing (AVL) binary search tree ordered by
+ * {@link PhoneCall#compareTo(PhoneCall)}, with calls that compare as equal kept in the order
+ * they were added. Each node also records the latest end time of any call in its subtree,
+ * which lets a query skip every subtree whose calls all end before the window starts.
+ * Adding a call takes O(log n) time. A query that matches k calls takes
+ * O(log n + k) time on typical bills, and never more than O(k log n).
+ *
+ * <p>A call is considered to be active from its begin time through its end time, inclusive.
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+class CallIntervalIndex {
+  /** The root of the tree, or <code>null</code> if no calls have been added */
+  private Node root;
+
+  /**
+   * Adds a phone call to this index.
+   *
+   * @param call the call to add
+   */
+  void add(PhoneCall call) {
+    this.root = insert(this.root, new Node(call));
+  }
+
+  /**
+   * Returns the calls that were in progress at the given instant, in sorted order.
+   *
+   * @param instant the moment in time
+   * @return the calls that began at or before <code>instant</code> and ended at or after it
+   */
+  List<PhoneCall> activeAt(LocalDateTime instant) {
+    return overlapping(instant, instant);
+  }
+
+  /**
+   * Returns the calls that overlap the given window of time, in sorted order.
+   *
+   * @param from the beginning of the window
+   * @param to the end of the window
+   * @return the calls that began at or before <code>to</code> and ended at or after
+   *         <code>from</code>
+   */
+  List<PhoneCall> overlapping(LocalDateTime from, LocalDateTime to) {
+    List<PhoneCall> calls = new ArrayList<>();
+    collectOverlapping(this.root, from, to, calls);
+    return calls;
+  }
+
+  private static void collectOverlapping(Node node, LocalDateTime from, LocalDateTime to, List<PhoneCall> calls) {
+    if (node == null || node.maxEnd.isBefore(from)) {
+      // Every call in this subtree ended before the window started
+      return;
+    }
+
+    collectOverlapping(node.left, from, to, calls);
+    if (node.call.getBeginTime().isAfter(to)) {
+      // This call, and every call to its right, began after the window ended
+      return;
+    }
+    if (!node.call.getEndTime().isBefore(from)) {
+      calls.add(node.call);
+    }
+    collectOverlapping(node.right, from, to, calls);
+  }
+
+  /**
+   * Inserts a node into the given subtree, placing it after any calls that compare as equal
+   * to it, and returns the new, rebalanced root of the subtree.
+   */
+  private static Node insert(Node subtree, Node node) {
+    if (subtree == null) {
+      return node;
+    }
+
+    if (node.call.compareTo(subtree.call) < 0) {
+      subtree.left = insert(subtree.left, node);
+    } else {
+      subtree.right = insert(subtree.right, node);
+    }
+    return rebalance(subtree);
+  }
+
+  private static Node rebalance(Node node) {
+    node.update();
+    int balance = height(node.left) - height(node.right);
+    if (balance > 1) {
+      if (height(node.left.left) < height(node.left.right)) {
+        node.left = rotateLeft(node.left);
+      }
+      return rotateRight(node);
+    }
+    if (balance < -1) {
+      if (height(node.right.right) < height(node.right.left)) {
+        node.right = rotateRight(node.right);
+      }
+      return rotateLeft(node);
+    }
+    return node;
+  }
+
+  private static Node rotateRight(Node node) {
+    Node pivot = node.left;
+    node.left = pivot.right;
+    pivot.right = node;
+    node.update();
+    pivot.update();
+    return pivot;
+  }
+
+  private static Node rotateLeft(Node node) {
+    Node pivot = node.right;
+    node.right = pivot.left;
+    pivot.left = node;
+    node.update();
+    pivot.update();
+    return pivot;
+  }
+
+  private static int height(Node node) {
+    return node == null ? 0 : node.height;
+  }
+
+  /**
+   * A node in the tree, holding one call.
+   */
+  private static class Node {
+    private final PhoneCall call;
+    private Node left;
+    private Node right;
+    /** The height of the subtree rooted at this node */
+    private int height = 1;
+    /** The latest end time of any call in the subtree rooted at this node */
+    private LocalDateTime maxEnd;
+
+    Node(PhoneCall call) {
+      this.call = call;
+      this.maxEnd = call.getEndTime();
+    }
+
+    /**
+     * Recomputes the height and latest end time of this subtree from its children.
+     */
+    void update() {
+      this.height = 1 + Math.max(height(this.left), height(this.right));
+      LocalDateTime latest = this.call.getEndTime();
+      if (this.left != null && this.left.maxEnd.isAfter(latest)) {
+        latest = this.left.maxEnd;
+      }
+      if (this.right != null && this.right.maxEnd.isAfter(latest)) {
+        latest = this.right.maxEnd;
+      }
+      this.maxEnd = latest;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package edu.pdx.cs.joy.jayabe;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Formats a {@link PhoneCall} as one line of a text phone bill,
+ * <code>customer,caller,callee,begin,end</code> followed by <code>'\n'</code>, straight into
+ * bytes in a given character set. It is the counterpart of {@link CallLineParser}.
+ *
+ * <p>The bytes are exactly those that encoding {@link TextDumper#formatCall} with the
+ * character set would give, but no strings are built: the customer's name is encoded once,
+ * phone numbers are copied byte for byte, and dates are written from a table of two-digit
+ * numbers. The date of the previous call is kept already formatted, since in a sorted bill
+ * the next call is usually on the same day. Text that this fast path does not cover, such as
+ * years after 9999 or a character set that does not encode ASCII characters as single
+ * bytes, is formatted and encoded the ordinary way.
+ *
+ * <p>The line is written into a buffer that is reused for each call, so a formatter must not
+ * be shared by threads.
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+final class CallLineFormatter {
+  /** The digits of every number from 00 to 99, two bytes each */
+  private static final byte[] TWO_DIGITS = new byte[200];
+  /** The number of bytes in a date and time in the usual layout */
+  private static final int DATE_TIME_LENGTH = 16;
+  /** The number of bytes in a date */
+  private static final int DATE_LENGTH = 10;
+
+  static {
+    for (int i = 0; i < 100; i++) {
+      TWO_DIGITS[2 * i] = (byte) ('0' + i / 10);
+      TWO_DIGITS[2 * i + 1] = (byte) ('0' + i % 10);
+    }
+  }
+
+  private final String customer;
+  private final Charset charset;
+  /** Whether the character set encodes ASCII characters as the same single bytes */
+  private final boolean asciiCompatible;
+  /** The customer's name, followed by a comma, in the character set */
+  private final byte[] prefix;
+  private byte[] line = new byte[128];
+  private int length;
+  /** The most recently formatted date, and its bytes */
+  private LocalDate lastDate;
+  private final byte[] lastDateBytes = new byte[DATE_LENGTH];
+
+  /**
+   * Creates a formatter for the calls on a customer's bill.
+   *
+   * @param customer the customer whose bill the calls are on
+   * @param charset the character set to encode the lines in
+   */
+  CallLineFormatter(String customer, Charset charset) {
+    this.customer = customer;
+    this.charset = charset;
+    this.asciiCompatible = isAsciiCompatible(charset);
+    this.prefix = (customer + ",").getBytes(charset);
+  }
+
+  private static boolean isAsciiCompatible(Charset charset) {
+    String ascii = "0123456789-/:, \n";
+    return Arrays.equals(ascii.getBytes(charset), ascii.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Formats a call, with its line break, into the buffer returned by {@link #bytes()}.
+   *
+   * @param call the call to format
+   * @return the number of bytes in the line
+   */
+  int format(PhoneCall call) {
+    if (!this.asciiCompatible) {
+      byte[] bytes = (TextDumper.formatCall(call, this.customer) + "\n").getBytes(this.charset);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, this.line, 0, bytes.length);
+      this.length = bytes.length;
+      return this.length;
+    }
+
+    this.length = 0;
+    append(this.prefix);
+    if (call.getPackedCaller() >= 0) {
+      appendPhoneNumber(call.getPackedCaller());
+    } else {
+      appendText(call.getCaller());
+    }
+    appendByte(',');
+    if (call.getPackedCallee() >= 0) {
+      appendPhoneNumber(call.getPackedCallee());
+    } else {
+      appendText(call.getCallee());
+    }
+    appendByte(',');
+    appendDateTime(call.getBeginTime());
+    appendByte(',');
+    appendDateTime(call.getEndTime());
+    appendByte('\n');
+    return this.length;
+  }
+
+  /**
+   * @return the buffer holding the line formatted by the last call to {@link #format}; it
+   *         is reused by the next call
+   */
+  byte[] bytes() {
+    return this.line;
+  }
+
+  private void appendDateTime(LocalDateTime dateTime) {
+    int year = dateTime.getYear();
+    if (year < 1 || year > 9999) {
+      append(dateTime.format(CallLineParser.DATE_TIME_FORMATTER).getBytes(this.charset));
+      return;
+    }
+
+    ensureCapacity(this.length + DATE_TIME_LENGTH);
+    LocalDate date = dateTime.toLocalDate();
+    if (!date.equals(this.lastDate)) {
+      byte[] bytes = this.lastDateBytes;
+      twoDigits(bytes, 0, date.getMonthValue());
+      bytes[2] = '/';
+      twoDigits(bytes, 3, date.getDayOfMonth());
+      bytes[5] = '/';
+      twoDigits(bytes, 6, year / 100);
+      twoDigits(bytes, 8, year % 100);
+      this.lastDate = date;
+    }
+    System.arraycopy(this.lastDateBytes, 0, this.line, this.length, DATE_LENGTH);
+    this.line[this.length + 10] = ' ';
+    twoDigits(this.line, this.length + 11, dateTime.getHour());
+    this.line[this.length + 13] = ':';
+    twoDigits(this.line, this.length + 14, dateTime.getMinute());
+    this.length += DATE_TIME_LENGTH;
+  }
+
+  private static void twoDigits(byte[] bytes, int offset, int value) {
+    bytes[offset] = TWO_DIGITS[2 * value];
+    bytes[offset + 1] = TWO_DIGITS[2 * value + 1];
+  }
+
+  /**
+   * Appends a packed phone number formatted as nnn-nnn-nnnn, without formatting it as a
+   * string first.
+   */
+  private void appendPhoneNumber(long packed) {
+    ensureCapacity(this.length + PhoneNumber.FORMATTED_LENGTH);
+    for (int i = PhoneNumber.FORMATTED_LENGTH - 1; i >= 0; i--) {
+      if (i == 3 || i == 7) {
+        this.line[this.length + i] = '-';
+      } else {
+        this.line[this.length + i] = (byte) ('0' + packed % 10);
+        packed /= 10;
+      }
+    }
+    this.length += PhoneNumber.FORMATTED_LENGTH;
+  }
+
+  /**
+   * Appends text that is usually a phone number. ASCII characters are copied as bytes; any
+   * other text is encoded with the character set. A missing number is written as
+   * <code>null</code>, as it is when the call is formatted as a string.
+   */
+  private void appendText(String number) {
+    String text = String.valueOf(number);
+    int count = text.length();
+    ensureCapacity(this.length + count);
+    for (int i = 0; i < count; i++) {
+      char c = text.charAt(i);
+      if (c >= 0x80) {
+        append(text.getBytes(this.charset));
+        return;
+      }
+      this.line[this.length + i] = (byte) c;
+    }
+    this.length += count;
+  }
+
+  private void append(byte[] bytes) {
+    ensureCapacity(this.length + bytes.length);
+    System.arraycopy(bytes, 0, this.line, this.length, bytes.length);
+    this.length += bytes.length;
+  }
+
+  private void appendByte(char c) {
+    ensureCapacity(this.length + 1);
+    this.line[this.length++] = (byte) c;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > this.line.length) {
+      this.line = Arrays.copyOf(this.line, Math.max(capacity, this.line.length * 2));
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+
+import java.nio.CharBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses one line of a text phone bill, <code>customer,caller,callee,begin,end</code>, into
+ * a {@link PhoneCall}.
+ *
+ * <p>The line is scanned once, in place in the buffer it was read into: the fields are found
+ * by their indexes rather than split into strings, and the phone numbers and dates are read
+ * with digit arithmetic. The only objects created are the ones that make up the call, and
+ * even those are shared where possible: the times of day come from a table, and the date of
+ * the previous call is reused when the next call is on the same day, as it usually is in a
+ * sorted bill. Dates in the usual <code>MM/dd/yyyy HH:mm</code> layout never go through a
+ * {@link DateTimeFormatter}; any other text, including text that is not a valid date, is
+ * handed to the formatter so that the result, or the error, is exactly what the formatter
+ * would give.
+ *
+ * <p>A line is accepted or rejected exactly as splitting it on commas and trimming each
+ * field would: there must be five fields, not counting empty fields at the end of the line,
+ * and whitespace around a field is ignored.
+ *
+ * <p>A parser remembers the previous date it parsed, so it must not be shared by threads.
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+final class CallLineParser {
+  /** The format of the begin and end times */
+  static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm");
+  /** The length of a date and time in the usual layout */
+  private static final int DATE_TIME_LENGTH = 16;
+  /** Every time of day to the minute, indexed by minute of the day */
+  static final LocalTime[] TIMES = new LocalTime[24 * 60];
+
+  static {
+    for (int minute = 0; minute < TIMES.length; minute++) {
+      TIMES[minute] = LocalTime.of(minute / 60, minute % 60);
+    }
+  }
+
+  /** The customer whose bill the calls are on */
+  private final String customer;
+  /** The most recently parsed date, and its year, month and day */
+  private LocalDate lastDate;
+  private int lastYear;
+  private int lastMonth;
+  private int lastDay;
+
+  /**
+   * Creates a parser for the lines of a customer's bill.
+   *
+   * @param customer the customer whose bill the calls are on
+   */
+  CallLineParser(String customer) {
+    this.customer = customer;
+  }
+
+  /**
+   * Parses the phone call in <code>text[start, end)</code>.
+   *
+   * @param text the characters containing the line
+   * @param start the index of the first character of the line
+   * @param end the index after the last character of the line, not counting its line
+   *            terminator
+   * @return the phone call
+   * @throws ParserException if the line does not describe a valid phone call
+   */
+  PhoneCall parse(char[] text, int start, int end) throws ParserException {
+    // Find the commas after the first four fields. The customer field is skipped since it
+    // is redundant with the bill's customer.
+    int callerStart = indexOfComma(text, start, end) + 1;
+    int calleeStart = callerStart == 0 ? 0 : indexOfComma(text, callerStart, end) + 1;
+    int beginStart = calleeStart == 0 ? 0 : indexOfComma(text, calleeStart, end) + 1;
+    int endStart = beginStart == 0 ? 0 : indexOfComma(text, beginStart, end) + 1;
+    if (endStart == 0) {
+      throw malformed(text, start, end);
+    }
+
+    // The fifth field must not be empty, and anything after it must be empty fields
+    int endEnd = indexOfComma(text, endStart, end);
+    if (endEnd < 0) {
+      endEnd = end;
+    }
+    if (endEnd == endStart) {
+      throw malformed(text, start, end);
+    }
+    for (int i = endEnd; i < end; i++) {
+      if (text[i] != ',') {
+        throw malformed(text, start, end);
+      }
+    }
+
+    try {
+      long caller = phoneNumber(text, callerStart, calleeStart - 1);
+      long callee = phoneNumber(text, calleeStart, beginStart - 1);
+      if (caller < 0 || callee < 0) {
+        throw new ParserException("Invalid phone number (expected nnn-nnn-nnnn) in line: "
+                + new String(text, start, end - start));
+      }
+
+      int beginFirst = trimStart(text, beginStart, endStart - 1);
+      LocalDateTime begin = parseDateTime(text, beginFirst, trimEnd(text, beginFirst, endStart - 1));
+      int endFirst = trimStart(text, endStart, endEnd);
+      LocalDateTime endTime = parseDateTime(text, endFirst, trimEnd(text, endFirst, endEnd));
+
+      return new PhoneCall(this.customer, caller, callee, begin, endTime);
+    } catch (DateTimeParseException e) {
+      throw new ParserException("Invalid date/time format in line: " + new String(text, start, end - start), e);
+    } catch (ParserException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ParserException("Error parsing call: " + new String(text, start, end - start) + " - " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Parses the date and time in <code>text[start, end)</code> as
+   * {@link #DATE_TIME_FORMATTER} would, with its default "smart" resolution: a day past the
+   * end of the month is moved back to the last day of the month, and <code>24:00</code> is
+   * midnight at the start of the next day.
+   *
+   * @throws DateTimeParseException if the text is not a valid date and time
+   */
+  LocalDateTime parseDateTime(char[] text, int start, int end) {
+    if (end - start == DATE_TIME_LENGTH
+            && text[start + 2] == '/' && text[start + 5] == '/'
+            && text[start + 10] == ' ' && text[start + 13] == ':') {
+      int month = digits(text, start, 2);
+      int day = digits(text, start + 3, 2);
+      int year = digits(text, start + 6, 4);
+      int hour = digits(text, start + 11, 2);
+      int minute = digits(text, start + 14, 2);
+
+      if (month >= 1 && month <= 12 && day >= 1 && day <= 31 && year >= 1
+              && minute >= 0 && minute <= 59 && hour >= 0 && (hour <= 23 || hour == 24 && minute == 0)) {
+        LocalDate date = date(year, month, day);
+        if (hour == 24) {
+          return LocalDateTime.of(date.plusDays(1), LocalTime.MIDNIGHT);
+        }
+        return LocalDateTime.of(date, TIMES[hour * 60 + minute]);
+      }
+    }
+
+    // Some other layout, or not a valid date: let the formatter decide
+    return LocalDateTime.parse(CharBuffer.wrap(text, start, end - start), DATE_TIME_FORMATTER);
+  }
+
+  /**
+   * Returns the given date, moving a day past the end of the month back to the last day of
+   * the month. The previous date is reused if it is the same.
+   */
+  private LocalDate date(int year, int month, int day) {
+    if (this.lastDate == null || day != this.lastDay || month != this.lastMonth || year != this.lastYear) {
+      this.lastDate = LocalDate.of(year, month, Math.min(day, Month.of(month).length(Year.isLeap(year))));
+      this.lastYear = year;
+      this.lastMonth = month;
+      this.lastDay = day;
+    }
+    return this.lastDate;
+  }
+
+  /**
+   * Returns the phone number in the field <code>text[start, end)</code>, ignoring
+   * whitespace around it, packed by {@link PhoneNumber}.
+   *
+   * @return the packed phone number, or <code>-1</code> if it is not formatted as nnn-nnn-nnnn
+   */
+  private static long phoneNumber(char[] text, int start, int end) {
+    start = trimStart(text, start, end);
+    end = trimEnd(text, start, end);
+    if (end - start != PhoneNumber.FORMATTED_LENGTH || text[start + 3] != '-' || text[start + 7] != '-') {
+      return -1;
+    }
+    int area = digits(text, start, 3);
+    int exchange = digits(text, start + 4, 3);
+    int line = digits(text, start + 8, 4);
+    if (area < 0 || exchange < 0 || line < 0) {
+      return -1;
+    }
+    return area * 10_000_000L + exchange * 10_000L + line;
+  }
+
+  /**
+   * Reads <code>count</code> ASCII digits as a number.
+   *
+   * @return the number, or <code>-1</code> if a character is not a digit
+   */
+  private static int digits(char[] text, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      char c = text[i];
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  private static int indexOfComma(char[] text, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (text[i] == ',') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the first character in <code>text[start, end)</code> that
+   * {@link String#trim()} would keep.
+   */
+  private static int trimStart(char[] text, int start, int end) {
+    while (start < end && text[start] <= ' ') {
+      start++;
+    }
+    return start;
+  }
+
+  /**
+   * Returns the index after the last character in <code>text[start, end)</code> that
+   * {@link String#trim()} would keep.
+   */
+  private static int trimEnd(char[] text, int start, int end) {
+    while (end > start && text[end - 1] <= ' ') {
+      end--;
+    }
+    return end;
+  }
+
+  private static ParserException malformed(char[] text, int start, int end) {
+    return new ParserException("Malformatted line in text file (expected 5 fields): " + new String(text, start, end - start));
+  }
+}
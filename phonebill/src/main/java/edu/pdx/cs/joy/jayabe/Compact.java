@@ -0,0 +1,150 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+/**
+ * The <code>Compact</code> class rewrites text phone bills in sorted order. Calls added with
+ * <code>Project4 -append</code> are written to the end of the file in the order they are
+ * added; compacting a file from time to time puts its calls back in order, and can also drop
+ * duplicate calls.
+ *
+ * <p>Each file is parsed, written in sorted order to a temporary file in the same directory,
+ * and then moved over the original, so the original is never left half written. The
+ * temporary file is first given the original's permissions, so compacting a bill does not
+ * change who can read it. Calls appended while a file is being compacted would be lost, so
+ * compaction should run when no calls are being added.
+ *
+ * <p>Command-line usage:
+ * <pre>
+ *   java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.&lt;login-id&gt;.Compact [-dedup] textFile...
+ * </pre>
+ *
+ * <p>Arguments:
+ * <ul>
+ *   <li><code>-dedup</code> - Drop calls that are already in the file</li>
+ *   <li><code>textFile</code> - The names of the text files to compact</li>
+ * </ul>
+ */
+public class Compact {
+
+  /**
+   * Creates a new Compact. Empty constructor since all functionality is in the static main method.
+   */
+  public Compact() {
+  }
+
+  /**
+   * Main entry point for the Compact application.
+   *
+   * @param args command-line arguments: [-dedup] textFile...
+   */
+  public static void main(String[] args) {
+    int first = 0;
+    boolean dropDuplicates = false;
+    if (args.length > 0 && args[0].equals("-dedup")) {
+      dropDuplicates = true;
+      first = 1;
+    }
+
+    if (args.length - first < 1) {
+      System.err.println("Error: Missing command line arguments");
+      printUsage();
+      return;
+    }
+
+    for (int i = first; i < args.length; i++) {
+      String textFile = args[i];
+      try {
+        PhoneBill bill = compact(new File(textFile), dropDuplicates);
+        System.out.println("Compacted " + textFile + ": " + bill.getPhoneCalls().size() + " calls"
+                + (dropDuplicates ? ", dropped " + bill.getRejectedDuplicateCount() + " duplicates" : ""));
+      } catch (IOException e) {
+        System.err.println("Error accessing file " + textFile + ": " + e.getMessage());
+      } catch (ParserException e) {
+        System.err.println("Error parsing text file " + textFile + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Rewrites a text phone bill with its calls in sorted order.
+   *
+   * @param textFile the text file to compact
+   * @param dropDuplicates whether to drop calls that duplicate a call already in the file
+   * @return the phone bill that was written
+   * @throws IOException if the file cannot be read or written
+   * @throws ParserException if the file cannot be parsed
+   */
+  static PhoneBill compact(File textFile, boolean dropDuplicates) throws IOException, ParserException {
+    PhoneBill bill;
+    try (TextParser.CallIterator calls = new TextParser(new FileReader(textFile)).calls()) {
+      bill = new PhoneBill(calls.getCustomer(), dropDuplicates);
+      calls.forEachRemaining(bill::addPhoneCall);
+    } catch (TextParser.UncheckedParserException e) {
+      throw e.getCause();
+    }
+
+    Path target = textFile.toPath();
+    Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(), textFile.getName(), ".tmp");
+    try {
+      copyPermissions(target, temporary);
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        new TextDumper(channel).dump(bill);
+      }
+      moveIntoPlace(temporary, target);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    return bill;
+  }
+
+  /**
+   * Replaces a file with a temporary file in the same directory, atomically if the file
+   * system can.
+   */
+  static void moveIntoPlace(Path temporary, Path target) throws IOException {
+    try {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Gives a file the same permissions as another, using whichever kind of permissions the
+   * file system has. A temporary file is created readable only by its owner, which the
+   * compacted file should not inherit.
+   */
+  static void copyPermissions(Path from, Path to) throws IOException {
+    PosixFileAttributeView posix = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+    if (posix != null) {
+      Files.setPosixFilePermissions(to, posix.readAttributes().permissions());
+      return;
+    }
+    AclFileAttributeView acl = Files.getFileAttributeView(from, AclFileAttributeView.class);
+    if (acl != null) {
+      Files.getFileAttributeView(to, AclFileAttributeView.class).setAcl(acl.getAcl());
+    }
+  }
+
+  /**
+   * Prints usage information to standard error.
+   */
+  private static void printUsage() {
+    System.err.println("usage: java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.<login-id>.Compact [-dedup] textFile...");
+    System.err.println("  args are:");
+    System.err.println("    textFile  The names of the text files to compact");
+    System.err.println("  options are:");
+    System.err.println("    -dedup    Drop calls that are already in the file");
+  }
+}
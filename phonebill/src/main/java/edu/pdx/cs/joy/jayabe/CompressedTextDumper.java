@@ -0,0 +1,205 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.AbstractPhoneBill;
+import edu.pdx.cs.joy.PhoneBillDumper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Dumps a phone bill to a channel as compressed text, in the container format described by
+ * {@link CompressedTextFile}. The text is exactly what {@link TextDumper} would write, in
+ * UTF-8, but its lines are gathered into blocks of about {@value #BLOCK_SIZE} bytes and each
+ * block is compressed on its own with a {@link Deflater}. Since every line of a bill repeats
+ * the customer's name and most of a date, bills usually shrink to a small fraction of their
+ * size.
+ *
+ * <p>A directory of the blocks is written after the last one, giving the range of begin
+ * times in each block, so that a range of calls can be read by decompressing only the
+ * blocks that hold it. The channel is written from its current position, which should be
+ * the start of the file, and is not closed.
+ *
+ * <p>Example usage:
+ * <pre>
+ *   try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+ *     new CompressedTextDumper(channel).dump(bill);
+ *   }
+ * </pre>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public class CompressedTextDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>> {
+  /** The number of bytes of text in each block, before it is compressed */
+  static final int BLOCK_SIZE = 64 * 1024;
+
+  private final WritableByteChannel channel;
+  private final int blockSize;
+
+  /**
+   * Constructs a CompressedTextDumper that writes to the given channel.
+   *
+   * @param channel the channel to write the phone bill to
+   */
+  public CompressedTextDumper(WritableByteChannel channel) {
+    this(channel, BLOCK_SIZE);
+  }
+
+  /**
+   * Constructs a dumper that writes blocks of the given size, so that tests can use many
+   * blocks without large bills.
+   */
+  CompressedTextDumper(WritableByteChannel channel, int blockSize) {
+    this.channel = channel;
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public void dump(AbstractPhoneBill<PhoneCall> bill) throws IOException {
+    if (bill == null) {
+      return;
+    }
+
+    dump(bill.getCustomer(), bill.getPhoneCalls());
+  }
+
+  /**
+   * Dumps a customer's phone calls without first collecting them into a phone bill. The
+   * calls are written in the order they are given, each as it is reached, so a sequence of
+   * any length can be dumped. Only range reads of sorted calls skip blocks efficiently.
+   *
+   * @param customer the name of the customer
+   * @param calls the phone calls to write
+   * @throws IOException if the calls cannot be written
+   */
+  public void dump(String customer, Iterable<? extends PhoneCall> calls) throws IOException {
+    byte[] name = customer.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer header = ByteBuffer.allocate(CompressedTextFile.HEADER_SIZE + name.length);
+    header.putInt(CompressedTextFile.MAGIC)
+            .putShort(CompressedTextFile.VERSION)
+            .putShort((short) 0)
+            .putInt(name.length)
+            .put(name);
+    BlockWriter out = new BlockWriter();
+    out.write(header.flip());
+
+    Deflater deflater = new Deflater();
+    try {
+      CallLineFormatter formatter = new CallLineFormatter(customer, StandardCharsets.UTF_8);
+      Block block = new Block(2);
+      for (PhoneCall call : calls) {
+        int length = formatter.format(call);
+        block.add(call, formatter.bytes(), length);
+        if (block.length >= this.blockSize) {
+          out.writeBlock(block, deflater);
+          block.clear(block.firstLine + block.lines);
+        }
+      }
+      if (block.lines > 0) {
+        out.writeBlock(block, deflater);
+      }
+    } finally {
+      deflater.end();
+    }
+
+    out.writeDirectory();
+  }
+
+  /**
+   * The text of the lines in a block, and the range of their begin times.
+   */
+  private static class Block {
+    private long firstLine;
+    private byte[] text = new byte[1024];
+    private int length;
+    private int lines;
+    private long minBegin = Long.MAX_VALUE;
+    private long maxBegin = Long.MIN_VALUE;
+
+    Block(long firstLine) {
+      this.firstLine = firstLine;
+    }
+
+    /**
+     * Empties the block so that it can hold the lines after the ones it held.
+     */
+    void clear(long firstLine) {
+      this.firstLine = firstLine;
+      this.length = 0;
+      this.lines = 0;
+      this.minBegin = Long.MAX_VALUE;
+      this.maxBegin = Long.MIN_VALUE;
+    }
+
+    void add(PhoneCall call, byte[] line, int lineLength) {
+      if (this.length + lineLength > this.text.length) {
+        this.text = Arrays.copyOf(this.text, Math.max(this.text.length * 2, this.length + lineLength));
+      }
+      System.arraycopy(line, 0, this.text, this.length, lineLength);
+      this.length += lineLength;
+      this.lines++;
+
+      long begin = BinaryFormat.toEpochMinutes(call.getBeginTime());
+      this.minBegin = Math.min(this.minBegin, begin);
+      this.maxBegin = Math.max(this.maxBegin, begin);
+    }
+  }
+
+  /**
+   * Writes to the channel, keeping track of the position of each block and the entries of
+   * the directory.
+   */
+  private class BlockWriter {
+    private long position;
+    private ByteBuffer directory = ByteBuffer.allocate(16 * CompressedTextFile.ENTRY_SIZE);
+    private int blocks;
+    private byte[] compressed = new byte[1024];
+
+    void write(ByteBuffer bytes) throws IOException {
+      while (bytes.hasRemaining()) {
+        this.position += channel.write(bytes);
+      }
+    }
+
+    void writeBlock(Block block, Deflater deflater) throws IOException {
+      deflater.reset();
+      deflater.setInput(block.text, 0, block.length);
+      deflater.finish();
+      int length = 0;
+      while (!deflater.finished()) {
+        if (length == this.compressed.length) {
+          this.compressed = Arrays.copyOf(this.compressed, this.compressed.length * 2);
+        }
+        length += deflater.deflate(this.compressed, length, this.compressed.length - length);
+      }
+
+      if (this.directory.remaining() < CompressedTextFile.ENTRY_SIZE) {
+        ByteBuffer larger = ByteBuffer.allocate(this.directory.capacity() * 2);
+        this.directory = larger.put(this.directory.flip());
+      }
+      this.directory.putLong(this.position)
+              .putInt(length)
+              .putInt(block.length)
+              .putLong(block.minBegin)
+              .putLong(block.maxBegin)
+              .putLong(block.firstLine);
+      this.blocks++;
+
+      write(ByteBuffer.wrap(this.compressed, 0, length));
+    }
+
+    void writeDirectory() throws IOException {
+      long directoryPosition = this.position;
+      write(this.directory.flip());
+      write(ByteBuffer.allocate(CompressedTextFile.TRAILER_SIZE)
+              .putLong(directoryPosition)
+              .putInt(this.blocks)
+              .putInt(CompressedTextFile.MAGIC)
+              .flip());
+    }
+  }
+}
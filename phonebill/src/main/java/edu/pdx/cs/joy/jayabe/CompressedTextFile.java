@@ -0,0 +1,353 @@
+package edu.pdx.cs.joy.jayabe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a text phone bill stored in the compressed container written by
+ * {@link CompressedTextDumper}.
+ *
+ * <p>The container holds big-endian values. It starts with a header:
+ * <pre>
+ *   int    magic number, the ASCII characters "PTXZ"
+ *   short  format version, currently 1
+ *   short  reserved, always 0
+ *   int    length in bytes of the customer name
+ *   byte[] customer name in UTF-8
+ * </pre>
+ * followed by the blocks, each holding whole lines of the text after the customer name,
+ * in UTF-8, compressed with {@link java.util.zip.Deflater}. After the blocks comes the
+ * directory, one entry for each block:
+ * <pre>
+ *   long   position of the block in the file
+ *   int    length of the block, compressed
+ *   int    length of the block's text
+ *   long   earliest begin time of a call in the block, in minutes since 1970
+ *   long   latest begin time of a call in the block, in minutes since 1970
+ *   long   number of the block's first line, counting the customer name as line 1
+ * </pre>
+ * and last a trailer: the position of the directory (<code>long</code>), the number of
+ * blocks (<code>int</code>) and the magic number again.
+ *
+ * <p>{@link #reader()} returns the whole text of the bill, just as {@link TextDumper} would
+ * have written it, so it can be parsed with {@link TextParser} like any other text bill,
+ * including as a stream. {@link TextParser#TextParser(File, LocalDateTime, LocalDateTime)}
+ * recognizes a compressed bill and uses the directory to decompress only the blocks whose
+ * begin times overlap the range.
+ *
+ * <p>Example usage:
+ * <pre>
+ *   try (Reader reader = CompressedTextFile.open(file).reader()) {
+ *     PhoneBill bill = new TextParser(reader).parse();
+ *   }
+ * </pre>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public final class CompressedTextFile implements Closeable {
+  /** The first and last four bytes of every compressed bill: "PTXZ" */
+  static final int MAGIC = 0x5054585A;
+  /** The version of the format written by this program */
+  static final short VERSION = 1;
+  /** The size of the header before the customer name */
+  static final int HEADER_SIZE = 12;
+  /** The size of each entry in the directory */
+  static final int ENTRY_SIZE = 40;
+  /** The size of the trailer at the end of the file */
+  static final int TRAILER_SIZE = 16;
+
+  private final FileChannel channel;
+  private final String customer;
+  private final int blocks;
+  private final long[] positions;
+  private final int[] compressedLengths;
+  private final int[] lengths;
+  private final long[] minBegins;
+  private final long[] maxBegins;
+  private final long[] firstLines;
+
+  private CompressedTextFile(FileChannel channel) throws IOException {
+    this.channel = channel;
+    long size = channel.size();
+    if (size < HEADER_SIZE + TRAILER_SIZE) {
+      throw damaged();
+    }
+
+    ByteBuffer header = read(0, HEADER_SIZE);
+    if (header.getInt() != MAGIC) {
+      throw new IOException("Not a compressed phone bill");
+    }
+    short version = header.getShort();
+    if (version != VERSION) {
+      throw new IOException("Unsupported compressed phone bill version: " + version);
+    }
+    header.getShort();
+    int nameLength = header.getInt();
+    if (nameLength < 0 || HEADER_SIZE + (long) nameLength > size - TRAILER_SIZE) {
+      throw damaged();
+    }
+    this.customer = StandardCharsets.UTF_8.decode(read(HEADER_SIZE, nameLength)).toString();
+
+    ByteBuffer trailer = read(size - TRAILER_SIZE, TRAILER_SIZE);
+    long directoryPosition = trailer.getLong();
+    this.blocks = trailer.getInt();
+    if (trailer.getInt() != MAGIC || this.blocks < 0
+            || directoryPosition + (long) this.blocks * ENTRY_SIZE != size - TRAILER_SIZE) {
+      throw damaged();
+    }
+
+    ByteBuffer directory = read(directoryPosition, this.blocks * ENTRY_SIZE);
+    this.positions = new long[this.blocks];
+    this.compressedLengths = new int[this.blocks];
+    this.lengths = new int[this.blocks];
+    this.minBegins = new long[this.blocks];
+    this.maxBegins = new long[this.blocks];
+    this.firstLines = new long[this.blocks];
+    for (int i = 0; i < this.blocks; i++) {
+      this.positions[i] = directory.getLong();
+      this.compressedLengths[i] = directory.getInt();
+      this.lengths[i] = directory.getInt();
+      this.minBegins[i] = directory.getLong();
+      this.maxBegins[i] = directory.getLong();
+      this.firstLines[i] = directory.getLong();
+      if (this.positions[i] < HEADER_SIZE + nameLength || this.compressedLengths[i] < 0 || this.lengths[i] < 0
+              || this.positions[i] + this.compressedLengths[i] > directoryPosition) {
+        throw damaged();
+      }
+    }
+  }
+
+  /**
+   * Opens a compressed text bill and reads its directory.
+   *
+   * @param file the compressed bill
+   * @return the opened bill, which must be closed
+   * @throws IOException if the file cannot be read or is not a compressed bill
+   */
+  public static CompressedTextFile open(File file) throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      return new CompressedTextFile(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns whether a file starts with the magic number of a compressed text bill.
+   *
+   * @param file the file to check
+   * @return whether the file is a compressed text bill
+   * @throws IOException if the file cannot be read
+   */
+  public static boolean isCompressed(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+      while (magic.hasRemaining() && channel.read(magic) >= 0) {
+        // Keep reading until the magic number has been read or the file ends
+      }
+      magic.flip();
+      return magic.remaining() == Integer.BYTES && magic.getInt() == MAGIC;
+    }
+  }
+
+  /**
+   * @return the name of the customer whose bill this is
+   */
+  public String getCustomer() {
+    return this.customer;
+  }
+
+  /**
+   * Returns the whole text of the bill, starting with the customer's name. The blocks are
+   * decompressed one at a time as the text is read. Closing the reader closes this file.
+   *
+   * @return a reader of the text of the bill
+   */
+  public Reader reader() {
+    byte[] name = (this.customer + "\n").getBytes(StandardCharsets.UTF_8);
+    return new InputStreamReader(new BlockInputStream(name, 0, this.blocks), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the text of the blocks that may hold calls that began between the given times,
+   * not including the customer's name. Only these blocks are read and decompressed. Calls
+   * outside the range may be included and must be skipped by the caller. Closing the reader
+   * closes this file.
+   *
+   * @param from the earliest begin time of interest
+   * @param to the latest begin time of interest
+   * @return a reader of the lines of the blocks, starting at the beginning of a line
+   */
+  Reader reader(LocalDateTime from, LocalDateTime to) {
+    int first = firstBlock(from, to);
+    int last = lastBlock(from, to);
+    return new InputStreamReader(new BlockInputStream(new byte[0], first, Math.max(first, last + 1)),
+            StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the number of the first line of {@link #reader(LocalDateTime, LocalDateTime)},
+   * counting the customer's name as line 1.
+   */
+  long firstLineNumber(LocalDateTime from, LocalDateTime to) {
+    int first = firstBlock(from, to);
+    return first < this.blocks ? this.firstLines[first] : Long.MAX_VALUE;
+  }
+
+  /**
+   * @return the first block whose begin times overlap the range, or the number of blocks
+   *         if there is none
+   */
+  private int firstBlock(LocalDateTime from, LocalDateTime to) {
+    for (int i = 0; i < this.blocks; i++) {
+      if (overlaps(i, from, to)) {
+        return i;
+      }
+    }
+    return this.blocks;
+  }
+
+  /**
+   * @return the last block whose begin times overlap the range, or <code>-1</code> if
+   *         there is none
+   */
+  private int lastBlock(LocalDateTime from, LocalDateTime to) {
+    for (int i = this.blocks - 1; i >= 0; i--) {
+      if (overlaps(i, from, to)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean overlaps(int block, LocalDateTime from, LocalDateTime to) {
+    return this.maxBegins[block] >= BinaryFormat.toEpochMinutes(from)
+            && this.minBegins[block] <= BinaryFormat.toEpochMinutes(to);
+  }
+
+  /**
+   * @return the number of blocks in the file
+   */
+  int blockCount() {
+    return this.blocks;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate(length);
+    while (bytes.hasRemaining()) {
+      if (this.channel.read(bytes, position + bytes.position()) < 0) {
+        throw damaged();
+      }
+    }
+    return bytes.flip();
+  }
+
+  private static IOException damaged() {
+    return new IOException("Compressed phone bill is damaged");
+  }
+
+  /**
+   * Decompresses a run of blocks as they are read, after some leading bytes.
+   */
+  private class BlockInputStream extends InputStream {
+    private final Inflater inflater = new Inflater();
+    private final int end;
+    private int next;
+    private byte[] text;
+    private int position;
+    private int limit;
+
+    BlockInputStream(byte[] prefix, int first, int end) {
+      this.text = prefix;
+      this.limit = prefix.length;
+      this.next = first;
+      this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!fill()) {
+        return -1;
+      }
+      return this.text[this.position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!fill()) {
+        return -1;
+      }
+      int count = Math.min(len, this.limit - this.position);
+      System.arraycopy(this.text, this.position, b, off, count);
+      this.position += count;
+      return count;
+    }
+
+    /**
+     * Decompresses the next block if all of the current one has been read.
+     *
+     * @return whether there is text left to read
+     */
+    private boolean fill() throws IOException {
+      while (this.position == this.limit) {
+        if (this.next >= this.end) {
+          return false;
+        }
+        int block = this.next++;
+        ByteBuffer compressed = CompressedTextFile.this.read(positions[block], compressedLengths[block]);
+        if (this.text.length < lengths[block]) {
+          this.text = new byte[lengths[block]];
+        }
+
+        this.inflater.reset();
+        this.inflater.setInput(compressed.array(), 0, compressedLengths[block]);
+        try {
+          int length = 0;
+          while (length < lengths[block] && !this.inflater.finished()) {
+            int inflated = this.inflater.inflate(this.text, length, lengths[block] - length);
+            if (inflated == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary())) {
+              throw damaged();
+            }
+            length += inflated;
+          }
+          if (length != lengths[block]) {
+            throw damaged();
+          }
+        } catch (DataFormatException e) {
+          throw new IOException("Compressed phone bill is damaged: " + e.getMessage(), e);
+        }
+        this.position = 0;
+        this.limit = lengths[block];
+      }
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.inflater.end();
+      CompressedTextFile.this.close();
+    }
+  }
+}
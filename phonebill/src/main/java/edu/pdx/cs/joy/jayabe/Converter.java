@@ -1,26 +1,40 @@
 package edu.pdx.cs.joy.jayabe;
 
 import edu.pdx.cs.joy.ParserException;
-import edu.pdx.cs.joy.jdbc.H2DatabaseHelper;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.stream.Stream;
 
 /**
  * The <code>Converter</code> class converts a phone bill representation from a text file
  * to a relational database format. This class reads phone bill data from a text file
  * using {@link TextParser} and writes it to an H2 database using {@link JDBCDumper}.
+ * A binary phone bill written by {@link BinaryDumper} is recognized by its first bytes and
+ * read with {@link BinaryParser} instead, and a text bill compressed by
+ * {@link CompressedTextDumper} is decompressed as it is read.
+ *
+ * <p>With <code>-batch</code>, every file in a directory, or every file matching a glob
+ * pattern, is converted into the database by a {@link BatchConverter}. Files are parsed in
+ * parallel, and files converted by an earlier batch are skipped unless they have changed.
  *
  * <p>Command-line usage:
  * <pre>
  *   java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.&lt;login-id&gt;.Converter textFile dbFile
+ *   java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.&lt;login-id&gt;.Converter -batch [-threads n] dirOrGlob dbFile
  * </pre>
  *
  * <p>Arguments:
  * <ul>
- *   <li><code>textFile</code> - The name of the text file to convert</li>
+ *   <li><code>textFile</code> - The name of the text or binary file to convert</li>
+ *   <li><code>dirOrGlob</code> - A directory, or a glob pattern such as <code>bills/*.txt</code>,
+ *       naming the files to convert</li>
  *   <li><code>dbFile</code> - The name of the file containing the database</li>
+ *   <li><code>-threads n</code> - The number of files to parse at once; by default, the number
+ *       of processors</li>
  * </ul>
  */
 public class Converter {
@@ -35,9 +49,19 @@ public class Converter {
    * Main entry point for the Converter application.
    * Converts a phone bill from a text file to a database file.
    *
-   * @param args command-line arguments: [textFile, dbFile]
+   * @param args command-line arguments: [textFile, dbFile] or [-batch, [-threads, n,] dirOrGlob, dbFile]
    */
   public static void main(String[] args) {
+    if (args.length > 0 && args[0].equals("-batch")) {
+      try {
+        batch(args);
+      } catch (IllegalArgumentException e) {
+        System.err.println("Error: " + e.getMessage());
+        printUsage();
+      }
+      return;
+    }
+
     if (args.length != 2) {
       System.err.println("Error: Missing command line arguments");
       printUsage();
@@ -59,6 +83,47 @@ public class Converter {
     }
   }
 
+  /**
+   * Converts a batch of files, as described by the <code>-batch</code> command-line
+   * arguments.
+   */
+  private static void batch(String[] args) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    int first = 1;
+    if (args.length > first && args[first].equals("-threads")) {
+      if (args.length == first + 1) {
+        throw new IllegalArgumentException("Missing number of threads");
+      }
+      try {
+        threads = Integer.parseInt(args[first + 1]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid number of threads: " + args[first + 1]);
+      }
+      if (threads < 1) {
+        throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+      }
+      first += 2;
+    }
+    if (args.length - first != 2) {
+      throw new IllegalArgumentException(args.length - first < 2
+              ? "Missing command line arguments" : "Extraneous command line arguments");
+    }
+
+    String files = args[first];
+    String dbFile = args[first + 1];
+    try (Connection connection = PhoneBillDataSource.forFile(new File(dbFile)).getConnection()) {
+      BatchConverter converter = new BatchConverter(connection, threads, System.out, System.err);
+      converter.convert(BatchConverter.listFiles(files));
+      System.out.println("Converted " + converter.getConvertedCount() + " files to " + dbFile
+              + ", skipped " + converter.getSkippedCount() + " already converted, "
+              + converter.getFailedCount() + " failed");
+    } catch (IOException e) {
+      System.err.println("Error reading files: " + e.getMessage());
+    } catch (SQLException e) {
+      System.err.println("Error accessing database: " + e.getMessage());
+    }
+  }
+
   /**
    * Converts a phone bill from a text file to a database.
    *
@@ -70,20 +135,71 @@ public class Converter {
    */
   private static void convertTextFileToDatabase(String textFile, String dbFile)
           throws IOException, ParserException, SQLException {
-    
-    // Parse the phone bill from the text file
-    PhoneBill bill;
-    try (FileReader reader = new FileReader(textFile)) {
+    if (isBinaryFile(textFile)) {
+      convertBinaryFileToDatabase(textFile, dbFile);
+      return;
+    }
+
+    // Stream the calls from the text file into the database one at a time, so that a text
+    // file of any size can be converted. The calls are saved in one transaction, so a line
+    // that cannot be parsed leaves the database as it was.
+    Reader text = CompressedTextFile.isCompressed(new File(textFile))
+            ? CompressedTextFile.open(new File(textFile)).reader()
+            : new FileReader(textFile);
+    try (Reader reader = text;
+         Connection connection = PhoneBillDataSource.forFile(new File(dbFile)).getConnection()) {
+      connection.setAutoCommit(false);
+
       TextParser parser = new TextParser(reader);
-      bill = parser.parse();
+      try (Stream<PhoneCall> calls = parser.stream()) {
+        JDBCDumper dumper = new JDBCDumper(connection);
+        dumper.dump(parser.getCustomer(), calls::iterator);
+        connection.commit();
+
+      } catch (IOException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+
+    } catch (TextParser.UncheckedParserException e) {
+      throw e.getCause();
     }
+  }
 
-    // Save the phone bill to the database
-    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(new File(dbFile))) {
-      PhoneBillDAO.createTable(connection);
-      
-      JDBCDumper dumper = new JDBCDumper(connection);
-      dumper.dump(bill);
+  /**
+   * Converts a binary phone bill to a database. The whole bill is loaded at once, which is
+   * fast because loading a binary bill does not parse any text.
+   */
+  private static void convertBinaryFileToDatabase(String binFile, String dbFile)
+          throws IOException, ParserException, SQLException {
+    PhoneBill bill;
+    try (FileChannel channel = new FileInputStream(binFile).getChannel()) {
+      bill = new BinaryParser(channel).parse();
+    }
+
+    try (Connection connection = PhoneBillDataSource.forFile(new File(dbFile)).getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        new JDBCDumper(connection).dump(bill);
+        connection.commit();
+
+      } catch (IOException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Returns whether a file starts with the magic number of a binary phone bill.
+   */
+  static boolean isBinaryFile(String file) throws IOException {
+    try (FileChannel channel = new FileInputStream(file).getChannel()) {
+      ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+      while (magic.hasRemaining() && channel.read(magic) >= 0) {
+        // Keep reading until the magic number has been read or the file ends
+      }
+      return BinaryFormat.hasMagic(magic.flip());
     }
   }
 
@@ -92,8 +208,13 @@ public class Converter {
    */
   private static void printUsage() {
     System.err.println("usage: java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.<login-id>.Converter textFile dbFile");
+    System.err.println("       java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.<login-id>.Converter -batch [-threads n] dirOrGlob dbFile");
     System.err.println("  args are (in this order):");
-    System.err.println("    textFile  The name of the text file to convert");
-    System.err.println("    dbFile    The name of the file containing the database");
+    System.err.println("    textFile    The name of the text or binary file to convert");
+    System.err.println("    dirOrGlob   A directory or glob pattern naming the files to convert");
+    System.err.println("    dbFile      The name of the file containing the database");
+    System.err.println("  options are:");
+    System.err.println("    -batch      Convert many files, skipping those already converted");
+    System.err.println("    -threads n  The number of files to parse at once");
   }
 }
@@ -0,0 +1,456 @@
+package edu.pdx.cs.joy.jayabe;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * The <code>Exporter</code> class is the reverse of {@link Converter}: it writes the phone
+ * bills in a database back out as text, binary or pretty printed files.
+ *
+ * <p>Bills are never loaded into memory. The calls are read from a forward-only
+ * {@link ResultSet}, ordered by customer and begin time and fetched
+ * {@value #FETCH_SIZE} rows at a time, and each call is handed to the dumper as its row is
+ * read. When every customer is exported, a single query reads all of the calls, and a new
+ * output file is started whenever the customer changes. A binary bill starts with its number
+ * of calls, which is counted by the database first, and a pretty printed bill starts with
+ * its summary, which is computed by reading the calls once before they are printed. All of
+ * the queries of an export read the same snapshot of the database.
+ *
+ * <p>Command-line usage:
+ * <pre>
+ *   java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.&lt;login-id&gt;.Exporter [-format text|binary|pretty] [-customer name] dbFile out
+ * </pre>
+ *
+ * <p>Arguments:
+ * <ul>
+ *   <li><code>-format</code> - The format to write; text by default</li>
+ *   <li><code>-customer name</code> - Export only this customer's bill, to the file
+ *       <code>out</code>. Otherwise every customer's bill is exported into the directory
+ *       <code>out</code>, one file each, or for pretty printing, all into the file
+ *       <code>out</code>.</li>
+ *   <li><code>dbFile</code> - The name of the file containing the database</li>
+ *   <li><code>out</code> - Where to write the bills; <code>-</code> pretty prints to standard
+ *       out</li>
+ * </ul>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public class Exporter {
+  /** The number of rows fetched from the database at a time */
+  static final int FETCH_SIZE = 1000;
+
+  private static final String SELECT_CALLS_SQL =
+          "SELECT c.id, c.name, p.caller, p.callee, p.begin, p.\"end\" " +
+          "FROM customers c LEFT JOIN phone_calls p ON p.customer_id = c.id";
+  private static final String ORDER_BY_SQL = " ORDER BY c.id, p.begin, p.caller, p.id";
+
+  /**
+   * The formats that bills can be exported in.
+   */
+  public enum Format {
+    /** The text format written by {@link TextDumper} */
+    TEXT(".txt"),
+    /** The binary format written by {@link BinaryDumper} */
+    BINARY(".bin"),
+    /** The report written by {@link PrettyPrinter} */
+    PRETTY(".pretty.txt");
+
+    private final String extension;
+
+    Format(String extension) {
+      this.extension = extension;
+    }
+
+    static Format of(String name) {
+      return switch (name) {
+        case "text" -> TEXT;
+        case "binary" -> BINARY;
+        case "pretty" -> PRETTY;
+        default -> throw new IllegalArgumentException("Unknown format: " + name + " (expected text, binary or pretty)");
+      };
+    }
+  }
+
+  private final Connection connection;
+
+  /**
+   * Creates an exporter that reads from the given database.
+   *
+   * @param connection the database connection to read phone bills from
+   */
+  public Exporter(Connection connection) {
+    this.connection = connection;
+  }
+
+  /**
+   * Main entry point for the Exporter application.
+   *
+   * @param args command-line arguments: [-format text|binary|pretty] [-customer name] dbFile out
+   */
+  public static void main(String[] args) {
+    try {
+      Format format = Format.TEXT;
+      String customer = null;
+      int i = 0;
+      while (i < args.length && args[i].startsWith("-") && args[i].length() > 1) {
+        String option = args[i++];
+        if (i == args.length) {
+          throw new IllegalArgumentException(option + " requires an argument");
+        }
+        switch (option) {
+          case "-format" -> format = Format.of(args[i++]);
+          case "-customer" -> customer = args[i++];
+          default -> throw new IllegalArgumentException("Unknown command line option: " + option);
+        }
+      }
+      if (args.length - i != 2) {
+        throw new IllegalArgumentException(args.length - i < 2
+                ? "Missing command line arguments" : "Extraneous command line arguments");
+      }
+
+      export(new File(args[i]), customer, format, args[i + 1]);
+
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      printUsage();
+    }
+  }
+
+  private static void export(File dbFile, String customer, Format format, String out) {
+    if (!dbFile.exists()) {
+      System.err.println("Error: Database file does not exist: " + dbFile);
+      return;
+    }
+
+    try (Connection connection = PhoneBillDataSource.forFile(dbFile).getConnection()) {
+      Exporter exporter = new Exporter(connection);
+      if (customer != null) {
+        int calls = exporter.exportCustomer(customer, format, out);
+        System.err.println("Exported " + calls + " calls of " + customer + " to " + out);
+      } else {
+        int customers = exporter.exportAll(format, out);
+        System.err.println("Exported " + customers + " customers to " + out);
+      }
+    } catch (IOException e) {
+      System.err.println("Error writing phone bill: " + e.getMessage());
+    } catch (SQLException e) {
+      System.err.println("Error accessing database: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Exports one customer's phone bill. A customer that is not in the database has an empty
+   * bill.
+   *
+   * @param customer the name of the customer
+   * @param format the format to write the bill in
+   * @param out the file to write the bill to, or <code>-</code> to pretty print it to
+   *            standard out
+   * @return the number of calls exported
+   * @throws IOException if the bill cannot be written
+   * @throws SQLException if the database cannot be read
+   */
+  public int exportCustomer(String customer, Format format, String out) throws IOException, SQLException {
+    return inOneSnapshot(() -> {
+      Integer customerId = getCustomerId(customer);
+      if (customerId == null) {
+        write(format, out, customer, new PhoneBillSummary(), 0, Collections.emptyList());
+        return 0;
+      }
+
+      String where = " WHERE c.id = " + customerId;
+      Map<Integer, PhoneBillSummary> summaries = format == Format.PRETTY ? summarize(where) : Map.of();
+      Map<Integer, Integer> counts = format == Format.BINARY ? countCalls(customerId) : Map.of();
+
+      try (Statement statement = createStatement();
+           Rows rows = new Rows(statement.executeQuery(SELECT_CALLS_SQL + where + ORDER_BY_SQL))) {
+        Iterable<PhoneCall> calls = rows.nextCustomer() ? rows.calls() : Collections.emptyList();
+        write(format, out, customer, summaries.getOrDefault(customerId, new PhoneBillSummary()),
+                counts.getOrDefault(customerId, 0), calls);
+        return rows.count;
+
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    });
+  }
+
+  /**
+   * Exports every customer's phone bill in one query. Text and binary bills are written to a
+   * directory, one file per customer, named after the customer. Pretty printed bills are
+   * written one after another to a single file.
+   *
+   * @param format the format to write the bills in
+   * @param out the directory to write text or binary bills to, which is created if needed,
+   *            or the file to pretty print to, or <code>-</code> for standard out
+   * @return the number of customers exported
+   * @throws IOException if a bill cannot be written
+   * @throws SQLException if the database cannot be read
+   */
+  public int exportAll(Format format, String out) throws IOException, SQLException {
+    return inOneSnapshot(() -> {
+      Map<Integer, PhoneBillSummary> summaries = format == Format.PRETTY ? summarize("") : Map.of();
+      Map<Integer, Integer> counts = format == Format.BINARY ? countCalls(null) : Map.of();
+
+      File directory = new File(out);
+      if (format != Format.PRETTY && !directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Cannot create directory " + directory);
+      }
+
+      int customers = 0;
+      try (Statement statement = createStatement();
+           Rows rows = new Rows(statement.executeQuery(SELECT_CALLS_SQL + ORDER_BY_SQL));
+           Writer pretty = format == Format.PRETTY ? openPretty(out) : null) {
+        Set<String> fileNames = new HashSet<>();
+        while (rows.nextCustomer()) {
+          PhoneBillSummary summary = summaries.getOrDefault(rows.customerId, new PhoneBillSummary());
+          if (format == Format.PRETTY) {
+            new PrettyPrinter(pretty).dump(rows.customer, summary, rows.calls());
+          } else {
+            String fileName = fileNameOf(rows.customer);
+            if (!fileNames.add(fileName.toLowerCase(Locale.ROOT))) {
+              fileName = fileName + "-" + rows.customerId;
+            }
+            File file = new File(directory, fileName + format.extension);
+            write(format, file.getPath(), rows.customer, summary,
+                    counts.getOrDefault(rows.customerId, 0), rows.calls());
+          }
+          customers++;
+        }
+
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      return customers;
+    });
+  }
+
+  /**
+   * Writes a bill to a file in the given format. Only the calls are read for text, the
+   * count and the calls for binary, and the summary and the calls for pretty printing.
+   */
+  private static void write(Format format, String out, String customer, PhoneBillSummary summary,
+                            int count, Iterable<PhoneCall> calls) throws IOException {
+    if (format == Format.PRETTY) {
+      try (Writer writer = openPretty(out)) {
+        new PrettyPrinter(writer).dump(customer, summary, calls);
+      }
+      return;
+    }
+
+    try (FileChannel channel = FileChannel.open(new File(out).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      if (format == Format.BINARY) {
+        new BinaryDumper(channel).dump(customer, count, calls);
+      } else {
+        new TextDumper(channel).dump(customer, calls);
+      }
+    }
+  }
+
+  /**
+   * Opens a file to pretty print to. Standard out is flushed rather than closed.
+   */
+  private static Writer openPretty(String out) throws IOException {
+    if ("-".equals(out)) {
+      return new FilterWriter(new OutputStreamWriter(System.out)) {
+        @Override
+        public void close() throws IOException {
+          flush();
+        }
+      };
+    }
+    return new BufferedWriter(new FileWriter(out));
+  }
+
+  /**
+   * Returns a name for a customer's file, with any character that may not be allowed in a
+   * file name replaced by an underscore.
+   */
+  static String fileNameOf(String customer) {
+    String name = customer.replaceAll("[^A-Za-z0-9._-]", "_");
+    return name.isEmpty() || name.startsWith(".") ? "_" + name : name;
+  }
+
+  /**
+   * Runs an export in one transaction at the repeatable read isolation level, so that the
+   * counts and summaries written at the start of a bill agree with the calls read after them
+   * even while other programs change the database. An export on a connection that is already
+   * in a transaction runs in that transaction instead.
+   */
+  private <T> T inOneSnapshot(Export<T> export) throws IOException, SQLException {
+    if (!this.connection.getAutoCommit()) {
+      return export.run();
+    }
+
+    int isolation = this.connection.getTransactionIsolation();
+    this.connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+    this.connection.setAutoCommit(false);
+    try {
+      return export.run();
+    } finally {
+      // Nothing was written, so there is nothing to commit
+      this.connection.rollback();
+      this.connection.setAutoCommit(true);
+      this.connection.setTransactionIsolation(isolation);
+    }
+  }
+
+  /**
+   * An export that reads from the database.
+   */
+  private interface Export<T> {
+    T run() throws IOException, SQLException;
+  }
+
+  private Statement createStatement() throws SQLException {
+    Statement statement = this.connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    statement.setFetchSize(FETCH_SIZE);
+    return statement;
+  }
+
+  private Integer getCustomerId(String customer) throws SQLException {
+    try (PreparedStatement stmt = this.connection.prepareStatement("SELECT id FROM customers WHERE name = ?")) {
+      stmt.setString(1, customer);
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next() ? rs.getInt(1) : null;
+      }
+    }
+  }
+
+  /**
+   * Counts the calls of one customer, or of every customer if <code>customerId</code> is null.
+   */
+  private Map<Integer, Integer> countCalls(Integer customerId) throws SQLException {
+    String sql = "SELECT customer_id, COUNT(*) FROM phone_calls"
+            + (customerId == null ? "" : " WHERE customer_id = " + customerId)
+            + " GROUP BY customer_id";
+    Map<Integer, Integer> counts = new HashMap<>();
+    try (Statement statement = this.connection.createStatement();
+         ResultSet rs = statement.executeQuery(sql)) {
+      while (rs.next()) {
+        counts.put(rs.getInt(1), rs.getInt(2));
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Reads the calls once to compute the summary of each customer's bill.
+   */
+  private Map<Integer, PhoneBillSummary> summarize(String where) throws IOException, SQLException {
+    Map<Integer, PhoneBillSummary> summaries = new HashMap<>();
+    try (Statement statement = createStatement();
+         Rows rows = new Rows(statement.executeQuery(SELECT_CALLS_SQL + where + ORDER_BY_SQL))) {
+      while (rows.nextCustomer()) {
+        summaries.put(rows.customerId, PhoneBillSummary.of(rows.calls()));
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return summaries;
+  }
+
+  /**
+   * The rows of a query of customers and their calls, ordered by customer. The calls of each
+   * customer are read in turn, as they are iterated over. A customer without calls has one
+   * row whose call columns are null.
+   */
+  private static class Rows implements AutoCloseable {
+    private final ResultSet rs;
+    /** Whether the result set is on a row that has not been read */
+    private boolean onRow;
+    /** Whether a customer has been moved to */
+    private boolean started;
+    private int customerId;
+    private String customer;
+    /** The number of calls read so far */
+    private int count;
+
+    Rows(ResultSet rs) throws SQLException {
+      this.rs = rs;
+      this.onRow = rs.next();
+    }
+
+    /**
+     * Skips any unread calls of the current customer and moves to the next one.
+     *
+     * @return whether there is another customer
+     */
+    boolean nextCustomer() throws SQLException {
+      while (this.onRow && this.started && this.rs.getInt(1) == this.customerId) {
+        this.onRow = this.rs.next();
+      }
+      if (!this.onRow) {
+        return false;
+      }
+      this.started = true;
+      this.customerId = this.rs.getInt(1);
+      this.customer = this.rs.getString(2);
+      return true;
+    }
+
+    /**
+     * @return the calls of the current customer, which can be iterated over once
+     */
+    Iterable<PhoneCall> calls() {
+      return () -> new Iterator<>() {
+        @Override
+        public boolean hasNext() {
+          try {
+            while (onRow && rs.getInt(1) == customerId && rs.getString(3) == null) {
+              onRow = rs.next();
+            }
+            return onRow && rs.getInt(1) == customerId;
+          } catch (SQLException e) {
+            throw unchecked(e);
+          }
+        }
+
+        @Override
+        public PhoneCall next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          try {
+            PhoneCall call = new PhoneCall(customer, rs.getString(3), rs.getString(4),
+                    rs.getObject(5, LocalDateTime.class), rs.getObject(6, LocalDateTime.class));
+            onRow = rs.next();
+            count++;
+            return call;
+          } catch (SQLException e) {
+            throw unchecked(e);
+          }
+        }
+      };
+    }
+
+    private static UncheckedIOException unchecked(SQLException e) {
+      return new UncheckedIOException(new IOException("Error reading phone calls from database: " + e.getMessage(), e));
+    }
+
+    @Override
+    public void close() throws SQLException {
+      this.rs.close();
+    }
+  }
+
+  /**
+   * Prints usage information to standard error.
+   */
+  private static void printUsage() {
+    System.err.println("usage: java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.<login-id>.Exporter [options] dbFile out");
+    System.err.println("  args are (in this order):");
+    System.err.println("    dbFile           The name of the file containing the database");
+    System.err.println("    out              The file to export one customer's bill to, or the directory");
+    System.err.println("                     to export every customer's bill to (- for standard out)");
+    System.err.println("  options are (options may appear in any order):");
+    System.err.println("    -format f        text (default), binary or pretty");
+    System.err.println("    -customer name   Export only this customer's bill");
+  }
+}
@@ -19,11 +19,45 @@ import java.sql.*;
  *       callee (CHAR(12)), begin (TIMESTAMP), end (TIMESTAMP)</li>
  * </ul>
  *
+ * <p>Calls are inserted in batches of {@link #DEFAULT_BATCH_SIZE} (or a chosen size) through
+ * one {@link PreparedStatement}. If the connection is in auto-commit mode, the dumper runs
+ * its own transaction and commits once per batch, rolling back the batch that failed;
+ * otherwise the calls become part of the caller's transaction, which the caller commits.
+ *
+ * <p>A customer or call that is already in the database is not saved again. Each is saved
+ * with one statement that inserts it only if it is not there, looked up through the unique
+ * constraints created by {@link PhoneBillDAO#createTable}: H2's
+ * <code>MERGE INTO ... KEY</code> for a customer, and for a call an <code>INSERT</code> with
+ * <code>WHERE NOT EXISTS</code>, which H2 runs several times faster than a
+ * <code>MERGE</code> keyed on all five columns of a call. Since the constraints are enforced
+ * by the database, programs dumping at the same time cannot both save the same customer or
+ * call; a call that another program saved first is treated as already saved.
+ *
+ * <p>Only the calls of a {@link PhoneBill} that have not been saved are dumped: those added
+ * since it was loaded by {@link JDBCLoader} or last dumped by its own transaction. Adding one
+ * call to a large bill and saving it again therefore checks one call against the database,
+ * not all of them. A bill that was loaded from one database must not be dumped to another,
+ * since the calls it loaded would not be saved there.
+ *
  * @author Jay Abegglen
  * @version 1.0
  */
 public class JDBCDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>> {
+  /** The number of calls inserted by each batch, unless another size is chosen */
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  static final String INSERT_CALL_SQL =
+          "INSERT INTO phone_calls (customer_id, caller, callee, begin, \"end\") " +
+          "SELECT CAST(?1 AS INTEGER), CAST(?2 AS CHAR(12)), CAST(?3 AS CHAR(12)), CAST(?4 AS TIMESTAMP), CAST(?5 AS TIMESTAMP) " +
+          "WHERE NOT EXISTS (SELECT 1 FROM phone_calls " +
+          "WHERE customer_id = ?1 AND caller = ?2 AND callee = ?3 AND begin = ?4 AND \"end\" = ?5)";
+  static final String MERGE_CUSTOMER_SQL =
+          "SELECT id FROM FINAL TABLE (MERGE INTO customers (name) KEY (name) VALUES (?))";
+  /** The SQL state of a statement that would break a unique constraint */
+  private static final String DUPLICATE_KEY = "23505";
+
   private final Connection connection;
+  private final int batchSize;
 
   /**
    * Creates a new JDBCDumper with the specified database connection.
@@ -31,7 +65,21 @@ public class JDBCDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>>
    * @param connection the database connection to use for persisting phone bills
    */
   public JDBCDumper(Connection connection) {
+    this(connection, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Creates a new JDBCDumper that inserts the given number of calls at a time.
+   *
+   * @param connection the database connection to use for persisting phone bills
+   * @param batchSize the number of calls to insert with each batch
+   */
+  public JDBCDumper(Connection connection, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+    }
     this.connection = connection;
+    this.batchSize = batchSize;
   }
 
   /**
@@ -47,14 +95,59 @@ public class JDBCDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>>
     if (bill == null) {
       return;
     }
-    
-    try {
-      // Get or create customer ID
-      int customerId = getOrCreateCustomer(bill.getCustomer());
 
-      // Save all phone calls for this customer
-      for (PhoneCall call : bill.getPhoneCalls()) {
-        savePhoneCall(customerId, call);
+    if (bill instanceof PhoneBill phoneBill) {
+      // The calls are only known to be saved once they are committed, which the dumper
+      // cannot tell when they are part of the caller's transaction
+      if (save(phoneBill.getCustomer(), phoneBill.getUnsavedCalls())) {
+        phoneBill.markSaved();
+      }
+    } else {
+      dump(bill.getCustomer(), bill.getPhoneCalls());
+    }
+  }
+
+  /**
+   * Persists a customer's phone calls without first collecting them into a phone bill.
+   * Each call is saved as it is reached, so a sequence of any length, such as a
+   * {@link TextParser#stream()}, can be persisted.
+   *
+   * @param customer the name of the customer who made the calls
+   * @param calls the phone calls to persist
+   * @throws IOException if a database error occurs during persistence; if the dumper ran
+   *         its own transaction, the batches before the one that failed stay committed
+   */
+  public void dump(String customer, Iterable<? extends PhoneCall> calls) throws IOException {
+    save(customer, calls);
+  }
+
+  /**
+   * Saves the calls, in a transaction of the dumper's own if the connection is in auto-commit
+   * mode.
+   *
+   * @return whether the dumper committed the calls in its own transaction
+   */
+  private boolean save(String customer, Iterable<? extends PhoneCall> calls) throws IOException {
+    try {
+      boolean ownTransaction = connection.getAutoCommit();
+      if (ownTransaction) {
+        connection.setAutoCommit(false);
+      }
+      try {
+        saveCalls(customer, calls, ownTransaction);
+        if (ownTransaction) {
+          connection.commit();
+        }
+        return ownTransaction;
+      } catch (SQLException | RuntimeException e) {
+        if (ownTransaction) {
+          connection.rollback();
+        }
+        throw e;
+      } finally {
+        if (ownTransaction) {
+          connection.setAutoCommit(true);
+        }
       }
     } catch (SQLException e) {
       throw new IOException("Error saving phone bill to database: " + e.getMessage(), e);
@@ -62,76 +155,95 @@ public class JDBCDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>>
   }
 
   /**
-   * Gets the customer ID for the given customer name, or creates a new customer
-   * if one doesn't exist.
+   * Saves the customer and their calls in batches.
    *
-   * @param customerName the name of the customer
-   * @return the customer ID
-   * @throws SQLException if a database error occurs
+   * @param commitBatches whether to commit after each batch
    */
-  private int getOrCreateCustomer(String customerName) throws SQLException {
-    // First try to find existing customer
-    String selectSQL = "SELECT id FROM customers WHERE name = ?";
-    try (PreparedStatement stmt = connection.prepareStatement(selectSQL)) {
-      stmt.setString(1, customerName);
-      try (ResultSet rs = stmt.executeQuery()) {
-        if (rs.next()) {
-          return rs.getInt("id");
+  private void saveCalls(String customer, Iterable<? extends PhoneCall> calls, boolean commitBatches)
+          throws SQLException {
+    int customerId = getOrCreateCustomer(customer);
+
+    try (PreparedStatement stmt = connection.prepareStatement(INSERT_CALL_SQL)) {
+      int pending = 0;
+      for (PhoneCall call : calls) {
+        if (call.getPackedCaller() < 0 || call.getPackedCallee() < 0) {
+          throw new SQLException("Invalid phone number (expected nnn-nnn-nnnn) in call: " + call);
+        }
+
+        stmt.setInt(1, customerId);
+        stmt.setString(2, call.getCaller());
+        stmt.setString(3, call.getCallee());
+        stmt.setTimestamp(4, Timestamp.valueOf(call.getBeginTime()));
+        stmt.setTimestamp(5, Timestamp.valueOf(call.getEndTime()));
+        stmt.addBatch();
+        if (++pending == batchSize) {
+          executeBatch(stmt, pending, commitBatches);
+          pending = 0;
         }
       }
+      executeBatch(stmt, pending, commitBatches);
     }
+  }
 
-    // Customer doesn't exist, create new one
-    String insertSQL = "INSERT INTO customers (name) VALUES (?)";
-    try (PreparedStatement stmt = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS)) {
-      stmt.setString(1, customerName);
-      stmt.executeUpdate();
-
-      try (ResultSet rs = stmt.getGeneratedKeys()) {
-        if (rs.next()) {
-          return rs.getInt(1);
-        } else {
-          throw new SQLException("Failed to get generated customer ID");
+  private void executeBatch(PreparedStatement stmt, int pending, boolean commit) throws SQLException {
+    if (pending > 0) {
+      try {
+        stmt.executeBatch();
+      } catch (BatchUpdateException e) {
+        // The other calls of the batch were still inserted
+        if (!onlyDuplicateKeys(e)) {
+          throw e;
         }
       }
     }
+    if (commit) {
+      connection.commit();
+    }
   }
 
   /**
-   * Saves a phone call to the database.
+   * Returns whether every call that failed in a batch was saved by another program between
+   * the check for it and its insert.
+   */
+  private static boolean onlyDuplicateKeys(BatchUpdateException e) {
+    for (SQLException failure = e; failure != null; failure = failure.getNextException()) {
+      if (!DUPLICATE_KEY.equals(failure.getSQLState())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the customer ID for the given customer name, or creates a new customer
+   * if one doesn't exist.
    *
-   * @param customerId the ID of the customer making the call
-   * @param call the phone call to save
+   * @param customerName the name of the customer
+   * @return the customer ID
    * @throws SQLException if a database error occurs
    */
-  private void savePhoneCall(int customerId, PhoneCall call) throws SQLException {
-    // Check if this exact call already exists to avoid duplicates
-    String checkSQL = "SELECT COUNT(*) FROM phone_calls WHERE customer_id = ? AND caller = ? AND callee = ? AND begin = ? AND \"end\" = ?";
-    try (PreparedStatement checkStmt = connection.prepareStatement(checkSQL)) {
-      checkStmt.setInt(1, customerId);
-      checkStmt.setString(2, call.getCaller());
-      checkStmt.setString(3, call.getCallee());
-      checkStmt.setTimestamp(4, Timestamp.valueOf(call.getBeginTime()));
-      checkStmt.setTimestamp(5, Timestamp.valueOf(call.getEndTime()));
-      
-      try (ResultSet rs = checkStmt.executeQuery()) {
-        if (rs.next() && rs.getInt(1) > 0) {
-          // Call already exists, skip insertion
-          return;
+  private int getOrCreateCustomer(String customerName) throws SQLException {
+    try (PreparedStatement stmt = connection.prepareStatement(MERGE_CUSTOMER_SQL)) {
+      stmt.setString(1, customerName);
+      try {
+        return queryId(stmt);
+      } catch (SQLException e) {
+        if (!DUPLICATE_KEY.equals(e.getSQLState())) {
+          throw e;
         }
+        // Another program created the customer at the same moment, so it exists now
+        return queryId(stmt);
       }
     }
-    
-    // Insert the new call
-    String insertSQL = "INSERT INTO phone_calls (customer_id, caller, callee, begin, \"end\") VALUES (?, ?, ?, ?, ?)";
-    
-    try (PreparedStatement stmt = connection.prepareStatement(insertSQL)) {
-      stmt.setInt(1, customerId);
-      stmt.setString(2, call.getCaller());
-      stmt.setString(3, call.getCallee());
-      stmt.setTimestamp(4, Timestamp.valueOf(call.getBeginTime()));
-      stmt.setTimestamp(5, Timestamp.valueOf(call.getEndTime()));
-      stmt.executeUpdate();
+  }
+
+  private static int queryId(PreparedStatement stmt) throws SQLException {
+    try (ResultSet rs = stmt.executeQuery()) {
+      if (rs.next()) {
+        return rs.getInt(1);
+      } else {
+        throw new SQLException("Failed to get customer ID");
+      }
     }
   }
 }
@@ -17,10 +17,18 @@ import java.sql.*;
  *       callee (CHAR(12)), begin (TIMESTAMP), end (TIMESTAMP)</li>
  * </ul>
  *
+ * <p>The bill that is loaded is marked as saved with {@link PhoneBill#markSaved()}, so that
+ * {@link JDBCDumper} saves only the calls that are added to it afterwards.
+ *
  * @author Jay Abegglen
  * @version 1.0
  */
 public class JDBCLoader implements PhoneBillParser<PhoneBill> {
+  /** Selects a customer's calls, through the index that begins with (customer_id, begin) */
+  static final String SELECT_CALLS_SQL = "SELECT caller, callee, begin, \"end\" FROM phone_calls WHERE customer_id = ?";
+  /** Selects a customer's id, through the unique index on their name */
+  static final String SELECT_CUSTOMER_SQL = "SELECT id FROM customers WHERE name = ?";
+
   private final Connection connection;
   private final String customerName;
 
@@ -39,7 +47,7 @@ public class JDBCLoader implements PhoneBillParser<PhoneBill> {
    * Parses and loads a phone bill from the database for the specified customer.
    * If the customer exists in the database, retrieves all their phone calls and
    * constructs a {@link PhoneBill} object. If the customer doesn't exist,
-   * returns an empty phone bill for that customer.
+   * returns an empty phone bill for that customer. Either way, the bill is marked as saved.
    *
    * @return the phone bill loaded from the database
    * @throws ParserException if a database error occurs during loading
@@ -52,14 +60,12 @@ public class JDBCLoader implements PhoneBillParser<PhoneBill> {
       // Get customer ID
       Integer customerId = getCustomerId(customerName);
       
-      if (customerId == null) {
-        // Customer doesn't exist in database, return empty bill
-        return bill;
+      if (customerId != null) {
+        // Load all phone calls for this customer
+        loadPhoneCalls(customerId, bill);
       }
 
-      // Load all phone calls for this customer
-      loadPhoneCalls(customerId, bill);
-
+      bill.markSaved();
       return bill;
     } catch (SQLException e) {
       throw new ParserException("Error loading phone bill from database: " + e.getMessage(), e);
@@ -74,8 +80,7 @@ public class JDBCLoader implements PhoneBillParser<PhoneBill> {
    * @throws SQLException if a database error occurs
    */
   private Integer getCustomerId(String customerName) throws SQLException {
-    String selectSQL = "SELECT id FROM customers WHERE name = ?";
-    try (PreparedStatement stmt = connection.prepareStatement(selectSQL)) {
+    try (PreparedStatement stmt = connection.prepareStatement(SELECT_CUSTOMER_SQL)) {
       stmt.setString(1, customerName);
       try (ResultSet rs = stmt.executeQuery()) {
         if (rs.next()) {
@@ -94,9 +99,7 @@ public class JDBCLoader implements PhoneBillParser<PhoneBill> {
    * @throws SQLException if a database error occurs
    */
   private void loadPhoneCalls(int customerId, PhoneBill bill) throws SQLException {
-    String selectSQL = "SELECT caller, callee, begin, \"end\" FROM phone_calls WHERE customer_id = ?";
-    
-    try (PreparedStatement stmt = connection.prepareStatement(selectSQL)) {
+    try (PreparedStatement stmt = connection.prepareStatement(SELECT_CALLS_SQL)) {
       stmt.setInt(1, customerId);
       
       try (ResultSet rs = stmt.executeQuery()) {
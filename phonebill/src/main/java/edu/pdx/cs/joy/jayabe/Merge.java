@@ -0,0 +1,163 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The <code>Merge</code> class merges several text files, each holding part of the same
+ * customer's phone bill in sorted order, into a single sorted text file. The files are read
+ * one call at a time and merged with a {@link PhoneCallMerger}, so only one call from each
+ * file is held in memory at once. The merged bill is written to a temporary file that
+ * replaces the output file only when the merge succeeds.
+ *
+ * <p>Command-line usage:
+ * <pre>
+ *   java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.&lt;login-id&gt;.Merge [-dedup] outFile textFile...
+ * </pre>
+ *
+ * <p>Arguments:
+ * <ul>
+ *   <li><code>-dedup</code> - Drop calls that appear in more than one text file</li>
+ *   <li><code>outFile</code> - The name of the text file to write the merged bill to</li>
+ *   <li><code>textFile</code> - The names of the sorted text files to merge</li>
+ * </ul>
+ */
+public class Merge {
+
+  /**
+   * Creates a new Merge. Empty constructor since all functionality is in the static main method.
+   */
+  public Merge() {
+  }
+
+  /**
+   * Main entry point for the Merge application.
+   *
+   * @param args command-line arguments: [-dedup] outFile textFile...
+   */
+  public static void main(String[] args) {
+    int first = 0;
+    boolean dropDuplicates = false;
+    if (args.length > 0 && args[0].equals("-dedup")) {
+      dropDuplicates = true;
+      first = 1;
+    }
+
+    if (args.length - first < 2) {
+      System.err.println("Error: Missing command line arguments");
+      printUsage();
+      return;
+    }
+
+    String outFile = args[first];
+    List<String> textFiles = List.of(args).subList(first + 1, args.length);
+
+    try {
+      int dropped = merge(textFiles, outFile, dropDuplicates);
+      System.out.println("Successfully merged " + textFiles.size() + " files into " + outFile);
+      if (dropDuplicates) {
+        System.out.println("Dropped " + dropped + " duplicate phone calls");
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+    } catch (IOException e) {
+      System.err.println("Error accessing file: " + e.getMessage());
+    } catch (ParserException e) {
+      System.err.println("Error parsing text file: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Merges sorted text files into one sorted text file.
+   *
+   * @param textFiles the paths of the text files to merge
+   * @param outFile the path of the text file to write
+   * @param dropDuplicates whether to drop calls that duplicate a call already written
+   * @return the number of duplicate calls that were dropped
+   * @throws IllegalArgumentException if the files are not for the same customer, if a file
+   *         is not sorted, or if the output file is also one of the inputs
+   * @throws IOException if a file cannot be read or written
+   * @throws ParserException if a text file cannot be parsed
+   */
+  static int merge(List<String> textFiles, String outFile, boolean dropDuplicates)
+          throws IOException, ParserException {
+    File out = new File(outFile).getCanonicalFile();
+    List<TextParser.CallIterator> sources = new ArrayList<>();
+    try {
+      String customer = null;
+      for (String textFile : textFiles) {
+        if (new File(textFile).getCanonicalFile().equals(out)) {
+          throw new IllegalArgumentException("Output file " + outFile + " cannot also be merged");
+        }
+
+        TextParser.CallIterator source = new TextParser(new FileReader(textFile)).calls();
+        sources.add(source);
+        if (customer == null) {
+          customer = source.getCustomer();
+        } else if (!customer.equals(source.getCustomer())) {
+          throw new IllegalArgumentException("Customer \"" + source.getCustomer() + "\" in " + textFile
+                  + " does not match customer \"" + customer + "\"");
+        }
+      }
+
+      PhoneCallMerger merger = new PhoneCallMerger(sources, dropDuplicates);
+      write(customer, merger, out);
+      return merger.getDroppedDuplicateCount();
+
+    } catch (TextParser.UncheckedParserException e) {
+      throw e.getCause();
+
+    } finally {
+      for (TextParser.CallIterator source : sources) {
+        source.close();
+      }
+    }
+  }
+
+  /**
+   * Writes the merged calls to a temporary file in the same directory as the output file,
+   * which is moved over the output file only once every call has been written. A merge that
+   * fails, for instance because an input is not sorted, leaves the output file as it was.
+   * An output file that does not exist yet is created empty first, so that the merged file
+   * gets the permissions a new file would have rather than those of the temporary file.
+   */
+  private static void write(String customer, PhoneCallMerger merger, File out) throws IOException {
+    Path target = out.toPath();
+    boolean created = out.createNewFile();
+    Path temporary = Files.createTempFile(target.getParent(), out.getName(), ".tmp");
+    boolean merged = false;
+    try {
+      Compact.copyPermissions(target, temporary);
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        new TextDumper(channel).dump(customer, () -> merger);
+      }
+      Compact.moveIntoPlace(temporary, target);
+      merged = true;
+
+    } finally {
+      Files.deleteIfExists(temporary);
+      if (created && !merged) {
+        Files.deleteIfExists(target);
+      }
+    }
+  }
+
+  /**
+   * Prints usage information to standard error.
+   */
+  private static void printUsage() {
+    System.err.println("usage: java -cp target/phonebill-1.0.0.jar edu.pdx.cs.joy.<login-id>.Merge [-dedup] outFile textFile...");
+    System.err.println("  args are (in this order):");
+    System.err.println("    outFile   The name of the text file to write the merged bill to");
+    System.err.println("    textFile  The names of the sorted text files to merge");
+    System.err.println("  options are:");
+    System.err.println("    -dedup    Drop calls that appear in more than one text file");
+  }
+}
@@ -0,0 +1,294 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import edu.pdx.cs.joy.PhoneBillParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses a phone bill from a large text file using many threads. The file has the same
+ * format that {@link TextParser} reads, and the resulting bill is exactly the one
+ * <code>TextParser</code> would produce, including the order of calls that begin at the same
+ * time.
+ *
+ * <p>After the customer name on the first line, the file is divided into chunks that end at
+ * line breaks. Each chunk is memory-mapped with {@link FileChannel#map} and its lines are
+ * parsed and sorted by a task on a {@link ForkJoinPool}. The sorted chunks are then merged
+ * into the bill with a {@link PhoneCallMerger}. Lines are parsed straight from the mapped
+ * bytes by a {@link CallLineParser}; only lines with non-ASCII characters are decoded with
+ * the file's character set.
+ *
+ * <p>If a line cannot be parsed, the error for the first such line in the file is thrown,
+ * and its message gives the line's number, just as <code>TextParser</code>'s does.
+ *
+ * <p>Example usage:
+ * <pre>
+ *   PhoneBill bill = new ParallelTextParser(Path.of("calls.txt")).parse();
+ * </pre>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public class ParallelTextParser implements PhoneBillParser<PhoneBill> {
+  /** The smallest chunk worth giving its own task */
+  private static final long MIN_CHUNK_SIZE = 1 << 20;
+  /** The largest chunk, well under the 2 GB limit on a single mapping */
+  private static final long MAX_CHUNK_SIZE = 1 << 28;
+  /** The number of chunks per thread, so that threads that finish early can take more */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final Path file;
+  private final ForkJoinPool pool;
+  private final Charset charset;
+  private final long minChunkSize;
+
+  /**
+   * Creates a parser that reads a file with the default character set on the common
+   * fork/join pool.
+   *
+   * @param file the text file to parse
+   */
+  public ParallelTextParser(Path file) {
+    this(file, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a parser that reads a file with the default character set, as a
+   * {@link java.io.FileReader} would.
+   *
+   * @param file the text file to parse
+   * @param pool the pool whose threads parse the file
+   */
+  public ParallelTextParser(Path file, ForkJoinPool pool) {
+    this(file, pool, Charset.defaultCharset());
+  }
+
+  /**
+   * Creates a parser. The character set must encode ASCII characters as single bytes, as
+   * UTF-8 and ISO-8859-1 do.
+   *
+   * @param file the text file to parse
+   * @param pool the pool whose threads parse the file
+   * @param charset the character set the file is written in
+   */
+  public ParallelTextParser(Path file, ForkJoinPool pool, Charset charset) {
+    this(file, pool, charset, MIN_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a parser that may divide the file into chunks as small as the given size, so
+   * that tests can use many chunks without large files.
+   */
+  ParallelTextParser(Path file, ForkJoinPool pool, Charset charset, long minChunkSize) {
+    this.file = file;
+    this.pool = pool;
+    this.charset = charset;
+    this.minChunkSize = minChunkSize;
+  }
+
+  @Override
+  public PhoneBill parse() throws ParserException {
+    try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long headerEnd = lineEnd(channel, 0, size);
+      String customer = readCustomer(channel, headerEnd);
+      if (customer.isEmpty()) {
+        throw new ParserException("File is empty or missing the customer name");
+      }
+
+      List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+      long chunkSize = Math.max(this.minChunkSize, Math.min(MAX_CHUNK_SIZE,
+              (size - headerEnd) / ((long) this.pool.getParallelism() * CHUNKS_PER_THREAD) + 1));
+      for (long start = headerEnd; start < size; ) {
+        long end = lineEnd(channel, Math.min(size, start + chunkSize), size);
+        tasks.add(this.pool.submit(new Chunk(channel, start, end, customer, this.charset)));
+        start = end;
+      }
+
+      List<Chunk> chunks = new ArrayList<>(tasks.size());
+      for (ForkJoinTask<Chunk> task : tasks) {
+        chunks.add(task.get());
+      }
+      return merge(customer, chunks);
+
+    } catch (IOException e) {
+      throw new ParserException("Error reading file: " + e.getMessage(), e);
+
+    } catch (ExecutionException e) {
+      throw new ParserException("Error reading file: " + e.getCause().getMessage(), e.getCause());
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ParserException("Interrupted while parsing file", e);
+    }
+  }
+
+  /**
+   * Merges the sorted chunks into a bill, or throws the error of the first line in the file
+   * that could not be parsed.
+   */
+  private static PhoneBill merge(String customer, List<Chunk> chunks) throws ParserException {
+    // The customer name is on line 1, before every chunk
+    long linesBefore = 1;
+    List<Iterator<PhoneCall>> sources = new ArrayList<>(chunks.size());
+    for (Chunk chunk : chunks) {
+      if (chunk.error != null) {
+        ParserException error = chunk.error;
+        throw new ParserException("Line " + (linesBefore + chunk.lines + 1) + ": " + error.getMessage(), error);
+      }
+      linesBefore += chunk.lines;
+      sources.add(chunk.calls.iterator());
+    }
+
+    PhoneBill bill = new PhoneBill(customer);
+    new PhoneCallMerger(sources, false).forEachRemaining(bill::addPhoneCall);
+    return bill;
+  }
+
+  private String readCustomer(FileChannel channel, long headerEnd) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+    while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+      // Keep reading until the whole line has been read
+    }
+    header.flip();
+    return this.charset.decode(header).toString().trim();
+  }
+
+  /**
+   * Returns the position just after the line break at or after <code>position</code>,
+   * treating <code>"\r\n"</code> as one line break, or <code>size</code> if there is none.
+   */
+  private static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        byte b = buffer.get(i);
+        if (b == '\n') {
+          return position + i + 1;
+        }
+        if (b == '\r') {
+          // A '\n' right after the '\r' belongs to the same line break
+          long next = position + i + 1;
+          if (next < size) {
+            ByteBuffer following = ByteBuffer.allocate(1);
+            if (channel.read(following, next) == 1 && following.get(0) == '\n') {
+              next++;
+            }
+          }
+          return next;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  /**
+   * The task that parses the lines in one chunk of the file. After it has run, it holds the
+   * chunk's calls in sorted order, or the error for its first bad line.
+   */
+  private static class Chunk implements Callable<Chunk> {
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final Charset charset;
+    private final CallLineParser parser;
+
+    /** The calls in the chunk, sorted, or null if a line could not be parsed */
+    private List<PhoneCall> calls;
+    /** The number of lines in the chunk, or before the bad line if there is one */
+    private long lines;
+    /** The error for the first line that could not be parsed, if any */
+    private ParserException error;
+
+    Chunk(FileChannel channel, long start, long end, String customer, Charset charset) {
+      this.channel = channel;
+      this.start = start;
+      this.end = end;
+      this.charset = charset;
+      this.parser = new CallLineParser(customer);
+    }
+
+    @Override
+    public Chunk call() throws IOException {
+      MappedByteBuffer bytes = this.channel.map(FileChannel.MapMode.READ_ONLY, this.start, this.end - this.start);
+      int length = bytes.limit();
+      List<PhoneCall> calls = new ArrayList<>();
+      char[] line = new char[256];
+
+      int position = 0;
+      while (position < length) {
+        // Copy the line into the character buffer, noting whether it is all ASCII
+        int count = 0;
+        boolean ascii = true;
+        int lineStart = position;
+        byte b = 0;
+        while (position < length && (b = bytes.get(position)) != '\n' && b != '\r') {
+          if (count == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+          }
+          line[count++] = (char) (b & 0xFF);
+          ascii &= b >= 0;
+          position++;
+        }
+        int lineEnd = position;
+        if (position < length) {
+          position++;
+          if (b == '\r' && position < length && bytes.get(position) == '\n') {
+            position++;
+          }
+        }
+
+        if (!ascii) {
+          line = decode(bytes, lineStart, lineEnd);
+          count = line.length;
+        }
+        if (!isBlank(line, count)) {
+          try {
+            calls.add(this.parser.parse(line, 0, count));
+          } catch (ParserException e) {
+            this.error = e;
+            return this;
+          }
+        }
+        this.lines++;
+      }
+
+      calls.sort(null);
+      this.calls = calls;
+      return this;
+    }
+
+    private char[] decode(ByteBuffer bytes, int start, int end) {
+      return this.charset.decode(bytes.slice(start, end - start)).toString().toCharArray();
+    }
+
+    private static boolean isBlank(char[] line, int count) {
+      for (int i = 0; i < count; i++) {
+        if (line[i] > ' ') {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -1,9 +1,17 @@
 package edu.pdx.cs.joy.jayabe;
 
 import edu.pdx.cs.joy.AbstractPhoneBill;
+import java.time.LocalDateTime;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
 
 /**
  * The <code>PhoneBill</code> class represents a phone bill for a specific customer.
@@ -14,6 +22,25 @@ import java.util.Collections;
  * phone calls made by that customer. This class provides methods to retrieve the customer
  * name, add new phone calls, and access the complete collection of calls.
  *
+ * <p>Phone calls are kept in sorted order as they are added, using
+ * {@link PhoneCall#compareTo(PhoneCall)}. Calls that compare as equal (same begin time
+ * and caller) are all retained, in the order they were added, so the bill behaves exactly
+ * like a stable sort of every call that was ever added. Because the calls are indexed by
+ * begin time, {@link #callsBetween(LocalDateTime, LocalDateTime)},
+ * {@link #callsAfter(LocalDateTime)} and {@link #callsBefore(LocalDateTime)} can return
+ * the calls in a time range without scanning the whole bill. An interval index over the
+ * begin and end times of the calls answers {@link #callsActiveAt(LocalDateTime)} and
+ * {@link #callsOverlapping(LocalDateTime, LocalDateTime)} the same way.
+ *
+ * <p>A bill can optionally reject duplicate calls: calls with the same caller, callee, begin
+ * time and end time as a call already on the bill. Rejected calls are counted so that
+ * whatever is loading the bill can report them.
+ *
+ * <p>A bill can also remember which of its calls have been saved. After
+ * {@link #markSaved()}, the calls that are added are kept until the next mark, so
+ * {@link #getUnsavedCalls()} returns only them and a bill loaded by {@link JDBCLoader} can
+ * be saved again without looking at the calls that came from the database.
+ *
  * <p>Example usage:
  * <pre>
  *   PhoneBill bill = new PhoneBill("John Doe");
@@ -29,9 +56,29 @@ public class PhoneBill extends AbstractPhoneBill<PhoneCall> {
   /** The name of the customer */
   private final String customer;
   /**
-   * A collection of phone calls associated with this customer's bill.
+   * The phone calls on this bill, ordered by {@link PhoneCall#compareTo(PhoneCall)}.
+   * Each key is the first call added with its begin time and caller; any later calls
+   * that compare as equal to it are kept, in insertion order, in the value list.
+   * The value is <code>null</code> when there are no such calls.
    */
-  private final Collection<PhoneCall> phoneCalls;
+  private final NavigableMap<PhoneCall, List<PhoneCall>> phoneCalls;
+  /** The number of phone calls on this bill */
+  private int size;
+  /** A read-only, sorted view of all of the phone calls on this bill */
+  private final Collection<PhoneCall> sortedView;
+  /** An index of the time during which each phone call was in progress */
+  private final CallIntervalIndex intervals = new CallIntervalIndex();
+  /** Running totals for the phone calls on this bill */
+  private final PhoneBillSummary summary = new PhoneBillSummary();
+  /** Fingerprints of the calls on this bill, or null if duplicates are not rejected */
+  private final CallFingerprintSet fingerprints;
+  /** The number of duplicate calls that have been rejected */
+  private int rejectedDuplicates;
+  /**
+   * The calls added since the bill was last marked as saved, in the order they were added,
+   * or null if it has never been marked, in which case none of the calls are saved
+   */
+  private List<PhoneCall> unsaved;
 
   /**
    * Constructs a new <code>PhoneBill</code> for the specified customer.
@@ -40,8 +87,22 @@ public class PhoneBill extends AbstractPhoneBill<PhoneCall> {
    * @param customer the name of the customer for this phone bill; must not be null
    */
   public PhoneBill(String customer) {
+    this(customer, false);
+  }
+
+  /**
+   * Constructs a new <code>PhoneBill</code> for the specified customer that may reject
+   * duplicate phone calls.
+   *
+   * @param customer the name of the customer for this phone bill; must not be null
+   * @param rejectDuplicates whether or not to reject a call with the same caller, callee,
+   *                         begin time and end time as a call already on the bill
+   */
+  public PhoneBill(String customer, boolean rejectDuplicates) {
     this.customer = customer;
-    this.phoneCalls = new ArrayList<>();
+    this.phoneCalls = new TreeMap<>();
+    this.sortedView = new SortedCalls(this.phoneCalls);
+    this.fingerprints = rejectDuplicates ? new CallFingerprintSet() : null;
   }
 
   /**
@@ -53,25 +114,287 @@ public class PhoneBill extends AbstractPhoneBill<PhoneCall> {
   }
 
   /**
-   * Adds a phone call to this customer's phone bill
+   * Adds a phone call to this customer's phone bill, keeping the calls in sorted order.
+   * This takes O(log n) time. If this bill rejects duplicates and the call is a duplicate,
+   * it is not added and is counted by {@link #getRejectedDuplicateCount()}.
    * @param call creates and inserts a phone call
    * */
   @Override
   public void addPhoneCall(PhoneCall call) {
-    this.phoneCalls.add(call);
+    Map.Entry<PhoneCall, List<PhoneCall>> existing = this.phoneCalls.ceilingEntry(call);
+    boolean sameBeginAndCaller = existing != null && existing.getKey().compareTo(call) == 0;
+
+    // A call whose fingerprint is new cannot be a duplicate. Only when the fingerprint has
+    // been seen before is the call compared with the calls that share its begin and caller.
+    if (this.fingerprints != null && !this.fingerprints.add(call)
+            && sameBeginAndCaller && containsDuplicateOf(existing, call)) {
+      this.rejectedDuplicates++;
+      return;
+    }
+
+    if (sameBeginAndCaller) {
+      List<PhoneCall> ties = existing.getValue();
+      if (ties == null) {
+        ties = new ArrayList<>(2);
+        this.phoneCalls.put(existing.getKey(), ties);
+      }
+      ties.add(call);
+    } else {
+      this.phoneCalls.put(call, null);
+    }
+    this.intervals.add(call);
+    this.summary.add(call);
+    this.size++;
+    if (this.unsaved != null) {
+      this.unsaved.add(call);
+    }
+  }
+
+  /**
+   * Returns whether or not the given entry holds a call with the same callee and end time as
+   * the given call. All of the calls in the entry have the same begin time and caller.
+   */
+  private static boolean containsDuplicateOf(Map.Entry<PhoneCall, List<PhoneCall>> entry, PhoneCall call) {
+    if (isSameCall(entry.getKey(), call)) {
+      return true;
+    }
+    if (entry.getValue() != null) {
+      for (PhoneCall tie : entry.getValue()) {
+        if (isSameCall(tie, call)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSameCall(PhoneCall sameBeginAndCaller, PhoneCall call) {
+    return sameBeginAndCaller.hasSameCallee(call)
+            && sameBeginAndCaller.getEndTime().equals(call.getEndTime());
+  }
+
+  /**
+   * @return whether or not this bill rejects duplicate phone calls
+   */
+  public boolean isRejectingDuplicates() {
+    return this.fingerprints != null;
+  }
+
+  /**
+   * Returns the number of duplicate phone calls that this bill has rejected. This is
+   * always zero if the bill does not reject duplicates.
+   *
+   * @return the number of rejected duplicate calls
+   */
+  public int getRejectedDuplicateCount() {
+    return this.rejectedDuplicates;
+  }
+
+  /**
+   * Records that every phone call now on this bill has been saved, so that only the calls
+   * added from now on are returned by {@link #getUnsavedCalls()}.
+   */
+  public void markSaved() {
+    this.unsaved = new ArrayList<>();
+  }
+
+  /**
+   * Returns the phone calls that were added to this bill since it was last marked as saved,
+   * in the order they were added. If the bill has never been marked, this is every call on
+   * the bill, as returned by {@link #getPhoneCalls()}.
+   *
+   * <p>The returned collection is a read-only view that reflects calls added later, until
+   * the bill is marked again.
+   *
+   * @return the calls that have not been saved
+   */
+  public Collection<PhoneCall> getUnsavedCalls() {
+    return this.unsaved == null ? this.sortedView : Collections.unmodifiableList(this.unsaved);
   }
 
   /**
    * Returns all phone calls from one customer, sorted chronologically by begin time.
    * If two phone calls begin at the same time, they are sorted by caller phone number.
+   *
+   * <p>The returned collection is a read-only view of this bill; it is not copied, and
+   * it reflects calls that are added to the bill later.
+   *
    * @return A collection of phone calls in sorted order
    * */
   @Override
   public Collection<PhoneCall> getPhoneCalls() {
-    ArrayList<PhoneCall> sortedCalls = new ArrayList<>(this.phoneCalls);
-    Collections.sort(sortedCalls);
-    return sortedCalls;
+    return this.sortedView;
+  }
+
+  /**
+   * Returns the running totals for the phone calls on this bill. The summary is kept up to
+   * date as calls are added, so this does not examine any calls.
+   *
+   * @return the summary of this bill
+   */
+  public PhoneBillSummary getSummary() {
+    return this.summary;
+  }
+
+  /**
+   * Returns the phone calls that began between the given times, inclusive, sorted in the
+   * same order as {@link #getPhoneCalls()}.
+   *
+   * <p>The returned collection is a read-only, live view of this bill. Locating the start
+   * of the range takes O(log n) time and the calls are produced lazily as the view is
+   * iterated, so visiting the k matching calls costs O(log n + k). Computing the
+   * {@link Collection#size() size} of the view also requires iterating over it.
+   *
+   * @param from the earliest begin time to include
+   * @param to the latest begin time to include
+   * @return the phone calls that began on or after <code>from</code> and on or before
+   *         <code>to</code>
+   * @throws IllegalArgumentException if <code>to</code> is before <code>from</code>
+   */
+  public Collection<PhoneCall> callsBetween(LocalDateTime from, LocalDateTime to) {
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException("End of range cannot be before beginning of range");
+    }
+    return new SortedCalls(this.phoneCalls.subMap(firstCallAt(from), true, firstCallAfter(to), false));
+  }
+
+  /**
+   * Returns the phone calls that began at or after the given time as a read-only, live
+   * view of this bill.
+   *
+   * @param from the earliest begin time to include
+   * @return the phone calls that began on or after <code>from</code>
+   * @see #callsBetween(LocalDateTime, LocalDateTime)
+   */
+  public Collection<PhoneCall> callsAfter(LocalDateTime from) {
+    return new SortedCalls(this.phoneCalls.tailMap(firstCallAt(from), true));
+  }
+
+  /**
+   * Returns the phone calls that began at or before the given time as a read-only, live
+   * view of this bill.
+   *
+   * @param to the latest begin time to include
+   * @return the phone calls that began on or before <code>to</code>
+   * @see #callsBetween(LocalDateTime, LocalDateTime)
+   */
+  public Collection<PhoneCall> callsBefore(LocalDateTime to) {
+    return new SortedCalls(this.phoneCalls.headMap(firstCallAfter(to), false));
+  }
+
+  /**
+   * Returns the phone calls that were in progress at the given instant, sorted in the same
+   * order as {@link #getPhoneCalls()}. A call is in progress from its begin time through
+   * its end time, inclusive.
+   *
+   * @param instant the moment in time
+   * @return the calls that began at or before <code>instant</code> and ended at or after it
+   */
+  public List<PhoneCall> callsActiveAt(LocalDateTime instant) {
+    return this.intervals.activeAt(instant);
   }
 
+  /**
+   * Returns the phone calls that were in progress at any time during the given window,
+   * sorted in the same order as {@link #getPhoneCalls()}. Unlike
+   * {@link #callsBetween(LocalDateTime, LocalDateTime)}, this includes calls that began
+   * before the window but were still in progress when it started.
+   *
+   * @param from the beginning of the window
+   * @param to the end of the window
+   * @return the calls that began at or before <code>to</code> and ended at or after
+   *         <code>from</code>
+   * @throws IllegalArgumentException if <code>to</code> is before <code>from</code>
+   */
+  public List<PhoneCall> callsOverlapping(LocalDateTime from, LocalDateTime to) {
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException("End of range cannot be before beginning of range");
+    }
+    return this.intervals.overlapping(from, to);
+  }
 
+  /**
+   * Returns a phone call that sorts before every call that begins at the given time and
+   * after every call that begins earlier. It is only used as a key to search the map.
+   */
+  private static PhoneCall firstCallAt(LocalDateTime begin) {
+    return new PhoneCall(null, "", "", begin, begin);
+  }
+
+  /**
+   * Returns a phone call that sorts after every call that begins at or before the given
+   * time. Since no two distinct times are closer together than a nanosecond, this is the
+   * first possible call at the next representable instant.
+   */
+  private static PhoneCall firstCallAfter(LocalDateTime time) {
+    return firstCallAt(time.plusNanos(1));
+  }
+
+  /**
+   * A read-only view of the phone calls on this bill, or of a range of them, that
+   * iterates over the underlying sorted map without copying it.
+   */
+  private class SortedCalls extends AbstractCollection<PhoneCall> {
+    private final NavigableMap<PhoneCall, List<PhoneCall>> calls;
+
+    SortedCalls(NavigableMap<PhoneCall, List<PhoneCall>> calls) {
+      this.calls = calls;
+    }
+
+    @Override
+    public Iterator<PhoneCall> iterator() {
+      return new SortedCallsIterator(this.calls.entrySet().iterator());
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return this.calls.isEmpty();
+    }
+
+    @Override
+    public int size() {
+      if (this.calls == phoneCalls) {
+        return size;
+      }
+
+      int count = 0;
+      for (List<PhoneCall> ties : this.calls.values()) {
+        count += ties == null ? 1 : 1 + ties.size();
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Iterates over the entries of the sorted map, returning each key followed by
+   * any calls that compare as equal to it.
+   */
+  private static class SortedCallsIterator implements Iterator<PhoneCall> {
+    private final Iterator<Map.Entry<PhoneCall, List<PhoneCall>>> entries;
+    private Iterator<PhoneCall> ties = Collections.emptyIterator();
+
+    SortedCallsIterator(Iterator<Map.Entry<PhoneCall, List<PhoneCall>>> entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.ties.hasNext() || this.entries.hasNext();
+    }
+
+    @Override
+    public PhoneCall next() {
+      if (this.ties.hasNext()) {
+        return this.ties.next();
+      }
+      if (!this.entries.hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      Map.Entry<PhoneCall, List<PhoneCall>> entry = this.entries.next();
+      List<PhoneCall> equalCalls = entry.getValue();
+      this.ties = equalCalls == null ? Collections.emptyIterator() : equalCalls.iterator();
+      return entry.getKey();
+    }
+  }
 }
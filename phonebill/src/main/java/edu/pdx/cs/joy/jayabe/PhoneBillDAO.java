@@ -13,6 +13,8 @@ import java.sql.*;
  * sophisticated query capabilities.
  */
 public class PhoneBillDAO {
+  /** The version of the database schema that this program creates and uses */
+  static final int SCHEMA_VERSION = 3;
 
   private final Connection connection;
 
@@ -26,12 +28,89 @@ public class PhoneBillDAO {
   }
 
   /**
-   * Creates the customers and phone_calls tables in the database.
+   * Creates the tables of the database, or brings the tables of an older database up to date.
+   *
+   * <p>The database records the version of its schema in the <code>schema_version</code>
+   * table, and each version after it is reached by one migration, in order:
+   * <ol>
+   *   <li>The customers and phone_calls tables.</li>
+   *   <li>Unique constraints on customers(name) and on phone_calls(customer_id, begin,
+   *       caller, callee, "end"), so that the database itself keeps a customer or a call from
+   *       being saved twice, even by programs saving at the same time. Any duplicates already
+   *       in the tables are removed first. The index of the second constraint begins with
+   *       (customer_id, begin), so it also serves the queries for a customer's calls, in
+   *       order or in a range of begin times.</li>
+   *   <li>The converted_files table, in which {@link Converter}'s batch mode records the files
+   *       it has converted.</li>
+   * </ol>
+   * A database made before versions were recorded is at version 0; the migrations do not
+   * fail on the tables it already has.
    *
    * @param connection the database connection to use
-   * @throws SQLException if a database error occurs
+   * @throws SQLException if a database error occurs, or if the database was made by a newer
+   *         version of this program
    */
   public static void createTable(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS schema_version (version INTEGER NOT NULL)");
+    }
+
+    int version = getSchemaVersion(connection);
+    if (version > SCHEMA_VERSION) {
+      throw new SQLException("Database schema version " + version
+              + " is newer than the version this program supports (" + SCHEMA_VERSION + ")");
+    }
+
+    for (int next = version + 1; next <= SCHEMA_VERSION; next++) {
+      migrate(connection, next);
+    }
+  }
+
+  /**
+   * Returns the version of the database's schema.
+   *
+   * @param connection the database connection to use
+   * @return the version, or 0 if the database does not record one
+   * @throws SQLException if a database error occurs
+   */
+  static int getSchemaVersion(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery("SELECT MAX(version) FROM schema_version")) {
+      return resultSet.next() ? resultSet.getInt(1) : 0;
+    }
+  }
+
+  /**
+   * Migrates the database to a version from the one before it, and records the new version.
+   * H2 commits each change to the definition of a table as it is made, so the migration is
+   * only recorded after all of its changes succeed, and a migration that is interrupted is
+   * run again in full.
+   */
+  private static void migrate(Connection connection, int version) throws SQLException {
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try (Statement statement = connection.createStatement()) {
+      switch (version) {
+        case 1 -> createTables(statement);
+        case 2 -> addUniqueConstraints(statement);
+        case 3 -> createConvertedFilesTable(statement);
+        default -> throw new IllegalStateException("No migration to version " + version);
+      }
+
+      statement.executeUpdate("DELETE FROM schema_version");
+      statement.executeUpdate("INSERT INTO schema_version (version) VALUES (" + version + ")");
+      connection.commit();
+
+    } catch (SQLException | RuntimeException e) {
+      connection.rollback();
+      throw e;
+
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  private static void createTables(Statement statement) throws SQLException {
     String createCustomersTableSQL =
       "CREATE TABLE IF NOT EXISTS customers (" +
       "  id IDENTITY PRIMARY KEY," +
@@ -49,22 +128,56 @@ public class PhoneBillDAO {
       "  FOREIGN KEY (customer_id) REFERENCES customers(id)" +
       ")";
 
-    try (Statement statement = connection.createStatement()) {
-      statement.execute(createCustomersTableSQL);
-      statement.execute(createPhoneCallsTableSQL);
-    }
+    statement.execute(createCustomersTableSQL);
+    statement.execute(createPhoneCallsTableSQL);
+  }
+
+  /**
+   * Adds the unique constraints. Calls of duplicate customers are moved to the customer that
+   * was created first, and then duplicate calls are deleted, keeping the one that was saved
+   * first.
+   */
+  private static void addUniqueConstraints(Statement statement) throws SQLException {
+    statement.executeUpdate(
+      "UPDATE phone_calls p SET customer_id = (" +
+      "  SELECT MIN(c2.id) FROM customers c1 JOIN customers c2 ON c2.name = c1.name" +
+      "  WHERE c1.id = p.customer_id)");
+    statement.executeUpdate(
+      "DELETE FROM customers c WHERE EXISTS (" +
+      "  SELECT 1 FROM customers d WHERE d.name = c.name AND d.id < c.id)");
+    statement.executeUpdate(
+      "DELETE FROM phone_calls p WHERE EXISTS (" +
+      "  SELECT 1 FROM phone_calls q WHERE q.customer_id = p.customer_id AND q.caller = p.caller" +
+      "  AND q.callee = p.callee AND q.begin = p.begin AND q.\"end\" = p.\"end\" AND q.id < p.id)");
+    statement.execute(
+      "ALTER TABLE customers ADD CONSTRAINT IF NOT EXISTS customers_name_unique UNIQUE (name)");
+    statement.execute(
+      "ALTER TABLE phone_calls ADD CONSTRAINT IF NOT EXISTS phone_calls_unique " +
+      "UNIQUE (customer_id, begin, caller, callee, \"end\")");
+  }
+
+  private static void createConvertedFilesTable(Statement statement) throws SQLException {
+    String createConvertedFilesTableSQL =
+      "CREATE TABLE IF NOT EXISTS converted_files (" +
+      "  path VARCHAR(4096) PRIMARY KEY," +
+      "  length BIGINT," +
+      "  modified BIGINT," +
+      "  calls INTEGER" +
+      ")";
+
+    statement.execute(createConvertedFilesTableSQL);
   }
 
   /**
-   * Saves a PhoneBill to the database.
+   * Saves a PhoneBill's customer to the database, unless the customer is already there.
    *
    * @param bill the phone bill to save
    * @throws SQLException if a database error occurs
    */
   public void save(PhoneBill bill) throws SQLException {
-    String insertSQL = "INSERT INTO customers (name) VALUES (?)";
+    String mergeSQL = "MERGE INTO customers (name) KEY (name) VALUES (?)";
 
-    try (PreparedStatement statement = connection.prepareStatement(insertSQL)) {
+    try (PreparedStatement statement = connection.prepareStatement(mergeSQL)) {
       statement.setString(1, bill.getCustomer());
       statement.executeUpdate();
     }
@@ -0,0 +1,483 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.jdbc.H2DatabaseHelper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A small pool of connections to one phone bill database, shared by everything in the
+ * process that uses that database, so that the database is opened once rather than by every
+ * load and save.
+ *
+ * <p>{@link #forFile(File)} returns the one data source of a database file. A connection
+ * from {@link #getConnection()} is used like any other and closed when done with, which
+ * returns it to the pool; any transaction it was left in is rolled back. Each pooled
+ * connection keeps the statements prepared with {@link Connection#prepareStatement(String)}
+ * and hands the same one out again for the same SQL, so the {@link JDBCLoader},
+ * {@link JDBCDumper} and {@link PhoneBillDAO} queries are only compiled once. Closing such a
+ * statement clears its parameters and keeps it for the next use.
+ *
+ * <p>A connection is validated before it is handed out, and replaced if it is no longer
+ * usable. Connections that have been idle for longer than the idle timeout are closed in the
+ * background; once all are closed, H2 closes the database. The schema is created or brought
+ * up to date with {@link PhoneBillDAO#createTable} the first time a connection is handed out.
+ *
+ * <p>Example usage:
+ * <pre>
+ *   try (Connection connection = PhoneBillDataSource.forFile(dbFile).getConnection()) {
+ *     PhoneBill bill = new JDBCLoader(connection, customer).parse();
+ *   }
+ * </pre>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public final class PhoneBillDataSource implements Closeable {
+  /** The most connections open at once to a database */
+  static final int DEFAULT_MAX_CONNECTIONS = 4;
+  /** How long a connection may stay idle before it is closed */
+  static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  /** How long to wait for a connection when all of them are in use */
+  static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  /** The number of prepared statements kept by each connection */
+  static final int STATEMENT_CACHE_SIZE = 32;
+  /** How long validating a connection may take, in seconds */
+  private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+  /** The data source of each database file, by its absolute path */
+  private static final Map<File, PhoneBillDataSource> SHARED = new ConcurrentHashMap<>();
+  /** Closes idle connections of every data source */
+  private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "PhoneBillDataSource evictor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final File dbFile;
+  private final long idleTimeoutNanos;
+  private final long acquireTimeoutMillis;
+  private final Semaphore permits;
+  private final ScheduledFuture<?> eviction;
+
+  /** The idle connections, most recently used first; guarded by this */
+  private final Deque<PooledConnection> idle = new ArrayDeque<>();
+  private boolean schemaReady;
+  private boolean closed;
+  private int openedCount;
+
+  /**
+   * Creates a data source with the given limits, so that tests can use small ones.
+   */
+  PhoneBillDataSource(File dbFile, int maxConnections, long idleTimeoutMillis, long acquireTimeoutMillis) {
+    if (maxConnections < 1) {
+      throw new IllegalArgumentException("Maximum number of connections must be at least 1: " + maxConnections);
+    }
+    this.dbFile = dbFile;
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    this.acquireTimeoutMillis = acquireTimeoutMillis;
+    this.permits = new Semaphore(maxConnections, true);
+    long period = Math.max(1, idleTimeoutMillis / 2);
+    this.eviction = EVICTOR.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the data source of a database file, creating it if this process has not used
+   * the database before.
+   *
+   * @param dbFile the database file
+   * @return the data source shared by all users of the database in this process
+   */
+  public static PhoneBillDataSource forFile(File dbFile) {
+    File key = dbFile.getAbsoluteFile();
+    return SHARED.compute(key, (file, existing) -> existing != null && !existing.isClosed() ? existing
+            : new PhoneBillDataSource(file, DEFAULT_MAX_CONNECTIONS, DEFAULT_IDLE_TIMEOUT_MILLIS,
+                    DEFAULT_ACQUIRE_TIMEOUT_MILLIS));
+  }
+
+  /**
+   * Returns a connection from the pool, opening one if none is idle. If all of the
+   * connections are in use, waits for one to be returned.
+   *
+   * @return a connection, which must be closed to return it to the pool
+   * @throws SQLException if the database cannot be opened, or no connection becomes free in
+   *         time
+   */
+  public Connection getConnection() throws SQLException {
+    try {
+      if (!this.permits.tryAcquire(this.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new SQLException("Timed out waiting for a connection to " + this.dbFile);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection to " + this.dbFile, e);
+    }
+
+    try {
+      PooledConnection pooled = takeIdle();
+      if (pooled == null) {
+        pooled = open();
+      }
+      ensureSchema(pooled.physical);
+      return pooled.lease();
+
+    } catch (SQLException | RuntimeException e) {
+      this.permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Takes the most recently used idle connection that is still valid, closing any that are not.
+   */
+  private PooledConnection takeIdle() throws SQLException {
+    while (true) {
+      PooledConnection pooled;
+      synchronized (this) {
+        if (this.closed) {
+          throw new SQLException("Data source for " + this.dbFile + " is closed");
+        }
+        pooled = this.idle.pollFirst();
+      }
+      if (pooled == null) {
+        return null;
+      }
+      if (pooled.isValid()) {
+        return pooled;
+      }
+      pooled.closePhysical();
+    }
+  }
+
+  private PooledConnection open() throws SQLException {
+    Connection physical = H2DatabaseHelper.createFileBasedConnection(this.dbFile);
+    synchronized (this) {
+      this.openedCount++;
+    }
+    return new PooledConnection(physical);
+  }
+
+  private synchronized void ensureSchema(Connection connection) throws SQLException {
+    if (!this.schemaReady) {
+      PhoneBillDAO.createTable(connection);
+      this.schemaReady = true;
+    }
+  }
+
+  /**
+   * Takes back a connection whose lease was closed.
+   */
+  private void release(PooledConnection pooled) {
+    try {
+      boolean reusable = pooled.reset();
+      synchronized (this) {
+        if (reusable && !this.closed) {
+          pooled.lastUsed = System.nanoTime();
+          this.idle.addFirst(pooled);
+          return;
+        }
+      }
+      pooled.closePhysical();
+
+    } finally {
+      this.permits.release();
+    }
+  }
+
+  /**
+   * Closes the connections that have been idle for longer than the idle timeout.
+   */
+  void evictIdle() {
+    List<PooledConnection> expired = new ArrayList<>();
+    long now = System.nanoTime();
+    synchronized (this) {
+      while (!this.idle.isEmpty() && now - this.idle.peekLast().lastUsed >= this.idleTimeoutNanos) {
+        expired.add(this.idle.pollLast());
+      }
+    }
+    for (PooledConnection pooled : expired) {
+      pooled.closePhysical();
+    }
+  }
+
+  /**
+   * @return the number of connections that are open and not in use
+   */
+  synchronized int getIdleCount() {
+    return this.idle.size();
+  }
+
+  /**
+   * @return the number of connections that have been opened to the database
+   */
+  synchronized int getOpenedCount() {
+    return this.openedCount;
+  }
+
+  synchronized boolean isClosed() {
+    return this.closed;
+  }
+
+  /**
+   * Closes the idle connections and stops handing out new ones. Connections in use are
+   * closed when they are returned.
+   */
+  @Override
+  public void close() throws IOException {
+    List<PooledConnection> connections;
+    synchronized (this) {
+      this.closed = true;
+      connections = new ArrayList<>(this.idle);
+      this.idle.clear();
+    }
+    this.eviction.cancel(false);
+    SHARED.remove(this.dbFile.getAbsoluteFile(), this);
+    for (PooledConnection pooled : connections) {
+      pooled.closePhysical();
+    }
+  }
+
+  /**
+   * One open connection to the database and its prepared statements.
+   */
+  private class PooledConnection {
+    private final Connection physical;
+    /** The statements prepared on the connection, least recently used first */
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+        if (size() > STATEMENT_CACHE_SIZE) {
+          if (!inUse.contains(eldest.getValue())) {
+            closeQuietly(eldest.getValue());
+          }
+          return true;
+        }
+        return false;
+      }
+    };
+    /** The cached statements that are prepared for a caller and not yet closed */
+    private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long lastUsed;
+
+    PooledConnection(Connection physical) {
+      this.physical = physical;
+    }
+
+    boolean isValid() {
+      try {
+        return !this.physical.isClosed() && this.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+
+    /**
+     * Returns a connection that delegates to this one until it is closed.
+     */
+    Connection lease() {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+              new Class<?>[] {Connection.class}, new LeaseHandler(this));
+    }
+
+    /**
+     * Returns the cached statement for some SQL, preparing it if there is none. If the cached
+     * statement is already in use, a statement that is not cached is prepared instead.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+      PreparedStatement statement = this.statements.get(sql);
+      if (statement != null && (this.inUse.contains(statement) || statement.isClosed())) {
+        return statement.isClosed() ? cache(sql) : this.physical.prepareStatement(sql);
+      }
+      if (statement == null) {
+        return cache(sql);
+      }
+      this.inUse.add(statement);
+      return statementProxy(sql, statement);
+    }
+
+    private PreparedStatement cache(String sql) throws SQLException {
+      PreparedStatement statement = this.physical.prepareStatement(sql);
+      this.inUse.add(statement);
+      this.statements.put(sql, statement);
+      return statementProxy(sql, statement);
+    }
+
+    private PreparedStatement statementProxy(String sql, PreparedStatement statement) {
+      return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+              new Class<?>[] {PreparedStatement.class}, new StatementHandler(this, sql, statement));
+    }
+
+    /**
+     * Returns a statement to the cache, or closes it if it has since been dropped from the
+     * cache.
+     */
+    void returnStatement(String sql, PreparedStatement statement) throws SQLException {
+      this.inUse.remove(statement);
+      if (this.statements.get(sql) != statement) {
+        statement.close();
+        return;
+      }
+      statement.clearParameters();
+      statement.clearBatch();
+    }
+
+    /**
+     * Readies the connection for its next use, rolling back anything left uncommitted.
+     *
+     * @return whether the connection can be used again
+     */
+    boolean reset() {
+      try {
+        if (this.physical.isClosed()) {
+          return false;
+        }
+        if (!this.physical.getAutoCommit()) {
+          this.physical.rollback();
+          this.physical.setAutoCommit(true);
+        }
+        this.physical.clearWarnings();
+        for (PreparedStatement statement : this.inUse) {
+          closeQuietly(statement);
+        }
+        this.statements.values().removeAll(this.inUse);
+        this.inUse.clear();
+        return true;
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+
+    void closePhysical() {
+      for (PreparedStatement statement : this.statements.values()) {
+        closeQuietly(statement);
+      }
+      this.statements.clear();
+      try {
+        this.physical.close();
+      } catch (SQLException e) {
+        // The connection is being discarded, so there is nothing more to do with it
+      }
+    }
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // The statement is being discarded, so there is nothing more to do with it
+    }
+  }
+
+  /**
+   * Handles the methods of a leased connection: closing it returns it to the pool, and
+   * statements prepared from SQL alone come from the cache.
+   */
+  private class LeaseHandler implements InvocationHandler {
+    private final PooledConnection pooled;
+    private boolean closed;
+
+    LeaseHandler(PooledConnection pooled) {
+      this.pooled = pooled;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close" -> {
+          if (!this.closed) {
+            this.closed = true;
+            release(this.pooled);
+          }
+          return null;
+        }
+        case "isClosed" -> {
+          return this.closed || this.pooled.physical.isClosed();
+        }
+        case "toString" -> {
+          return "Pooled connection to " + dbFile;
+        }
+        case "hashCode" -> {
+          return System.identityHashCode(proxy);
+        }
+        case "equals" -> {
+          return proxy == args[0];
+        }
+        default -> {
+          // Handled below
+        }
+      }
+
+      if (this.closed) {
+        throw new SQLException("Connection is closed");
+      }
+      if (method.getName().equals("prepareStatement") && args.length == 1) {
+        return this.pooled.prepare((String) args[0]);
+      }
+      return invokeOn(this.pooled.physical, method, args);
+    }
+  }
+
+  /**
+   * Handles the methods of a cached statement: closing it returns it to the cache.
+   */
+  private static class StatementHandler implements InvocationHandler {
+    private final PooledConnection pooled;
+    private final String sql;
+    private final PreparedStatement statement;
+    private boolean closed;
+
+    StatementHandler(PooledConnection pooled, String sql, PreparedStatement statement) {
+      this.pooled = pooled;
+      this.sql = sql;
+      this.statement = statement;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close" -> {
+          if (!this.closed) {
+            this.closed = true;
+            this.pooled.returnStatement(this.sql, this.statement);
+          }
+          return null;
+        }
+        case "isClosed" -> {
+          return this.closed || this.statement.isClosed();
+        }
+        case "hashCode" -> {
+          return System.identityHashCode(proxy);
+        }
+        case "equals" -> {
+          return proxy == args[0];
+        }
+        default -> {
+          // Handled below
+        }
+      }
+
+      if (this.closed) {
+        throw new SQLException("Statement is closed");
+      }
+      return invokeOn(this.statement, method, args);
+    }
+  }
+
+  private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
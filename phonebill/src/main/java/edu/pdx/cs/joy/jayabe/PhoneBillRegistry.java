@@ -0,0 +1,209 @@
+package edu.pdx.cs.joy.jayabe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The <code>PhoneBillRegistry</code> class holds the {@link PhoneBill}s of many customers and
+ * lets many threads add phone calls to them at the same time.
+ *
+ * <p>A <code>PhoneBill</code> is not thread-safe, so each bill is guarded by a lock. Rather
+ * than one lock per customer, the registry uses a fixed number of lock "stripes" and each
+ * customer's name is hashed to one of them. Threads adding calls for customers on different
+ * stripes never wait for each other, which lets ingestion use every core while keeping the
+ * number of locks small even with tens of thousands of customers.
+ *
+ * <p>{@link #snapshot()} briefly takes every stripe, only long enough to copy each bill's
+ * already sorted calls into a list, so the bills it returns reflect exactly the calls that had
+ * been added when it was called. The bills themselves are built from those lists after the
+ * stripes are released, while other threads continue to add calls to the registry.
+ *
+ * <p>Example usage:
+ * <pre>
+ *   PhoneBillRegistry registry = new PhoneBillRegistry();
+ *   // From any number of threads:
+ *   registry.addPhoneCall(call);
+ *   // Later:
+ *   for (PhoneBill bill : registry.snapshot().values()) {
+ *     new TextDumper(writer).dump(bill);
+ *   }
+ * </pre>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public class PhoneBillRegistry {
+  /** The number of lock stripes used when none is given */
+  private static final int DEFAULT_STRIPES = 64;
+
+  /** Each customer's phone bill, keyed by customer name */
+  private final ConcurrentHashMap<String, PhoneBill> bills = new ConcurrentHashMap<>();
+  /** The locks that guard the bills; a customer's bill is guarded by one of them */
+  private final ReentrantLock[] stripes;
+
+  /**
+   * Creates a new, empty registry with the default number of lock stripes.
+   */
+  public PhoneBillRegistry() {
+    this(DEFAULT_STRIPES);
+  }
+
+  /**
+   * Creates a new, empty registry. The number of stripes is rounded up to a power of two.
+   * More stripes mean fewer threads waiting on each other, at the cost of a slower
+   * {@link #snapshot()}.
+   *
+   * @param stripes the number of locks to guard the bills with
+   * @throws IllegalArgumentException if <code>stripes</code> is not positive
+   */
+  public PhoneBillRegistry(int stripes) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("Number of lock stripes must be positive: " + stripes);
+    }
+    int count = Integer.highestOneBit(stripes);
+    if (count < stripes) {
+      count <<= 1;
+    }
+
+    this.stripes = new ReentrantLock[count];
+    for (int i = 0; i < count; i++) {
+      this.stripes[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Adds a phone call to the bill of the call's customer, creating the bill if this is the
+   * customer's first call. This method may be called from many threads at once.
+   *
+   * @param call the phone call to add
+   */
+  public void addPhoneCall(PhoneCall call) {
+    addPhoneCall(call.getCustomer(), call);
+  }
+
+  /**
+   * Adds a phone call to the given customer's bill, creating the bill if this is the
+   * customer's first call. This method may be called from many threads at once.
+   *
+   * @param customer the name of the customer whose bill the call is added to
+   * @param call the phone call to add
+   */
+  public void addPhoneCall(String customer, PhoneCall call) {
+    ReentrantLock lock = stripeFor(customer);
+    lock.lock();
+    try {
+      this.bills.computeIfAbsent(customer, PhoneBill::new).addPhoneCall(call);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the names of the customers that have a bill in this registry. The returned set
+   * is a read-only view that reflects customers added later.
+   *
+   * @return the customers' names
+   */
+  public Set<String> getCustomers() {
+    return Collections.unmodifiableSet(this.bills.keySet());
+  }
+
+  /**
+   * @return the number of customers that have a bill in this registry
+   */
+  public int size() {
+    return this.bills.size();
+  }
+
+  /**
+   * Returns a copy of one customer's bill as it is right now.
+   *
+   * @param customer the name of the customer
+   * @return a copy of the customer's bill, or <code>null</code> if the customer has no bill
+   */
+  public PhoneBill snapshot(String customer) {
+    CallsOf calls;
+    ReentrantLock lock = stripeFor(customer);
+    lock.lock();
+    try {
+      PhoneBill bill = this.bills.get(customer);
+      if (bill == null) {
+        return null;
+      }
+      calls = new CallsOf(bill);
+    } finally {
+      lock.unlock();
+    }
+    return copyOf(calls.customer, calls.rejectDuplicates, calls.calls);
+  }
+
+  /**
+   * Returns a copy of every bill in this registry, sorted by customer name. All of the
+   * stripes are held while each bill's calls are copied into a list, so the copies are
+   * consistent with each other: no call added by another thread appears in one bill but not
+   * in an earlier one. The bills are built from the lists once the stripes are released.
+   *
+   * @return a copy of every customer's bill, keyed by customer name
+   */
+  public SortedMap<String, PhoneBill> snapshot() {
+    List<CallsOf> captured = new ArrayList<>(this.bills.size());
+    for (ReentrantLock stripe : this.stripes) {
+      stripe.lock();
+    }
+    try {
+      for (PhoneBill bill : this.bills.values()) {
+        captured.add(new CallsOf(bill));
+      }
+    } finally {
+      for (int i = this.stripes.length - 1; i >= 0; i--) {
+        this.stripes[i].unlock();
+      }
+    }
+
+    SortedMap<String, PhoneBill> copies = new TreeMap<>();
+    for (CallsOf calls : captured) {
+      copies.put(calls.customer, copyOf(calls.customer, calls.rejectDuplicates, calls.calls));
+    }
+    return copies;
+  }
+
+  private ReentrantLock stripeFor(String customer) {
+    int hash = customer.hashCode();
+    hash ^= hash >>> 16;
+    return this.stripes[hash & (this.stripes.length - 1)];
+  }
+
+  /**
+   * Builds a copy of a bill from the calls captured from it. This is called without holding
+   * any stripe.
+   */
+  PhoneBill copyOf(String customer, boolean rejectDuplicates, List<PhoneCall> calls) {
+    PhoneBill copy = new PhoneBill(customer, rejectDuplicates);
+    for (PhoneCall call : calls) {
+      copy.addPhoneCall(call);
+    }
+    return copy;
+  }
+
+  /**
+   * What is needed to copy a bill, captured while its stripe is held: its customer, whether
+   * it rejects duplicates, and a flat copy of its calls in sorted order.
+   */
+  private static class CallsOf {
+    final String customer;
+    final boolean rejectDuplicates;
+    final List<PhoneCall> calls;
+
+    CallsOf(PhoneBill bill) {
+      this.customer = bill.getCustomer();
+      this.rejectDuplicates = bill.isRejectingDuplicates();
+      this.calls = new ArrayList<>(bill.getPhoneCalls());
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.AbstractPhoneBill;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The <code>PhoneBillSummary</code> class keeps running totals for the phone calls on a bill:
+ * how many calls there are, how many minutes they last in all, the longest call, the first
+ * and last calls, and how many minutes of calls began on each day.
+ *
+ * <p>A {@link PhoneBill} updates its summary in constant time as each call is added (plus a
+ * logarithmic update of the per-day totals), so a statement can be produced without
+ * scanning the bill again. Use {@link #of(AbstractPhoneBill)} to get the summary of any
+ * phone bill.
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public class PhoneBillSummary {
+  /** The number of calls */
+  private int callCount;
+  /** The total duration of all calls in minutes */
+  private long totalMinutes;
+  /** The call with the longest duration, or null if there are no calls */
+  private PhoneCall longestCall;
+  /** The duration of the longest call in minutes */
+  private long longestCallMinutes;
+  /** The first call in sorted order, or null if there are no calls */
+  private PhoneCall firstCall;
+  /** The last call in sorted order, or null if there are no calls */
+  private PhoneCall lastCall;
+  /** The total duration of the calls that began on each day */
+  private final SortedMap<LocalDate, Long> minutesPerDay = new TreeMap<>();
+
+  /**
+   * Creates a summary of no phone calls.
+   */
+  PhoneBillSummary() {
+  }
+
+  /**
+   * Returns the summary of the given phone bill. A {@link PhoneBill} already keeps its
+   * summary up to date; the summary of any other kind of bill is computed by examining each
+   * of its calls.
+   *
+   * @param bill the phone bill to summarize
+   * @return the summary of the bill's phone calls
+   */
+  public static PhoneBillSummary of(AbstractPhoneBill<PhoneCall> bill) {
+    if (bill instanceof PhoneBill phoneBill) {
+      return phoneBill.getSummary();
+    }
+
+    return of(bill.getPhoneCalls());
+  }
+
+  /**
+   * Computes the summary of a sequence of phone calls by examining each of them once. The
+   * calls need not be sorted or held in memory, so this can summarize a
+   * {@link TextParser#stream()} of any size.
+   *
+   * @param calls the phone calls to summarize
+   * @return the summary of the phone calls
+   */
+  public static PhoneBillSummary of(Iterable<? extends PhoneCall> calls) {
+    PhoneBillSummary summary = new PhoneBillSummary();
+    for (PhoneCall call : calls) {
+      summary.add(call);
+    }
+    return summary;
+  }
+
+  /**
+   * Includes a phone call in this summary.
+   *
+   * @param call the call to add
+   */
+  void add(PhoneCall call) {
+    long minutes = durationInMinutes(call);
+    this.callCount++;
+    this.totalMinutes += minutes;
+    this.minutesPerDay.merge(call.getBeginTime().toLocalDate(), minutes, Long::sum);
+
+    if (this.longestCall == null || minutes > this.longestCallMinutes) {
+      this.longestCall = call;
+      this.longestCallMinutes = minutes;
+    }
+    if (this.firstCall == null || call.compareTo(this.firstCall) < 0) {
+      this.firstCall = call;
+    }
+    if (this.lastCall == null || call.compareTo(this.lastCall) >= 0) {
+      this.lastCall = call;
+    }
+  }
+
+  /**
+   * Returns the duration of a phone call in whole minutes.
+   *
+   * @param call the phone call
+   * @return the number of minutes between the call's begin and end times
+   */
+  public static long durationInMinutes(PhoneCall call) {
+    return ChronoUnit.MINUTES.between(call.getBeginTime(), call.getEndTime());
+  }
+
+  /**
+   * @return the number of phone calls
+   */
+  public int getCallCount() {
+    return this.callCount;
+  }
+
+  /**
+   * @return the total duration of all phone calls in minutes
+   */
+  public long getTotalMinutes() {
+    return this.totalMinutes;
+  }
+
+  /**
+   * @return the phone call with the longest duration, or <code>null</code> if there are no
+   *         calls. If several calls are equally long, the first one added is returned.
+   */
+  public PhoneCall getLongestCall() {
+    return this.longestCall;
+  }
+
+  /**
+   * @return the duration of the longest phone call in minutes, or 0 if there are no calls
+   */
+  public long getLongestCallMinutes() {
+    return this.longestCallMinutes;
+  }
+
+  /**
+   * @return the earliest phone call in sorted order, or <code>null</code> if there are no calls
+   */
+  public PhoneCall getFirstCall() {
+    return this.firstCall;
+  }
+
+  /**
+   * @return the latest phone call in sorted order, or <code>null</code> if there are no calls
+   */
+  public PhoneCall getLastCall() {
+    return this.lastCall;
+  }
+
+  /**
+   * Returns the total duration, in minutes, of the phone calls that began on each day. The
+   * returned map is a read-only view that is sorted by date.
+   *
+   * @return the minutes of calls for each day on which a call began
+   */
+  public SortedMap<LocalDate, Long> getMinutesPerDay() {
+    return Collections.unmodifiableSortedMap(this.minutesPerDay);
+  }
+}
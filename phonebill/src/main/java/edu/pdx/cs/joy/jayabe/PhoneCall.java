@@ -5,6 +5,7 @@ import edu.pdx.cs.joy.AbstractPhoneCall;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.util.Objects;
 
 /**
  * The <code>PhoneCall</code> class represents a single phone call between two parties.
@@ -15,6 +16,13 @@ import java.time.format.FormatStyle;
  * The class stores date and time information as {@link LocalDateTime} objects and
  * provides formatted string representations using a standardized date-time format.
  *
+ * <p>Phone numbers formatted as <code>nnn-nnn-nnnn</code> are stored packed into a
+ * <code>long</code> by {@link PhoneNumber}, and are only formatted as strings when
+ * {@link #getCaller()} or {@link #getCallee()} is called. Calls are compared by their packed
+ * numbers, which orders them the same way as their formatted strings. A number that is not
+ * formatted that way is kept as the string it was given, so that whatever saves the call can
+ * report it.
+ *
  * <p>Example usage:
  * <pre>
  *   LocalDateTime start = LocalDateTime.of(2025, 1, 15, 10, 30);
@@ -29,17 +37,28 @@ import java.time.format.FormatStyle;
  */
 public class PhoneCall extends AbstractPhoneCall implements Comparable<PhoneCall> {
   /**
-   * The name of the customer involved in this phone call.
+   * The name of the customer involved in this phone call. The parsers and loaders pass every
+   * call of a bill the bill's own instance of the name, so this is a reference, not a copy.
    */
   private final String customer;
   /**
-   * The phone number of the person who initiated the call.
+   * The packed phone number of the person who initiated the call, or <code>-1</code> if it
+   * is not formatted as nnn-nnn-nnnn.
+   */
+  private final long caller;
+  /**
+   * The packed phone number of the person who received the call, or <code>-1</code> if it
+   * is not formatted as nnn-nnn-nnnn.
    */
-  private final String callerNumber;
+  private final long callee;
   /**
-   * The phone number of the person who received the call.
+   * The caller's phone number as it was given, only if it could not be packed.
    */
-  private final String calleeNumber;
+  private final String invalidCaller;
+  /**
+   * The callee's phone number as it was given, only if it could not be packed.
+   */
+  private final String invalidCallee;
   /**
    * The date and time when the phone call began.
    */
@@ -61,12 +80,45 @@ public class PhoneCall extends AbstractPhoneCall implements Comparable<PhoneCall
    */
   public PhoneCall(String customer, String callerNumber, String calleeNumber, LocalDateTime begin, LocalDateTime end) {
     this.customer = customer;
-    this.callerNumber = callerNumber;
-    this.calleeNumber = calleeNumber;
+    this.caller = tryPack(callerNumber);
+    this.callee = tryPack(calleeNumber);
+    this.invalidCaller = this.caller < 0 ? callerNumber : null;
+    this.invalidCallee = this.callee < 0 ? calleeNumber : null;
     this.begin = begin;
     this.end = end;
   }
 
+  /**
+   * Creates a new phone call between two {@link PhoneNumber}s
+   * @param customer The customer making the call
+   * @param caller The phone number of the person initiating the call
+   * @param callee The phone number of the person receiving the call
+   * @param begin The date and time when the call began
+   * @param end The date and time when the call ended
+   */
+  public PhoneCall(String customer, PhoneNumber caller, PhoneNumber callee, LocalDateTime begin, LocalDateTime end) {
+    this(customer, caller.toLong(), callee.toLong(), begin, end);
+  }
+
+  /**
+   * Creates a new phone call between two numbers that have already been packed by
+   * {@link PhoneNumber}, so that a parser does not have to format them only for them to be
+   * packed again.
+   */
+  PhoneCall(String customer, long caller, long callee, LocalDateTime begin, LocalDateTime end) {
+    this.customer = customer;
+    this.caller = caller;
+    this.callee = callee;
+    this.invalidCaller = null;
+    this.invalidCallee = null;
+    this.begin = begin;
+    this.end = end;
+  }
+
+  private static long tryPack(String number) {
+    return number == null ? -1 : PhoneNumber.tryPack(number, 0, number.length());
+  }
+
   /**
    * Returns the customer name for this phone call.
    * 
@@ -82,7 +134,7 @@ public class PhoneCall extends AbstractPhoneCall implements Comparable<PhoneCall
    */
   @Override
   public String getCaller() {
-    return this.callerNumber;
+    return this.caller < 0 ? this.invalidCaller : PhoneNumber.format(this.caller);
   }
 
   /**
@@ -91,7 +143,52 @@ public class PhoneCall extends AbstractPhoneCall implements Comparable<PhoneCall
    */
   @Override
   public String getCallee() {
-    return this.calleeNumber;
+    return this.callee < 0 ? this.invalidCallee : PhoneNumber.format(this.callee);
+  }
+
+  /**
+   * Returns the phone number of the person who initiated this call as a {@link PhoneNumber}
+   * @return The caller's phone number
+   * @throws IllegalArgumentException if the caller's number is not formatted as nnn-nnn-nnnn
+   */
+  public PhoneNumber getCallerNumber() {
+    return this.caller < 0 ? PhoneNumber.parse(this.invalidCaller) : PhoneNumber.of(this.caller);
+  }
+
+  /**
+   * Returns the phone number of the person who received this call as a {@link PhoneNumber}
+   * @return The callee's phone number
+   * @throws IllegalArgumentException if the callee's number is not formatted as nnn-nnn-nnnn
+   */
+  public PhoneNumber getCalleeNumber() {
+    return this.callee < 0 ? PhoneNumber.parse(this.invalidCallee) : PhoneNumber.of(this.callee);
+  }
+
+  /**
+   * @return the caller's packed phone number, or <code>-1</code> if it is not formatted as
+   *         nnn-nnn-nnnn
+   */
+  long getPackedCaller() {
+    return this.caller;
+  }
+
+  /**
+   * @return the callee's packed phone number, or <code>-1</code> if it is not formatted as
+   *         nnn-nnn-nnnn
+   */
+  long getPackedCallee() {
+    return this.callee;
+  }
+
+  /**
+   * Returns whether or not this call has the same callee as another call, without
+   * formatting either number.
+   *
+   * @param other the call to compare with
+   * @return <code>true</code> if the callees' phone numbers are equal
+   */
+  boolean hasSameCallee(PhoneCall other) {
+    return this.callee == other.callee && Objects.equals(this.invalidCallee, other.invalidCallee);
   }
 
   @Override
@@ -137,7 +234,12 @@ public class PhoneCall extends AbstractPhoneCall implements Comparable<PhoneCall
       return beginComparison;
     }
     
-    // If begin times are equal, compare by caller phone number
-    return this.callerNumber.compareTo(other.callerNumber);
+    // If begin times are equal, compare by caller phone number. Packed numbers compare the
+    // same way as their formatted strings, which are only needed for a number that is not
+    // formatted as nnn-nnn-nnnn.
+    if (this.caller >= 0 && other.caller >= 0) {
+      return Long.compare(this.caller, other.caller);
+    }
+    return getCaller().compareTo(other.getCaller());
   }
 }
\ No newline at end of file
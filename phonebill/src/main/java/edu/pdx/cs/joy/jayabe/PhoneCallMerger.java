@@ -0,0 +1,173 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.AbstractPhoneBill;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * The <code>PhoneCallMerger</code> class merges several sequences of phone calls, each
+ * already sorted by {@link PhoneCall#compareTo(PhoneCall)}, into one sorted sequence.
+ *
+ * <p>The merger keeps only the next call of each source in a heap, so merging
+ * <code>k</code> sources needs memory proportional to <code>k</code> no matter how many
+ * calls they contain, and each call costs <code>O(log k)</code> comparisons. Calls that
+ * compare as equal are returned in the order of their sources, so merging is stable.
+ *
+ * <p>If duplicates are dropped, a call that has the same caller, callee, begin time and end
+ * time as a call already returned is skipped. Such calls are always next to each other in
+ * the merged order, so only the run of calls with the current begin time and caller is
+ * remembered.
+ *
+ * <p>Example usage:
+ * <pre>
+ *   PhoneCallMerger merger = PhoneCallMerger.of(List.of(billA, billB), true);
+ *   new TextDumper(writer).dump(customer, () -&gt; merger);
+ * </pre>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public class PhoneCallMerger implements Iterator<PhoneCall> {
+  /** The next call of each source that still has calls, smallest first */
+  private final PriorityQueue<Head> heads;
+  /** Whether calls that duplicate one already returned are skipped */
+  private final boolean dropDuplicates;
+  /** The calls returned so far that compare as equal to the most recent one */
+  private final List<PhoneCall> currentRun = new ArrayList<>();
+  /** The next call to return, or null if it has not been found yet */
+  private PhoneCall next;
+  /** The number of duplicate calls skipped so far */
+  private int droppedDuplicates;
+
+  /**
+   * Creates a merger of the given sources. Each source must return its calls in sorted
+   * order.
+   *
+   * @param sources the sorted sources of phone calls
+   * @param dropDuplicates whether to skip calls that duplicate a call already returned
+   */
+  public PhoneCallMerger(List<? extends Iterator<PhoneCall>> sources, boolean dropDuplicates) {
+    this.heads = new PriorityQueue<>(Math.max(1, sources.size()));
+    this.dropDuplicates = dropDuplicates;
+    for (int i = 0; i < sources.size(); i++) {
+      Iterator<PhoneCall> source = sources.get(i);
+      if (source.hasNext()) {
+        this.heads.add(new Head(i, source, source.next()));
+      }
+    }
+  }
+
+  /**
+   * Creates a merger of the calls on the given phone bills.
+   *
+   * @param bills the phone bills to merge
+   * @param dropDuplicates whether to skip calls that duplicate a call already returned
+   * @return a merger of the bills' calls
+   */
+  public static PhoneCallMerger of(Collection<? extends AbstractPhoneBill<PhoneCall>> bills,
+                                   boolean dropDuplicates) {
+    List<Iterator<PhoneCall>> sources = new ArrayList<>(bills.size());
+    for (AbstractPhoneBill<PhoneCall> bill : bills) {
+      sources.add(bill.getPhoneCalls().iterator());
+    }
+    return new PhoneCallMerger(sources, dropDuplicates);
+  }
+
+  /**
+   * @throws IllegalArgumentException if a source returns a call that sorts before its
+   *         previous call
+   */
+  @Override
+  public boolean hasNext() {
+    while (this.next == null && !this.heads.isEmpty()) {
+      PhoneCall call = advance();
+      if (this.dropDuplicates && isDuplicate(call)) {
+        this.droppedDuplicates++;
+      } else {
+        this.next = call;
+      }
+    }
+    return this.next != null;
+  }
+
+  /**
+   * @throws IllegalArgumentException if a source returns a call that sorts before its
+   *         previous call
+   */
+  @Override
+  public PhoneCall next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    PhoneCall call = this.next;
+    this.next = null;
+    return call;
+  }
+
+  /**
+   * @return the number of duplicate calls that have been skipped so far
+   */
+  public int getDroppedDuplicateCount() {
+    return this.droppedDuplicates;
+  }
+
+  /**
+   * Removes the smallest call from the heap and replaces it with the next call from the
+   * same source.
+   */
+  private PhoneCall advance() {
+    Head head = this.heads.poll();
+    PhoneCall call = head.call;
+    if (head.source.hasNext()) {
+      PhoneCall following = head.source.next();
+      if (following.compareTo(call) < 0) {
+        throw new IllegalArgumentException("Phone calls of source " + head.index
+                + " are not sorted: " + following + " follows " + call);
+      }
+      head.call = following;
+      this.heads.add(head);
+    }
+    return call;
+  }
+
+  private boolean isDuplicate(PhoneCall call) {
+    if (!this.currentRun.isEmpty() && this.currentRun.get(0).compareTo(call) != 0) {
+      this.currentRun.clear();
+    }
+    for (PhoneCall previous : this.currentRun) {
+      if (previous.hasSameCallee(call)
+              && previous.getEndTime().equals(call.getEndTime())) {
+        return true;
+      }
+    }
+    this.currentRun.add(call);
+    return false;
+  }
+
+  /**
+   * The next call of one source. Heads are ordered by their calls and then by the position
+   * of their sources, which keeps the merge stable.
+   */
+  private static class Head implements Comparable<Head> {
+    private final int index;
+    private final Iterator<PhoneCall> source;
+    private PhoneCall call;
+
+    Head(int index, Iterator<PhoneCall> source, PhoneCall call) {
+      this.index = index;
+      this.source = source;
+      this.call = call;
+    }
+
+    @Override
+    public int compareTo(Head other) {
+      int comparison = this.call.compareTo(other.call);
+      return comparison != 0 ? comparison : Integer.compare(this.index, other.index);
+    }
+  }
+}
@@ -0,0 +1,327 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.AbstractPhoneBill;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The <code>PhoneCallTable</code> class is a phone bill for a single customer that stores its
+ * phone calls in columns of primitive values instead of as {@link PhoneCall} objects.
+ *
+ * <p>Each call takes four <code>long</code>s: the caller and callee phone numbers packed into
+ * their ten digits, and the begin and end times as minutes since the epoch. That is 32 bytes
+ * per call, compared to the several hundred bytes used by a <code>PhoneCall</code> with its
+ * strings and {@link LocalDateTime}s, which lets very large bills fit in memory.
+ *
+ * <p>{@link PhoneCall} objects are only created when they are asked for, for instance while
+ * iterating over {@link #getPhoneCalls()}, and are not retained by the table. So a table can
+ * be written with {@link TextDumper} or {@link PrettyPrinter} just like a {@link PhoneBill}.
+ * Calls are returned in the same order as {@link PhoneCall#compareTo(PhoneCall)}. Calls that
+ * compare as equal keep the order in which they were added.
+ *
+ * <p>Because of the compact representation, every phone number must be formatted as
+ * <code>nnn-nnn-nnnn</code>, and begin and end times must be whole minutes.
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public class PhoneCallTable extends AbstractPhoneBill<PhoneCall> {
+  /** The number of calls a table has room for when no capacity is given */
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** The name of the customer, shared by every call returned from this table */
+  private final String customer;
+  /** The caller's phone number of each call, packed by {@link PhoneNumber#pack(CharSequence)} */
+  private long[] callers;
+  /** The callee's phone number of each call, packed by {@link PhoneNumber#pack(CharSequence)} */
+  private long[] callees;
+  /** The begin time of each call, in minutes since the epoch */
+  private long[] beginMinutes;
+  /** The end time of each call, in minutes since the epoch */
+  private long[] endMinutes;
+  /** The number of calls in this table */
+  private int size;
+  /** Whether or not the rows are currently in sorted order */
+  private boolean sorted = true;
+  /** The number of times the rows have been added to or reordered */
+  private int modCount;
+  /** A read-only, sorted view of all of the phone calls in this table */
+  private final Collection<PhoneCall> sortedView = new SortedRows();
+
+  /**
+   * Creates a new, empty <code>PhoneCallTable</code> for the given customer.
+   *
+   * @param customer the name of the customer for this phone bill
+   */
+  public PhoneCallTable(String customer) {
+    this(customer, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new, empty <code>PhoneCallTable</code> for the given customer with room for
+   * the given number of calls before its columns have to grow.
+   *
+   * @param customer the name of the customer for this phone bill
+   * @param initialCapacity the number of calls to allocate room for
+   * @throws IllegalArgumentException if <code>initialCapacity</code> is negative
+   */
+  public PhoneCallTable(String customer, int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Initial capacity cannot be negative: " + initialCapacity);
+    }
+    this.customer = customer;
+    this.callers = new long[initialCapacity];
+    this.callees = new long[initialCapacity];
+    this.beginMinutes = new long[initialCapacity];
+    this.endMinutes = new long[initialCapacity];
+  }
+
+  @Override
+  public String getCustomer() {
+    return this.customer;
+  }
+
+  /**
+   * Adds a phone call to this table. Only the call's phone numbers and times are stored;
+   * the <code>PhoneCall</code> object itself is not retained.
+   *
+   * @param call the phone call to add
+   * @throws IllegalArgumentException if a phone number is not formatted as nnn-nnn-nnnn or
+   *         a time is not a whole minute
+   */
+  @Override
+  public void addPhoneCall(PhoneCall call) {
+    addRow(packed(call.getPackedCaller(), call.getCaller()), packed(call.getPackedCallee(), call.getCallee()),
+            toEpochMinute(call.getBeginTime()), toEpochMinute(call.getEndTime()));
+  }
+
+  /**
+   * Adds a call that has already been encoded into columns.
+   *
+   * @param caller the caller's packed phone number
+   * @param callee the callee's packed phone number
+   * @param begin the begin time in minutes since the epoch
+   * @param end the end time in minutes since the epoch
+   */
+  void addRow(long caller, long callee, long begin, long end) {
+    if (this.size == this.callers.length) {
+      grow();
+    }
+
+    int row = this.size;
+    this.callers[row] = caller;
+    this.callees[row] = callee;
+    this.beginMinutes[row] = begin;
+    this.endMinutes[row] = end;
+    if (this.sorted && row > 0 && compareRows(row - 1, row) > 0) {
+      this.sorted = false;
+    }
+    this.size++;
+    this.modCount++;
+  }
+
+  /**
+   * Returns all of the phone calls in this table, sorted chronologically by begin time and
+   * then by caller phone number. The returned collection is a read-only view that creates a
+   * new <code>PhoneCall</code> for each row as it is iterated.
+   *
+   * <p>If calls were added out of order, the rows are sorted in place first.
+   *
+   * @return the phone calls in sorted order
+   */
+  @Override
+  public Collection<PhoneCall> getPhoneCalls() {
+    return this.sortedView;
+  }
+
+  /**
+   * Returns the number of calls in this table.
+   *
+   * @return the number of calls
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the phone call at the given position in sorted order.
+   *
+   * @param index the position of the call
+   * @return a new <code>PhoneCall</code> with the contents of that row
+   * @throws IndexOutOfBoundsException if there is no call at that position
+   */
+  public PhoneCall getPhoneCall(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + this.size);
+    }
+    ensureSorted();
+    return toPhoneCall(index);
+  }
+
+  /**
+   * Shrinks the columns of this table so that they hold exactly the calls that are in it.
+   * This is useful once a large bill has been completely loaded.
+   */
+  public void trimToSize() {
+    if (this.size < this.callers.length) {
+      resize(this.size);
+    }
+  }
+
+  private static long packed(long packed, String phoneNumber) {
+    if (packed < 0) {
+      throw new IllegalArgumentException("Invalid phone number: " + phoneNumber + " (expected nnn-nnn-nnnn)");
+    }
+    return packed;
+  }
+
+  private PhoneCall toPhoneCall(int row) {
+    return new PhoneCall(this.customer, this.callers[row], this.callees[row],
+            fromEpochMinute(this.beginMinutes[row]), fromEpochMinute(this.endMinutes[row]));
+  }
+
+  /**
+   * Compares two rows the same way that {@link PhoneCall#compareTo(PhoneCall)} compares
+   * calls. Because every packed number has exactly ten digits, comparing the packed values
+   * gives the same order as comparing the formatted strings.
+   */
+  private int compareRows(int row1, int row2) {
+    int comparison = Long.compare(this.beginMinutes[row1], this.beginMinutes[row2]);
+    if (comparison != 0) {
+      return comparison;
+    }
+    return Long.compare(this.callers[row1], this.callers[row2]);
+  }
+
+  /**
+   * Sorts the rows if calls were added out of order. Rows are sorted by a stable merge sort
+   * of their indexes, and then every column is rearranged to match.
+   */
+  private void ensureSorted() {
+    if (this.sorted) {
+      return;
+    }
+
+    int[] order = new int[this.size];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    mergeSort(order, new int[order.length], 0, order.length);
+
+    this.callers = permute(this.callers, order);
+    this.callees = permute(this.callees, order);
+    this.beginMinutes = permute(this.beginMinutes, order);
+    this.endMinutes = permute(this.endMinutes, order);
+    this.sorted = true;
+    this.modCount++;
+  }
+
+  /**
+   * Sorts <code>order[from, to)</code> by the rows it refers to, using
+   * <code>scratch</code> as temporary space.
+   */
+  private void mergeSort(int[] order, int[] scratch, int from, int to) {
+    if (to - from < 2) {
+      return;
+    }
+
+    int middle = (from + to) >>> 1;
+    mergeSort(order, scratch, from, middle);
+    mergeSort(order, scratch, middle, to);
+    if (compareRows(order[middle - 1], order[middle]) <= 0) {
+      return;
+    }
+
+    System.arraycopy(order, from, scratch, from, to - from);
+    int left = from;
+    int right = middle;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < middle && compareRows(scratch[left], scratch[right]) <= 0)) {
+        order[i] = scratch[left++];
+      } else {
+        order[i] = scratch[right++];
+      }
+    }
+  }
+
+  private static long[] permute(long[] column, int[] order) {
+    long[] permuted = new long[column.length];
+    for (int i = 0; i < order.length; i++) {
+      permuted[i] = column[order[i]];
+    }
+    return permuted;
+  }
+
+  private void grow() {
+    int capacity = this.callers.length;
+    resize(Math.max(DEFAULT_CAPACITY, capacity + (capacity >> 1)));
+  }
+
+  private void resize(int capacity) {
+    this.callers = Arrays.copyOf(this.callers, capacity);
+    this.callees = Arrays.copyOf(this.callees, capacity);
+    this.beginMinutes = Arrays.copyOf(this.beginMinutes, capacity);
+    this.endMinutes = Arrays.copyOf(this.endMinutes, capacity);
+  }
+
+  /**
+   * Converts a time to the number of minutes since the epoch.
+   *
+   * @throws IllegalArgumentException if the time is not a whole minute
+   */
+  static long toEpochMinute(LocalDateTime time) {
+    if (time.getSecond() != 0 || time.getNano() != 0) {
+      throw new IllegalArgumentException("Call times must be whole minutes: " + time);
+    }
+    return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+  }
+
+  /**
+   * Converts a number of minutes since the epoch to a time.
+   */
+  static LocalDateTime fromEpochMinute(long minutes) {
+    return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+  }
+
+  /**
+   * A read-only view of the rows of this table that creates a <code>PhoneCall</code> for
+   * each row as it is iterated.
+   */
+  private class SortedRows extends AbstractCollection<PhoneCall> {
+    @Override
+    public Iterator<PhoneCall> iterator() {
+      ensureSorted();
+      return new Iterator<>() {
+        private final int expectedModCount = modCount;
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return this.next < size;
+        }
+
+        @Override
+        public PhoneCall next() {
+          if (modCount != this.expectedModCount) {
+            throw new ConcurrentModificationException();
+          }
+          if (this.next >= size) {
+            throw new NoSuchElementException();
+          }
+          return toPhoneCall(this.next++);
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
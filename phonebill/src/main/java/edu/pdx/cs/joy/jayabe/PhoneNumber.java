@@ -0,0 +1,202 @@
+package edu.pdx.cs.joy.jayabe;
+
+/**
+ * The <code>PhoneNumber</code> class represents a phone number formatted as
+ * <code>nnn-nnn-nnnn</code>. Instead of storing the formatted string, it stores the ten digits
+ * of the number in a single <code>long</code>, which makes phone numbers cheap to compare,
+ * hash and store.
+ *
+ * <p>Because every phone number has exactly ten digits, ordering phone numbers by their
+ * packed value gives the same order as comparing their formatted strings.
+ *
+ * <p>The static methods of this class validate, pack and format phone numbers without
+ * using regular expressions or allocating intermediate objects, so they can be used on
+ * hot paths such as parsing a large phone bill.
+ *
+ * <p>Example usage:
+ * <pre>
+ *   PhoneNumber number = PhoneNumber.parse("503-555-1234");
+ *   long digits = number.toLong();   // 5035551234
+ *   String text = number.toString(); // "503-555-1234"
+ * </pre>
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public final class PhoneNumber implements Comparable<PhoneNumber> {
+  /** The number of characters in a formatted phone number */
+  public static final int FORMATTED_LENGTH = 12;
+  /** The largest value that can be packed into ten digits */
+  private static final long MAX_PACKED = 9_999_999_999L;
+
+  /** The ten digits of the phone number */
+  private final long digits;
+
+  private PhoneNumber(long digits) {
+    this.digits = digits;
+  }
+
+  /**
+   * Parses a phone number formatted as <code>nnn-nnn-nnnn</code>.
+   *
+   * @param text the phone number to parse
+   * @return the phone number
+   * @throws IllegalArgumentException if <code>text</code> is not formatted as nnn-nnn-nnnn
+   */
+  public static PhoneNumber parse(CharSequence text) {
+    return new PhoneNumber(pack(text));
+  }
+
+  /**
+   * Returns the phone number whose ten digits are the given value.
+   *
+   * @param digits the packed phone number, as returned by {@link #toLong()}
+   * @return the phone number
+   * @throws IllegalArgumentException if <code>digits</code> has more than ten digits or is negative
+   */
+  public static PhoneNumber of(long digits) {
+    if (!isValid(digits)) {
+      throw new IllegalArgumentException("Not a ten-digit phone number: " + digits);
+    }
+    return new PhoneNumber(digits);
+  }
+
+  /**
+   * Returns whether or not the given text is a phone number formatted as nnn-nnn-nnnn.
+   *
+   * @param text the text to check; may be <code>null</code>
+   * @return <code>true</code> if the text is a valid phone number
+   */
+  public static boolean isValid(CharSequence text) {
+    return text != null && tryPack(text, 0, text.length()) >= 0;
+  }
+
+  /**
+   * Returns whether or not the given value is a packed phone number, that is, whether it is
+   * made of no more than ten digits.
+   *
+   * @param digits the value to check
+   * @return <code>true</code> if the value is a valid packed phone number
+   */
+  public static boolean isValid(long digits) {
+    return digits >= 0 && digits <= MAX_PACKED;
+  }
+
+  /**
+   * Packs a phone number formatted as <code>nnn-nnn-nnnn</code> into the number made of its
+   * ten digits.
+   *
+   * @param text the phone number to pack
+   * @return the ten digits of the phone number
+   * @throws IllegalArgumentException if <code>text</code> is not formatted as nnn-nnn-nnnn
+   */
+  public static long pack(CharSequence text) {
+    long packed = text == null ? -1 : tryPack(text, 0, text.length());
+    if (packed < 0) {
+      throw new IllegalArgumentException("Invalid phone number: " + text + " (expected nnn-nnn-nnnn)");
+    }
+    return packed;
+  }
+
+  /**
+   * Packs the phone number in <code>text[start, end)</code>, returning <code>-1</code>
+   * instead of throwing an exception if it is not formatted as nnn-nnn-nnnn.
+   *
+   * @param text the characters containing the phone number
+   * @param start the index of the first character of the phone number
+   * @param end the index after the last character of the phone number
+   * @return the ten digits of the phone number, or <code>-1</code> if it is invalid
+   */
+  static long tryPack(CharSequence text, int start, int end) {
+    if (end - start != FORMATTED_LENGTH
+            || text.charAt(start + 3) != '-' || text.charAt(start + 7) != '-') {
+      return -1;
+    }
+
+    long packed = 0;
+    for (int i = 0; i < FORMATTED_LENGTH; i++) {
+      if (i == 3 || i == 7) {
+        continue;
+      }
+      char c = text.charAt(start + i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      packed = packed * 10 + (c - '0');
+    }
+    return packed;
+  }
+
+  /**
+   * Writes a packed phone number formatted as <code>nnn-nnn-nnnn</code> into the given
+   * array, without allocating any objects.
+   *
+   * @param digits the packed phone number
+   * @param destination the array to write the {@value #FORMATTED_LENGTH} characters into
+   * @param offset the index of the first character to write
+   */
+  public static void format(long digits, char[] destination, int offset) {
+    for (int i = FORMATTED_LENGTH - 1; i >= 0; i--) {
+      if (i == 3 || i == 7) {
+        destination[offset + i] = '-';
+      } else {
+        destination[offset + i] = (char) ('0' + digits % 10);
+        digits /= 10;
+      }
+    }
+  }
+
+  /**
+   * Formats a packed phone number as <code>nnn-nnn-nnnn</code>.
+   *
+   * @param digits the packed phone number
+   * @return the formatted phone number
+   */
+  public static String format(long digits) {
+    char[] chars = new char[FORMATTED_LENGTH];
+    format(digits, chars, 0);
+    return new String(chars);
+  }
+
+  /**
+   * Returns the ten digits of this phone number as a single number.
+   *
+   * @return the packed phone number
+   */
+  public long toLong() {
+    return this.digits;
+  }
+
+  /**
+   * Writes this phone number formatted as <code>nnn-nnn-nnnn</code> into the given array.
+   *
+   * @param destination the array to write the {@value #FORMATTED_LENGTH} characters into
+   * @param offset the index of the first character to write
+   */
+  public void formatTo(char[] destination, int offset) {
+    format(this.digits, destination, offset);
+  }
+
+  @Override
+  public int compareTo(PhoneNumber other) {
+    return Long.compare(this.digits, other.digits);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof PhoneNumber other && this.digits == other.digits;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(this.digits);
+  }
+
+  /**
+   * @return this phone number formatted as <code>nnn-nnn-nnnn</code>
+   */
+  @Override
+  public String toString() {
+    return format(this.digits);
+  }
+}
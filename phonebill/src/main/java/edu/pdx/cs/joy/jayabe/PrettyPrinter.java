@@ -3,11 +3,11 @@ package edu.pdx.cs.joy.jayabe;
 import edu.pdx.cs.joy.AbstractPhoneBill;
 import edu.pdx.cs.joy.PhoneBillDumper;
 import java.io.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
-import java.time.temporal.ChronoUnit;
-import java.util.Collection;
+import java.util.Map;
 
 /**
  * The <code>PrettyPrinter</code> class implements a pretty printer for phone bills.
@@ -17,6 +17,8 @@ import java.util.Collection;
  * <p>The pretty printer displays:
  * <ul>
  *   <li>Customer name as a header</li>
+ *   <li>A summary of the bill from its {@link PhoneBillSummary}: the number of calls, their
+ *       total duration, the longest call, the first and last calls, and the minutes per day</li>
  *   <li>Each phone call with caller, callee, begin time, end time, and duration in minutes</li>
  *   <li>Formatted dates and times using localized short format</li>
  * </ul>
@@ -29,6 +31,8 @@ public class PrettyPrinter implements PhoneBillDumper<AbstractPhoneBill<PhoneCal
   private final Writer writer;
   private static final DateTimeFormatter PRETTY_FORMATTER = 
           DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT);
+  private static final DateTimeFormatter PRETTY_DATE_FORMATTER =
+          DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT);
 
   /**
    * Creates a new PrettyPrinter that will write to the specified writer.
@@ -41,8 +45,8 @@ public class PrettyPrinter implements PhoneBillDumper<AbstractPhoneBill<PhoneCal
 
   /**
    * Pretty prints the phone bill to the writer.
-   * Displays the customer name followed by a formatted list of all phone calls,
-   * sorted chronologically with call duration in minutes.
+   * Displays the customer name and a summary of the bill, followed by a formatted list
+   * of all phone calls, sorted chronologically with call duration in minutes.
    *
    * @param bill the phone bill to pretty print
    * @throws IOException if there is an error writing to the output
@@ -53,19 +57,36 @@ public class PrettyPrinter implements PhoneBillDumper<AbstractPhoneBill<PhoneCal
       return;
     }
     
+    dump(bill.getCustomer(), PhoneBillSummary.of(bill), bill.getPhoneCalls());
+  }
+
+  /**
+   * Pretty prints a customer's phone calls without first collecting them into a phone bill.
+   * The summary is printed before the calls, so it must be computed first, for instance by
+   * passing once over a {@link TextParser#stream()} with
+   * {@link PhoneBillSummary#of(Iterable)}. The calls are then printed in the order they are
+   * given, each as it is reached.
+   *
+   * @param customer the name of the customer
+   * @param summary the summary of the calls
+   * @param calls the phone calls to print
+   * @throws IOException if there is an error writing to the output
+   */
+  public void dump(String customer, PhoneBillSummary summary, Iterable<? extends PhoneCall> calls)
+          throws IOException {
     PrintWriter pw = new PrintWriter(writer);
     
     // Print header
     pw.println("========================================");
-    pw.println("Phone Bill for: " + bill.getCustomer());
+    pw.println("Phone Bill for: " + customer);
     pw.println("========================================");
     pw.println();
     
-    // Print each phone call
-    Collection<PhoneCall> calls = bill.getPhoneCalls();
-    if (calls.isEmpty()) {
+    // Print the summary, then each phone call
+    if (summary.getCallCount() == 0) {
       pw.println("No phone calls on record.");
     } else {
+      printSummary(pw, summary);
       for (PhoneCall call : calls) {
         printCall(pw, call);
         pw.println();
@@ -75,6 +96,27 @@ public class PrettyPrinter implements PhoneBillDumper<AbstractPhoneBill<PhoneCal
     pw.flush();
   }
 
+  /**
+   * Prints the running totals of the phone bill.
+   *
+   * @param pw the print writer to write to
+   * @param summary the summary of the bill's phone calls
+   */
+  private void printSummary(PrintWriter pw, PhoneBillSummary summary) {
+    pw.println("Total calls: " + summary.getCallCount());
+    pw.println("Total duration: " + formatMinutes(summary.getTotalMinutes()));
+    pw.println("Longest call: " + formatMinutes(summary.getLongestCallMinutes())
+            + ", beginning " + formatDateTime(summary.getLongestCall().getBeginTime()));
+    pw.println("First call: " + formatDateTime(summary.getFirstCall().getBeginTime()));
+    pw.println("Last call:  " + formatDateTime(summary.getLastCall().getBeginTime()));
+    pw.println("Duration by day:");
+    for (Map.Entry<LocalDate, Long> day : summary.getMinutesPerDay().entrySet()) {
+      pw.println("  " + day.getKey().format(PRETTY_DATE_FORMATTER) + ": " + formatMinutes(day.getValue()));
+    }
+    pw.println("----------------------------------------");
+    pw.println();
+  }
+
   /**
    * Prints a single phone call in a pretty format.
    *
@@ -86,13 +128,23 @@ public class PrettyPrinter implements PhoneBillDumper<AbstractPhoneBill<PhoneCal
     String callee = call.getCallee();
     LocalDateTime begin = call.getBeginTime();
     LocalDateTime end = call.getEndTime();
-    long duration = ChronoUnit.MINUTES.between(begin, end);
+    long duration = PhoneBillSummary.durationInMinutes(call);
     
     pw.println("From: " + caller);
     pw.println("To:   " + callee);
     pw.println("Begin: " + formatDateTime(begin));
     pw.println("End:   " + formatDateTime(end));
-    pw.println("Duration: " + duration + " minute" + (duration != 1 ? "s" : ""));
+    pw.println("Duration: " + formatMinutes(duration));
+  }
+
+  /**
+   * Formats a number of minutes, such as "1 minute" or "30 minutes".
+   *
+   * @param minutes the number of minutes
+   * @return the number of minutes followed by the correct unit
+   */
+  private String formatMinutes(long minutes) {
+    return minutes + " minute" + (minutes != 1 ? "s" : "");
   }
 
   /**
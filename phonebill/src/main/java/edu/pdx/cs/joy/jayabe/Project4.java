@@ -1,9 +1,10 @@
 package edu.pdx.cs.joy.jayabe;
 
 import edu.pdx.cs.joy.ParserException;
-import edu.pdx.cs.joy.jdbc.H2DatabaseHelper;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
@@ -11,7 +12,6 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * The <code>Project4</code> class is the main entry point for the Phone Bill application.
@@ -33,15 +33,18 @@ import java.util.regex.Pattern;
  *   <li><code>-print</code>: Prints a description of the phone call</li>
  *   <li><code>-README</code>: Displays README information and exits</li>
  *   <li><code>-textFile file</code>: Where to read/write the phone bill</li>
+ *   <li><code>-append</code>: With <code>-textFile</code>, adds the call to the end of the file
+ *       instead of rewriting the whole bill</li>
+ *   <li><code>-binFile file</code>: Where to read/write the phone bill in binary format</li>
  *   <li><code>-dbFile file</code>: Location of relational database file</li>
  *   <li><code>-pretty file</code>: Pretty print the phone bill to a text file or standard out (file -)</li>
+ *   <li><code>-activeAt date time am/pm</code>: Prints the calls that were in progress at the given time</li>
  * </ul>
  *
  * @author Jay Abegglen
  * @version 1.0
  */
 public class Project4 {
-  private static final Pattern PHONE_PATTERN = Pattern.compile("\\d{3}-\\d{3}-\\d{4}");
   private static final String[] errors = {
           "Missing customer information",
           "Missing caller phone number",
@@ -97,7 +100,7 @@ public class Project4 {
 
   /**
    * Parses the command-line arguments and executes the appropriate program logic.
-   * This method handles option flags (-print, -README, -textFile, -dbFile, -pretty), extracts and validates
+   * This method handles option flags (-print, -README, -textFile, -append, -binFile, -dbFile, -pretty, -activeAt), extracts and validates
    * customer information and call details, creates a phone call and phone bill,
    * and optionally prints or pretty prints the bill.
    *
@@ -109,6 +112,7 @@ public class Project4 {
    *   <li>Creates PhoneCall and PhoneBill objects</li>
    *   <li>Optionally prints call details if -print flag is set</li>
    *   <li>Optionally pretty prints the bill if -pretty flag is set</li>
+   *   <li>Optionally prints the calls in progress at a given time if -activeAt is set</li>
    * </ol>
    *
    * @param args the command-line arguments to parse
@@ -118,11 +122,15 @@ public class Project4 {
     boolean print = false;
     boolean readme = false;
     boolean textFileFlag = false;
+    boolean appendFlag = false;
+    boolean binFileFlag = false;
     boolean dbFileFlag = false;
     boolean prettyFlag = false;
     String textFileName = null;
+    String binFileName = null;
     String dbFileName = null;
     String prettyFileName = null;
+    String activeAtDateTime = null;
     List<String> arguments = new ArrayList<>(9);
 
     if (args.length == 0) {
@@ -147,6 +155,15 @@ public class Project4 {
               throw new IllegalArgumentException("-textFile requires a file path argument");
             }
           }
+          case "-append" -> appendFlag = true;
+          case "-binFile" -> {
+            if (++i < args.length) {
+              binFileName = args[i];
+              binFileFlag = true;
+            } else {
+              throw new IllegalArgumentException("-binFile requires a file path argument");
+            }
+          }
           case "-dbFile" -> {
             if (++i < args.length) {
               dbFileName = args[i];
@@ -163,6 +180,14 @@ public class Project4 {
               throw new IllegalArgumentException("-pretty requires a file path argument");
             }
           }
+          case "-activeAt" -> {
+            if (i + 3 < args.length) {
+              activeAtDateTime = args[i + 1] + " " + args[i + 2] + " " + args[i + 3];
+              i += 3;
+            } else {
+              throw new IllegalArgumentException("-activeAt requires a date, time and am/pm argument");
+            }
+          }
           default -> throw new IllegalArgumentException("Unknown option: " + arg);
       }
       i++;
@@ -173,6 +198,14 @@ public class Project4 {
       throw new IllegalArgumentException("Cannot specify both -textFile and -dbFile");
     }
 
+    if (binFileFlag && (textFileFlag || dbFileFlag)) {
+      throw new IllegalArgumentException("Cannot specify -binFile with -textFile or -dbFile");
+    }
+
+    if (appendFlag && !textFileFlag) {
+      throw new IllegalArgumentException("-append requires -textFile");
+    }
+
     if (readme) {
       printREADME();
       return;
@@ -231,6 +264,9 @@ public class Project4 {
     validatePhoneNumber(calleeNumber, "callee number");
     validateDateTime(beginDateTime, "begin");
     validateDateTime(endDateTime, "end");
+    if (activeAtDateTime != null) {
+      validateDateTime(activeAtDateTime, "activeAt");
+    }
 
     // Parse strings to LocalDateTime
     LocalDateTime begin = LocalDateTime.parse(beginDateTime, CLI_DATE_TIME_FORMATTER);
@@ -244,13 +280,34 @@ public class Project4 {
     PhoneCall newCall = new PhoneCall(customer, callerNumber, calleeNumber, begin, end);
     PhoneBill bill = new PhoneBill(customer);
 
-    if (textFileFlag) {
+    if (appendFlag) {
+      // Only the header is checked and the call is written to the end of the file. The whole
+      // bill is read only if it is needed to pretty print or search it.
+      try {
+        appendToTextFile(textFileName, customer, newCall);
+        if (prettyFlag || activeAtDateTime != null) {
+          bill = handleTextFile(textFileName, customer);
+        } else {
+          bill.addPhoneCall(newCall);
+        }
+      } catch (IllegalArgumentException e) {
+        System.err.println("Error: " + e.getMessage());
+        return;
+      }
+    } else if (textFileFlag) {
       try {
         bill = handleTextFile(textFileName, customer);
       } catch (IllegalArgumentException e) {
         System.err.println("Error: " + e.getMessage());
         return;
       }
+    } else if (binFileFlag) {
+      try {
+        bill = handleBinaryFile(binFileName, customer);
+      } catch (IllegalArgumentException e) {
+        System.err.println("Error: " + e.getMessage());
+        return;
+      }
     } else if (dbFileFlag) {
       try {
         bill = handleDatabaseFile(dbFileName, customer);
@@ -259,19 +316,27 @@ public class Project4 {
         return;
       }
     }
-    
-    bill.addPhoneCall(newCall);
+
+    if (!appendFlag) {
+      bill.addPhoneCall(newCall);
+    }
 
     if (print) {
       System.out.println(newCall);
     }
 
-    if (textFileFlag) {
+    if (textFileFlag && !appendFlag) {
       try {
         saveData(textFileName, bill);
       } catch (IllegalArgumentException e) {
         System.err.println("Error: " + e.getMessage());
       }
+    } else if (binFileFlag) {
+      try {
+        saveBinaryData(binFileName, bill);
+      } catch (IllegalArgumentException e) {
+        System.err.println("Error: " + e.getMessage());
+      }
     } else if (dbFileFlag) {
       try {
         saveDatabaseData(dbFileName, bill);
@@ -287,6 +352,29 @@ public class Project4 {
         System.err.println("Error: " + e.getMessage());
       }
     }
+
+    if (activeAtDateTime != null) {
+      printCallsActiveAt(bill, LocalDateTime.parse(activeAtDateTime, CLI_DATE_TIME_FORMATTER));
+    }
+  }
+
+  /**
+   * Prints the phone calls on the bill that were in progress at the given time.
+   * @param bill The PhoneBill whose calls are searched.
+   * @param instant The moment in time to search for.
+   */
+  private void printCallsActiveAt(PhoneBill bill, LocalDateTime instant) {
+    List<PhoneCall> activeCalls = bill.callsActiveAt(instant);
+    String when = instant.format(CLI_DATE_TIME_FORMATTER);
+    if (activeCalls.isEmpty()) {
+      System.out.println("No phone calls were in progress at " + when);
+      return;
+    }
+
+    System.out.println("Phone calls in progress at " + when + ":");
+    for (PhoneCall call : activeCalls) {
+      System.out.println(call);
+    }
   }
 
   /**
@@ -320,6 +408,60 @@ public class Project4 {
     }
   }
 
+  /**
+   * Siloed helper function to add a single call to the end of a text file without reading or
+   * rewriting the rest of the bill. Only the customer name on the first line is read.
+   * @param fileName The name of the file to append to; it is created if it does not exist.
+   * @param expectedCustomer The customer name provided via command line.
+   * @param call The phone call to append.
+   */
+  private void appendToTextFile(String fileName, String expectedCustomer, PhoneCall call) {
+    File file = new File(fileName);
+    try {
+      if (file.length() > 0) {
+        String fileCustomer;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+          String firstLine = reader.readLine();
+          fileCustomer = firstLine == null ? "" : firstLine.trim();
+        }
+        if (!fileCustomer.equals(expectedCustomer)) {
+          throw new IllegalArgumentException("Customer name in file (" + fileCustomer
+                  + ") does not match command line (" + expectedCustomer + ")");
+        }
+      }
+
+      TextDumper.appendPhoneCall(file, expectedCustomer, call);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Error writing to file: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Siloed helper function to handle the creation or loading of a PhoneBill from a binary file.
+   * This manages file existence checks and customer name validation.
+   * @param fileName The name of the binary file to load.
+   * @param expectedCustomer The customer name provided via command line.
+   * @return A PhoneBill object (either loaded from file or newly created).
+   */
+  PhoneBill handleBinaryFile(String fileName, String expectedCustomer) {
+    File file = new File(fileName);
+    if (!file.exists()) {
+      return new PhoneBill(expectedCustomer);
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      PhoneBill loadedBill = new BinaryParser(channel).parse();
+
+      if (!loadedBill.getCustomer().equals(expectedCustomer)) {
+        throw new IllegalArgumentException("Customer name in file (" + loadedBill.getCustomer()
+                + ") does not match command line (" + expectedCustomer + ")");
+      }
+      return loadedBill;
+    } catch (ParserException | IOException e) {
+      throw new IllegalArgumentException("Error processing file: " + e.getMessage());
+    }
+  }
+
   /**
    * Siloed helper function to handle the creation or loading of a PhoneBill from a database.
    * This manages database connection and customer name validation.
@@ -332,9 +474,7 @@ public class Project4 {
       return new PhoneBill(expectedCustomer);
     }
 
-    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(new File(dbFileName))) {
-      PhoneBillDAO.createTable(connection);
-      
+    try (Connection connection = PhoneBillDataSource.forFile(new File(dbFileName)).getConnection()) {
       JDBCLoader loader = new JDBCLoader(connection, expectedCustomer);
       PhoneBill loadedBill = loader.parse();
 
@@ -368,8 +508,9 @@ public class Project4 {
         parentDir.mkdirs();
       }
       
-      try (Writer writer = new FileWriter(file)) {
-        TextDumper dumper = new TextDumper(writer);
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        TextDumper dumper = new TextDumper(channel);
         dumper.dump(bill);
       }
     } catch (IOException e) {
@@ -377,6 +518,29 @@ public class Project4 {
     }
   }
 
+  /**
+   * Siloed helper function to handle the persistence of PhoneBill data to a binary file.
+   * This manages the BinaryDumper and handles any I/O exceptions.
+   * @param fileName The name of the binary file to save to.
+   * @param bill The PhoneBill object to be written to the file.
+   */
+  private void saveBinaryData(String fileName, PhoneBill bill) {
+    try {
+      File file = new File(fileName);
+      File parentDir = file.getParentFile();
+      if (parentDir != null && !parentDir.exists()) {
+        parentDir.mkdirs();
+      }
+
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        new BinaryDumper(channel).dump(bill);
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Error writing to file: " + e.getMessage());
+    }
+  }
+
   /**
    * Siloed helper function to handle the persistence of PhoneBill data to a database.
    * This manages the JDBCDumper and handles any database exceptions.
@@ -388,9 +552,7 @@ public class Project4 {
       return;
     }
 
-    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(new File(dbFileName))) {
-      PhoneBillDAO.createTable(connection);
-      
+    try (Connection connection = PhoneBillDataSource.forFile(new File(dbFileName)).getConnection()) {
       JDBCDumper dumper = new JDBCDumper(connection);
       dumper.dump(bill);
     } catch (IOException e) {
@@ -440,7 +602,7 @@ public class Project4 {
    * @throws IllegalArgumentException if the phone number does not match the expected format
    */
   private static void validatePhoneNumber(String number, String field) {
-    if (!PHONE_PATTERN.matcher(number).matches()) {
+    if (!PhoneNumber.isValid(number)) {
       throw new IllegalArgumentException(
               "Invalid " + field + " format: " + number + " (expected nnn-nnn-nnnn)"
       );
@@ -478,14 +640,20 @@ public class Project4 {
     System.out.println("    begin            Call begin date/time AM/PM");
     System.out.println("    end              Call end date/time AM/PM");
     System.out.println("  options are (options may appear in any order):");
+    System.out.println("    -binFile file    Where to read/write the phone bill in binary format");
     System.out.println("    -dbFile file     Location of relational database file");
     System.out.println("    -textFile file   Where to read/write the phone bill");
+    System.out.println("    -append          With -textFile, add the call to the end of the");
+    System.out.println("                     file instead of rewriting the whole bill");
     System.out.println("    -pretty file     Pretty print the phone bill to a text file");
     System.out.println("                     or standard out (file -)");
+    System.out.println("    -activeAt date time am/pm");
+    System.out.println("                     Prints the calls in progress at the given time");
     System.out.println("    -print           Prints a description of the new phone call");
     System.out.println("    -README          Prints a README for this project and exits");
     System.out.println();
-    System.out.println("  It is an error to specify both -textFile and -dbFile.");
+    System.out.println("  It is an error to specify more than one of -textFile, -binFile");
+    System.out.println("  and -dbFile.");
   }
 
   /**
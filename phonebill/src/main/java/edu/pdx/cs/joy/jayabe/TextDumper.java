@@ -3,16 +3,30 @@ package edu.pdx.cs.joy.jayabe;
 import edu.pdx.cs.joy.AbstractPhoneBill;
 import edu.pdx.cs.joy.PhoneBillDumper;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Collection;
 
 /**
  * Dumps a phone bill to a text file in CSV format.
  * Each line contains a phone call with customer name, caller, callee, begin time, and end time.
+ *
+ * <p>A dumper created with a {@link WritableByteChannel} is much faster than one created with
+ * a {@link Writer}. Each line is formatted by a {@link CallLineFormatter} straight into bytes
+ * in a reusable buffer, which is passed to the channel when it fills, so no strings are
+ * built and nothing is encoded twice. The bytes written are the same either way.
  */
 public class TextDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>> {
+  /** The size of the buffer that lines are written through when writing to a channel */
+  private static final int BUFFER_SIZE = 256 * 1024;
+
   private final Writer writer;
+  private final WritableByteChannel channel;
+  private final Charset charset;
   private static final String DELIMITER = ",";
   private static final DateTimeFormatter DATE_TIME_FORMATTER = 
           DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm");
@@ -24,6 +38,31 @@ public class TextDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>>
    */
   public TextDumper(Writer writer) {
     this.writer = writer;
+    this.channel = null;
+    this.charset = null;
+  }
+
+  /**
+   * Constructs a TextDumper that writes to a channel in the default character set, as a
+   * {@link FileWriter} would. The channel is not closed.
+   *
+   * @param channel the channel to write the phone bill data to
+   */
+  public TextDumper(WritableByteChannel channel) {
+    this(channel, Charset.defaultCharset());
+  }
+
+  /**
+   * Constructs a TextDumper that writes to a channel in the given character set. The channel
+   * is not closed.
+   *
+   * @param channel the channel to write the phone bill data to
+   * @param charset the character set to encode the text in
+   */
+  public TextDumper(WritableByteChannel channel, Charset charset) {
+    this.writer = null;
+    this.channel = channel;
+    this.charset = charset;
   }
 
   @Override
@@ -31,20 +70,176 @@ public class TextDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>>
     if (bill == null) {
       return;
     }
-    
+
+    dump(bill.getCustomer(), bill.getPhoneCalls());
+  }
+
+  /**
+   * Dumps a customer's phone calls without first collecting them into a phone bill. The
+   * calls are written in the order they are given, each as it is reached, so a sequence of
+   * any length can be dumped.
+   *
+   * @param customer the name of the customer, written on the first line
+   * @param calls the phone calls to write
+   * @throws IOException if the calls cannot be written
+   */
+  public void dump(String customer, Iterable<? extends PhoneCall> calls) throws IOException {
+    if (this.channel != null) {
+      writeBytes(this.channel, this.charset, customer, calls, null);
+      return;
+    }
+
     // Write customer name on first line
-    writer.write(bill.getCustomer() + "\n");
-    
+    writer.write(customer + "\n");
+
     // Write each phone call
-    Collection<PhoneCall> calls = bill.getPhoneCalls();
     for (PhoneCall call : calls) {
-      writer.write(formatCall(call, bill.getCustomer()) + "\n");
+      writer.write(formatCall(call, customer) + "\n");
     }
-    
+
     writer.flush();
   }
 
-  private String formatCall(PhoneCall call, String customer) {
+  /**
+   * Dumps a customer's phone calls to a text file, optionally writing a
+   * {@link TextFileIndex} of their begin times to the file's sidecar. The calls should be
+   * sorted for the index to be used. The file is written in the default character set, as a
+   * {@link FileWriter} would write it, through a channel, and the byte offset of each line
+   * is counted as it is written, so the index is built without reading the file again.
+   *
+   * @param file the text file to write
+   * @param customer the name of the customer, written on the first line
+   * @param calls the phone calls to write
+   * @param writeIndex whether to write an index of the file
+   * @throws IOException if the file or its index cannot be written
+   */
+  public static void dump(File file, String customer, Iterable<? extends PhoneCall> calls, boolean writeIndex)
+          throws IOException {
+    File parentDir = file.getParentFile();
+    if (parentDir != null && !parentDir.exists()) {
+      parentDir.mkdirs();
+    }
+
+    TextFileIndex.Builder index = writeIndex ? new TextFileIndex.Builder(TextFileIndex.DEFAULT_BUCKET_MINUTES) : null;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeBytes(channel, Charset.defaultCharset(), customer, calls, index);
+    }
+
+    if (index != null) {
+      index.build(file.length(), file.lastModified()).write(TextFileIndex.indexFileFor(file));
+    }
+  }
+
+  /**
+   * Writes the text of a bill to a channel through a buffer, noting the offset of each line
+   * in the index if there is one.
+   */
+  private static void writeBytes(WritableByteChannel channel, Charset charset, String customer,
+                                 Iterable<? extends PhoneCall> calls, TextFileIndex.Builder index)
+          throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    byte[] header = (customer + "\n").getBytes(charset);
+    long offset = header.length;
+    put(channel, buffer, header, header.length);
+
+    CallLineFormatter formatter = new CallLineFormatter(customer, charset);
+    long lineNumber = 2;
+    for (PhoneCall call : calls) {
+      int length = formatter.format(call);
+      put(channel, buffer, formatter.bytes(), length);
+      if (index != null) {
+        index.add(call.getBeginTime(), offset, lineNumber++);
+      }
+      offset += length;
+    }
+
+    flush(channel, buffer);
+  }
+
+  /**
+   * Copies bytes into the buffer, first passing the buffer to the channel if they do not fit.
+   */
+  private static void put(WritableByteChannel channel, ByteBuffer buffer, byte[] bytes, int length)
+          throws IOException {
+    if (buffer.remaining() < length) {
+      flush(channel, buffer);
+      if (buffer.remaining() < length) {
+        ByteBuffer line = ByteBuffer.wrap(bytes, 0, length);
+        while (line.hasRemaining()) {
+          channel.write(line);
+        }
+        return;
+      }
+    }
+    buffer.put(bytes, 0, length);
+  }
+
+  private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Appends one phone call to the end of a text phone bill, without reading or rewriting the
+   * calls already in it. If the file does not exist or is empty, it is created with the
+   * customer's name on the first line. The caller is responsible for checking that an
+   * existing file belongs to the same customer.
+   *
+   * <p>The file is opened in append mode, so each call is written to the end of the file even
+   * if other programs are appending to it too. Calls added this way are not in sorted order;
+   * {@link TextParser} sorts them when the file is read, and {@link Compact} rewrites the
+   * file in sorted order.
+   *
+   * @param file the text file to append the call to
+   * @param customer the name of the customer
+   * @param call the phone call to append
+   * @throws IOException if the file cannot be written
+   */
+  public static void appendPhoneCall(File file, String customer, PhoneCall call) throws IOException {
+    File parentDir = file.getParentFile();
+    if (parentDir != null && !parentDir.exists()) {
+      parentDir.mkdirs();
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      StringBuilder text = new StringBuilder();
+      long size = channel.size();
+      if (size == 0) {
+        text.append(customer).append('\n');
+      } else if (!endsWithLineBreak(file, size)) {
+        text.append('\n');
+      }
+      text.append(formatCall(call, customer)).append('\n');
+
+      ByteBuffer bytes = Charset.defaultCharset().encode(text.toString());
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * Returns whether the last byte of a file is a line break. A channel opened for appending
+   * cannot be read, so the file is opened again for reading.
+   */
+  private static boolean endsWithLineBreak(File file, long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer last = ByteBuffer.allocate(1);
+      channel.read(last, size - 1);
+      byte b = last.get(0);
+      return b == '\n' || b == '\r';
+    }
+  }
+
+  /**
+   * Formats a phone call as a line of a text phone bill, without the line break.
+   */
+  static String formatCall(PhoneCall call, String customer) {
     return customer + DELIMITER + 
            call.getCaller() + DELIMITER + 
            call.getCallee() + DELIMITER + 
@@ -52,7 +247,7 @@ public class TextDumper implements PhoneBillDumper<AbstractPhoneBill<PhoneCall>>
            formatDateTime(call.getEndTime());
   }
 
-  private String formatDateTime(LocalDateTime dateTime) {
+  private static String formatDateTime(LocalDateTime dateTime) {
     return dateTime.format(DATE_TIME_FORMATTER);
   }
 }
\ No newline at end of file
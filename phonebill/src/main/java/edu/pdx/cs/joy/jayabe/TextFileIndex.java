@@ -0,0 +1,431 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * A sparse index of the begin times in a sorted text phone bill, kept in a sidecar file next
+ * to the bill. The name of the sidecar is the name of the text file followed by
+ * {@value #SUFFIX}.
+ *
+ * <p>The begin times are divided into buckets of a fixed number of minutes, one day by
+ * default. For each bucket that has calls, the index holds the byte offset and line number
+ * of the first line whose call begins in it. {@link TextParser} uses the index to seek
+ * straight to the first call in a range of times, and to stop at the end of the last bucket
+ * in the range, instead of parsing the whole file.
+ *
+ * <p>The sidecar also records the length and modification time of the text file it was built
+ * from. {@link #load(File, Charset)} rebuilds an index that is missing, damaged or older
+ * than its text file, so an index is never used after calls have been appended to the bill
+ * or the bill has been rewritten. Calls appended with {@link TextDumper#appendPhoneCall} can
+ * leave the file unsorted; the index notes this, and such a file is read from the start.
+ *
+ * <p>The sidecar holds big-endian values:
+ * <pre>
+ *   int    magic number, the ASCII characters "PIDX"
+ *   short  format version, currently 1
+ *   short  1 if the calls in the text file are sorted, otherwise 0
+ *   long   length of the text file in bytes
+ *   long   modification time of the text file, in milliseconds since 1970
+ *   int    minutes in each bucket
+ *   int    number of entries
+ * </pre>
+ * followed by each entry: the bucket number (minutes since 1970 divided by the bucket size),
+ * the byte offset of the line, and the line number, each a <code>long</code>.
+ *
+ * @author Jay Abegglen
+ * @version 1.0
+ */
+public final class TextFileIndex {
+  /** The suffix added to the name of a text file to name its index */
+  public static final String SUFFIX = ".idx";
+  /** The size of the buckets in a new index: one day */
+  static final int DEFAULT_BUCKET_MINUTES = 24 * 60;
+
+  private static final int MAGIC = 0x50494458;
+  private static final short VERSION = 1;
+  private static final int HEADER_SIZE = 32;
+  private static final int ENTRY_SIZE = 24;
+  /** The number of bytes of the text file read at a time while building an index */
+  private static final int READ_SIZE = 64 * 1024;
+
+  private final boolean sorted;
+  private final long textLength;
+  private final long textModified;
+  private final int bucketMinutes;
+  private final int size;
+  private final long[] buckets;
+  private final long[] offsets;
+  private final long[] lines;
+
+  private TextFileIndex(boolean sorted, long textLength, long textModified, int bucketMinutes,
+                        int size, long[] buckets, long[] offsets, long[] lines) {
+    this.sorted = sorted;
+    this.textLength = textLength;
+    this.textModified = textModified;
+    this.bucketMinutes = bucketMinutes;
+    this.size = size;
+    this.buckets = buckets;
+    this.offsets = offsets;
+    this.lines = lines;
+  }
+
+  /**
+   * @param textFile a text phone bill
+   * @return the sidecar file that holds the index of the text file
+   */
+  public static File indexFileFor(File textFile) {
+    return new File(textFile.getPath() + SUFFIX);
+  }
+
+  /**
+   * Returns the index of a text phone bill. The index is read from the sidecar file if it is
+   * up to date; otherwise it is built by scanning the text file and written to the sidecar,
+   * if the sidecar can be written.
+   *
+   * @param textFile the text phone bill
+   * @param charset the character set the text file is written in
+   * @return the index of the text file
+   * @throws IOException if the text file cannot be read
+   * @throws ParserException if the index must be built and a line of the text file cannot be
+   *         parsed
+   */
+  public static TextFileIndex load(File textFile, Charset charset) throws IOException, ParserException {
+    TextFileIndex index = read(indexFileFor(textFile));
+    if (index != null && index.isCurrent(textFile)) {
+      return index;
+    }
+
+    index = build(textFile, charset);
+    try {
+      index.write(indexFileFor(textFile));
+    } catch (IOException e) {
+      // The index can still be used; it will be built again next time
+    }
+    return index;
+  }
+
+  /**
+   * Builds the index of a text phone bill by scanning its lines.
+   *
+   * @throws IOException if the text file cannot be read
+   * @throws ParserException if a line cannot be parsed
+   */
+  static TextFileIndex build(File textFile, Charset charset) throws IOException, ParserException {
+    long modified = textFile.lastModified();
+    try (FileChannel channel = FileChannel.open(textFile.toPath(), StandardOpenOption.READ)) {
+      Builder builder = new Builder(DEFAULT_BUCKET_MINUTES);
+      ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+      byte[] line = new byte[256];
+      char[] chars = new char[256];
+      int count = 0;
+      long lineStart = 0;
+      long lineNumber = 1;
+      long position = 0;
+      boolean skipLineFeed = false;
+      CallLineParser parser = null;
+
+      while (true) {
+        buffer.clear();
+        int read = channel.read(buffer);
+        boolean endOfText = read < 0;
+        for (int i = 0; i < Math.max(read, 0); i++, position++) {
+          byte b = buffer.get(i);
+          if (skipLineFeed) {
+            skipLineFeed = false;
+            if (b == '\n') {
+              lineStart = position + 1;
+              continue;
+            }
+          }
+          if (b != '\n' && b != '\r') {
+            if (count == line.length) {
+              line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[count++] = b;
+            continue;
+          }
+
+          parser = indexLine(builder, parser, line, count, chars, charset, lineStart, lineNumber);
+          skipLineFeed = b == '\r';
+          count = 0;
+          lineStart = position + 1;
+          lineNumber++;
+        }
+        if (endOfText) {
+          if (count > 0) {
+            indexLine(builder, parser, line, count, chars, charset, lineStart, lineNumber);
+          }
+          return builder.build(position, modified);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds one line of a text file to the index. The first line holds the customer's name and
+   * is used to create the parser for the rest of the lines.
+   *
+   * @return the parser for the lines of the file
+   */
+  private static CallLineParser indexLine(Builder builder, CallLineParser parser, byte[] line, int count,
+                                          char[] chars, Charset charset, long lineStart, long lineNumber)
+          throws ParserException {
+    char[] text = decode(line, count, chars, charset);
+    int length = text == chars ? count : text.length;
+    if (parser == null) {
+      return new CallLineParser(new String(text, 0, length).trim());
+    }
+    if (isBlank(text, length)) {
+      return parser;
+    }
+
+    try {
+      builder.add(parser.parse(text, 0, length).getBeginTime(), lineStart, lineNumber);
+    } catch (ParserException e) {
+      throw new ParserException("Line " + lineNumber + ": " + e.getMessage(), e);
+    }
+    return parser;
+  }
+
+  /**
+   * Copies the bytes of an ASCII line into <code>chars</code>, or decodes a line with other
+   * characters into a new array.
+   */
+  private static char[] decode(byte[] line, int count, char[] chars, Charset charset) {
+    if (chars.length < count) {
+      return charset.decode(ByteBuffer.wrap(line, 0, count)).toString().toCharArray();
+    }
+    for (int i = 0; i < count; i++) {
+      byte b = line[i];
+      if (b < 0) {
+        return charset.decode(ByteBuffer.wrap(line, 0, count)).toString().toCharArray();
+      }
+      chars[i] = (char) b;
+    }
+    return chars;
+  }
+
+  private static boolean isBlank(char[] text, int length) {
+    for (int i = 0; i < length; i++) {
+      if (text[i] > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads an index from a sidecar file.
+   *
+   * @return the index, or <code>null</code> if the file does not exist or is not a valid index
+   */
+  static TextFileIndex read(File indexFile) {
+    if (!indexFile.isFile()) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+        return null;
+      }
+      ByteBuffer bytes = ByteBuffer.allocate((int) fileSize);
+      BinaryFormat.readFully(channel, bytes);
+      bytes.flip();
+
+      if (bytes.getInt() != MAGIC || bytes.getShort() != VERSION) {
+        return null;
+      }
+      boolean sorted = bytes.getShort() == 1;
+      long textLength = bytes.getLong();
+      long textModified = bytes.getLong();
+      int bucketMinutes = bytes.getInt();
+      int size = bytes.getInt();
+      if (bucketMinutes <= 0 || size < 0 || bytes.remaining() != (long) size * ENTRY_SIZE) {
+        return null;
+      }
+
+      long[] buckets = new long[size];
+      long[] offsets = new long[size];
+      long[] lines = new long[size];
+      for (int i = 0; i < size; i++) {
+        buckets[i] = bytes.getLong();
+        offsets[i] = bytes.getLong();
+        lines[i] = bytes.getLong();
+      }
+      return new TextFileIndex(sorted, textLength, textModified, bucketMinutes, size, buckets, offsets, lines);
+
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes this index to a sidecar file.
+   *
+   * @param indexFile the file to write
+   * @throws IOException if the file cannot be written
+   */
+  void write(File indexFile) throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE + this.size * ENTRY_SIZE);
+    bytes.putInt(MAGIC)
+            .putShort(VERSION)
+            .putShort((short) (this.sorted ? 1 : 0))
+            .putLong(this.textLength)
+            .putLong(this.textModified)
+            .putInt(this.bucketMinutes)
+            .putInt(this.size);
+    for (int i = 0; i < this.size; i++) {
+      bytes.putLong(this.buckets[i]).putLong(this.offsets[i]).putLong(this.lines[i]);
+    }
+    bytes.flip();
+
+    try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * @return whether this index was built from the text file as it is now
+   */
+  boolean isCurrent(File textFile) {
+    return textFile.length() == this.textLength && textFile.lastModified() == this.textModified;
+  }
+
+  /**
+   * @return whether the calls in the text file are sorted by begin time. The offsets in an
+   *         index of an unsorted file must not be used.
+   */
+  public boolean isSorted() {
+    return this.sorted;
+  }
+
+  /**
+   * Returns the entry to start reading at to find the calls that begin at or after the
+   * given time: the first entry whose bucket is not before the time's bucket.
+   *
+   * @return the index of the entry, or the number of entries if no call begins that late
+   */
+  private int firstEntryAt(LocalDateTime from) {
+    long bucket = Math.floorDiv(BinaryFormat.toEpochMinutes(from), this.bucketMinutes);
+    int index = Arrays.binarySearch(this.buckets, 0, this.size, bucket);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  /**
+   * Returns the byte offset of the first line that might hold a call beginning at or after
+   * the given time. Every line before it holds a call that begins earlier.
+   *
+   * @param from the earliest begin time of interest
+   * @return the offset of the line, or the length of the text file if no call begins that late
+   */
+  public long offsetOf(LocalDateTime from) {
+    int entry = firstEntryAt(from);
+    return entry < this.size ? this.offsets[entry] : this.textLength;
+  }
+
+  /**
+   * Returns the byte offset just past the last line that might hold a call beginning at or
+   * before the given time. Every line after it holds a call that begins later.
+   *
+   * @param to the latest begin time of interest
+   * @return the offset of the first line of the next bucket that has calls, or the length of
+   *         the text file if there is none
+   */
+  public long endOffsetOf(LocalDateTime to) {
+    long bucket = Math.floorDiv(BinaryFormat.toEpochMinutes(to), this.bucketMinutes);
+    int index = Arrays.binarySearch(this.buckets, 0, this.size, bucket);
+    int next = index >= 0 ? index + 1 : -index - 1;
+    return next < this.size ? this.offsets[next] : this.textLength;
+  }
+
+  /**
+   * Returns the number of the line at {@link #offsetOf(LocalDateTime)}.
+   *
+   * @param from the earliest begin time of interest
+   * @return the line number, counting the customer name as line 1
+   */
+  public long lineNumberOf(LocalDateTime from) {
+    int entry = firstEntryAt(from);
+    return entry < this.size ? this.lines[entry] : Long.MAX_VALUE;
+  }
+
+  /**
+   * @return the number of buckets in the index that have calls
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Collects the entries of an index as the lines of a text file are written or scanned in
+   * order.
+   */
+  static class Builder {
+    private final int bucketMinutes;
+    private long[] buckets = new long[16];
+    private long[] offsets = new long[16];
+    private long[] lines = new long[16];
+    private int size;
+    private boolean sorted = true;
+    private LocalDateTime lastBegin;
+
+    /**
+     * @param bucketMinutes the number of minutes in each bucket
+     */
+    Builder(int bucketMinutes) {
+      this.bucketMinutes = bucketMinutes;
+    }
+
+    /**
+     * Notes the line holding a call, which must come after every line already added.
+     *
+     * @param begin the time the call began
+     * @param offset the byte offset of the line in the text file
+     * @param lineNumber the number of the line, counting the customer name as line 1
+     */
+    void add(LocalDateTime begin, long offset, long lineNumber) {
+      if (this.lastBegin != null && begin.isBefore(this.lastBegin)) {
+        this.sorted = false;
+      }
+      this.lastBegin = begin;
+
+      long bucket = Math.floorDiv(BinaryFormat.toEpochMinutes(begin), this.bucketMinutes);
+      if (!this.sorted || this.size > 0 && this.buckets[this.size - 1] >= bucket) {
+        return;
+      }
+      if (this.size == this.buckets.length) {
+        this.buckets = Arrays.copyOf(this.buckets, this.size * 2);
+        this.offsets = Arrays.copyOf(this.offsets, this.size * 2);
+        this.lines = Arrays.copyOf(this.lines, this.size * 2);
+      }
+      this.buckets[this.size] = bucket;
+      this.offsets[this.size] = offset;
+      this.lines[this.size] = lineNumber;
+      this.size++;
+    }
+
+    /**
+     * @param textLength the length of the text file in bytes
+     * @param textModified the modification time of the text file
+     * @return the index of the lines that were added
+     */
+    TextFileIndex build(long textLength, long textModified) {
+      int entries = this.sorted ? this.size : 0;
+      return new TextFileIndex(this.sorted, textLength, textModified, this.bucketMinutes, entries,
+              this.buckets, this.offsets, this.lines);
+    }
+  }
+}
@@ -3,19 +3,47 @@ package edu.pdx.cs.joy.jayabe;
 import edu.pdx.cs.joy.ParserException;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Parses a phone bill from a text file in CSV format.
  * The first line contains the customer name, followed by lines with phone call details.
+ *
+ * <p>{@link #parse()} collects every call into a {@link PhoneBill}. To process a bill that
+ * is too large to hold in memory, use {@link #stream()} or {@link #parse(Consumer)}
+ * instead; they parse each line only when its call is needed and never hold more than one
+ * call at a time.
+ *
+ * <p>A parser created with {@link #TextParser(File, LocalDateTime, LocalDateTime)} reads only
+ * the calls that began in a range of times. It uses the file's {@link TextFileIndex} to seek
+ * straight to the first line that might be in the range and stops at the first call that
+ * began after it, or at the end of the index's last bucket in the range, so little more
+ * than the lines in the range are parsed. The index is built, or rebuilt
+ * if the file has changed since it was written, the first time it is needed. A bill stored
+ * by {@link CompressedTextDumper} is recognized, and only the blocks that overlap the range
+ * are decompressed.
  */
 public class TextParser implements edu.pdx.cs.joy.PhoneBillParser<PhoneBill> {
 
   private final Reader reader;
-  private static final String DELIMITER = ",";
-  private static final DateTimeFormatter DATE_TIME_FORMATTER = 
-          DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm");
+  /** The text file to read a range of calls from, or null to read every call from the reader */
+  private final File textFile;
+  /** The earliest and latest begin times of the calls to read, when reading a range */
+  private final LocalDateTime from;
+  private final LocalDateTime to;
+  /** The name of the customer, once the first line has been read */
+  private String customer;
 
   /**
    * Constructs a TextParser with the specified reader.
@@ -24,55 +52,469 @@ public class TextParser implements edu.pdx.cs.joy.PhoneBillParser<PhoneBill> {
    */
   public TextParser(Reader reader) {
     this.reader = reader;
+    this.textFile = null;
+    this.from = null;
+    this.to = null;
+  }
+
+  /**
+   * Constructs a TextParser that reads only the calls in a text file that began between the
+   * given times, inclusive, as {@link PhoneBill#callsBetween(LocalDateTime, LocalDateTime)}
+   * would return them. The file is read in the default character set, as a
+   * {@link FileReader} would read it.
+   *
+   * @param textFile the text phone bill to read
+   * @param from the earliest begin time to include
+   * @param to the latest begin time to include
+   * @throws IllegalArgumentException if <code>to</code> is before <code>from</code>
+   */
+  public TextParser(File textFile, LocalDateTime from, LocalDateTime to) {
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException("End of range cannot be before beginning of range");
+    }
+    this.reader = null;
+    this.textFile = textFile;
+    this.from = from;
+    this.to = to;
   }
 
   @Override
   public PhoneBill parse() throws ParserException {
-    try (BufferedReader br = new BufferedReader(reader)) {
-      String firstLine = br.readLine();
-      if (firstLine == null || firstLine.trim().isEmpty()) {
-        throw new ParserException("File is empty or missing the customer name");
+    try (CallIterator calls = calls()) {
+      PhoneBill bill = new PhoneBill(calls.getCustomer());
+      calls.forEachRemaining(bill::addPhoneCall);
+      return bill;
+
+    } catch (UncheckedParserException e) {
+      throw e.getCause();
+
+    } catch (IOException e) {
+      throw new ParserException("Error reading file: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Parses each phone call in the text and passes it to the given action as soon as it has
+   * been read. The calls are passed in the order they appear in the text, which need not be
+   * sorted. The reader is closed when all of the calls have been read.
+   *
+   * @param action what to do with each phone call
+   * @throws ParserException if the text cannot be read or a line cannot be parsed
+   */
+  public void parse(Consumer<? super PhoneCall> action) throws ParserException {
+    try (CallIterator calls = calls()) {
+      calls.forEachRemaining(action);
+
+    } catch (UncheckedParserException e) {
+      throw e.getCause();
+
+    } catch (IOException e) {
+      throw new ParserException("Error reading file: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Reads the customer name from the first line and returns a stream of the phone calls in
+   * the rest of the text. Each line is parsed only when the stream reaches it, so the calls
+   * are never all held in memory. The calls are in the order they appear in the text, which
+   * need not be sorted. Because a stream cannot throw checked exceptions, a line that cannot
+   * be read or parsed causes an {@link UncheckedParserException}. The stream should be
+   * closed, for example with a try-with-resources statement, to close the reader.
+   *
+   * <p>Example usage:
+   * <pre>
+   *   TextParser parser = new TextParser(reader);
+   *   try (Stream&lt;PhoneCall&gt; calls = parser.stream()) {
+   *     long minutes = calls.mapToLong(PhoneBillSummary::durationInMinutes).sum();
+   *     System.out.println(parser.getCustomer() + ": " + minutes + " minutes");
+   *   }
+   * </pre>
+   *
+   * @return a stream of the phone calls in the text
+   * @throws ParserException if the text is empty or the customer name cannot be read
+   */
+  public Stream<PhoneCall> stream() throws ParserException {
+    CallIterator calls = calls();
+    Spliterator<PhoneCall> spliterator = Spliterators.spliteratorUnknownSize(calls,
+            Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(() -> {
+      try {
+        calls.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
       }
+    });
+  }
 
-      String customer = firstLine.trim();
-      PhoneBill bill = new PhoneBill(customer);
+  /**
+   * Returns the name of the customer on the first line of the text. The name is available
+   * once {@link #parse()}, {@link #parse(Consumer)} or {@link #stream()} has read it.
+   *
+   * @return the name of the customer, or <code>null</code> if the first line has not been read
+   */
+  public String getCustomer() {
+    return this.customer;
+  }
 
-      String line;
-      while ((line = br.readLine()) != null) {
-        if (line.trim().isEmpty()) {
-          continue;
-        }
-        PhoneCall call = parseCall(line, customer);
-        bill.addPhoneCall(call);
+  /**
+   * Reads the customer name from the first line and returns an iterator that parses the
+   * remaining lines one at a time, as the calls are requested. Unlike {@link #parse()}, the
+   * calls are never all held in memory, so a bill of any size can be read. The iterator
+   * should be closed when it is no longer needed.
+   *
+   * @return an iterator over the calls in the text
+   * @throws ParserException if the text is empty or the customer name cannot be read
+   */
+  CallIterator calls() throws ParserException {
+    if (this.textFile != null) {
+      return rangeCalls();
+    }
+    return calls(this.reader, false);
+  }
+
+  /**
+   * Reads the customer name from the first line and returns an iterator over the calls in
+   * the range of times on the remaining lines.
+   *
+   * @param sorted whether the calls are sorted, so that the iterator can stop at the first
+   *               call after the range
+   */
+  private CallIterator calls(Reader source, boolean sorted) throws ParserException {
+    BufferedReader br = new BufferedReader(source);
+    try {
+      this.customer = readCustomer(br);
+      return new CallIterator(br, this.customer, 1, this.from, this.to, sorted);
+
+    } catch (IOException e) {
+      closeQuietly(br);
+      throw new ParserException("Error reading file: " + e.getMessage(), e);
+
+    } catch (ParserException e) {
+      closeQuietly(br);
+      throw e;
+    }
+  }
+
+  /**
+   * Uses the index of the text file to start reading at the first line that might be in
+   * the range. If the file is not sorted, every line must be read.
+   */
+  private CallIterator rangeCalls() throws ParserException {
+    Charset charset = Charset.defaultCharset();
+    try {
+      if (CompressedTextFile.isCompressed(this.textFile)) {
+        return compressedRangeCalls();
       }
 
-      return bill;
+      TextFileIndex index = TextFileIndex.load(this.textFile, charset);
+      if (!index.isSorted()) {
+        return calls(new FileReader(this.textFile, charset), false);
+      }
+
+      try (BufferedReader header = new BufferedReader(new FileReader(this.textFile, charset))) {
+        this.customer = readCustomer(header);
+      }
+      long start = index.offsetOf(this.from);
+      long end = Math.max(start, index.endOffsetOf(this.to));
+      FileChannel channel = FileChannel.open(this.textFile.toPath(), StandardOpenOption.READ);
+      try {
+        channel.position(start);
+      } catch (IOException e) {
+        closeQuietly(channel);
+        throw e;
+      }
+      Reader range = new InputStreamReader(new RangeInputStream(Channels.newInputStream(channel), end - start), charset);
+      return new CallIterator(range, this.customer, index.lineNumberOf(this.from) - 1, this.from, this.to, true);
+
     } catch (IOException e) {
       throw new ParserException("Error reading file: " + e.getMessage(), e);
     }
   }
 
-  private PhoneCall parseCall(String line, String customer) throws ParserException {
-    String[] parts = line.split(DELIMITER);
-    if (parts.length != 5) {
-      throw new ParserException("Malformatted line in text file (expected 5 fields): " + line);
+  /**
+   * Decompresses only the blocks of a compressed text file whose begin times overlap the
+   * range.
+   */
+  private CallIterator compressedRangeCalls() throws IOException, ParserException {
+    CompressedTextFile file = CompressedTextFile.open(this.textFile);
+    if (file.getCustomer().trim().isEmpty()) {
+      closeQuietly(file);
+      throw new ParserException("File is empty or missing the customer name");
+    }
+    this.customer = file.getCustomer().trim();
+    return new CallIterator(file.reader(this.from, this.to), this.customer,
+            file.firstLineNumber(this.from, this.to) - 1, this.from, this.to, false);
+  }
+
+  private static String readCustomer(BufferedReader reader) throws IOException, ParserException {
+    String firstLine = reader.readLine();
+    if (firstLine == null || firstLine.trim().isEmpty()) {
+      throw new ParserException("File is empty or missing the customer name");
     }
+    return firstLine.trim();
+  }
 
-    // skip parts[0] since it should match the customer name and is redundant with the bill's customer
+  private static void closeQuietly(Closeable closeable) {
     try {
-      String caller = parts[1].trim();
-      String callee = parts[2].trim();
-      String beginTime = parts[3].trim();
-      String endTime = parts[4].trim();
+      closeable.close();
+    } catch (IOException ignored) {
+      // Nothing more can be done
+    }
+  }
+
+  /**
+   * Parses the calls of a text phone bill one line at a time. Because {@link Iterator}
+   * methods cannot throw checked exceptions, a line that cannot be read or parsed makes
+   * {@link #hasNext()} throw an {@link UncheckedParserException}.
+   *
+   * <p>Lines are not read as strings. The text is read into a character buffer, and each
+   * line is found and parsed in place by {@link CallLineParser}. Like
+   * {@link BufferedReader#readLine()}, a line ends at <code>'\n'</code>, <code>'\r'</code>
+   * or <code>"\r\n"</code>.
+   *
+   * <p>An iterator may be limited to the calls that began in a range of times. Calls outside
+   * the range are skipped, and if the calls are known to be sorted, the iterator stops at
+   * the first call after the range without reading the rest of the text.
+   */
+  static class CallIterator implements Iterator<PhoneCall>, Closeable {
+    /** The number of characters read at a time; the buffer grows to fit longer lines */
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final String customer;
+    private final CallLineParser parser;
+    private char[] buffer = new char[BUFFER_SIZE];
+    /** The index of the first character in the buffer that has not been parsed */
+    private int position;
+    /** The index after the last character read into the buffer */
+    private int limit;
+    /** Whether the end of the text has been read */
+    private boolean endOfText;
+    /** The number of the last line read; the customer name is on line 1 */
+    private long lineNumber;
+    /** Whether the last line ended with '\r', so that a following '\n' is part of it */
+    private boolean skipLineFeed;
+    /** The earliest and latest begin times of the calls to return, or null for no limit */
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    /** Whether the calls are sorted, so that none after the first one past the range are read */
+    private final boolean sorted;
+    private PhoneCall next;
+    private boolean done;
 
-      LocalDateTime begin = LocalDateTime.parse(beginTime, DATE_TIME_FORMATTER);
-      LocalDateTime end = LocalDateTime.parse(endTime, DATE_TIME_FORMATTER);
+    CallIterator(Reader reader, String customer) {
+      this(reader, customer, 1, null, null, false);
+    }
+
+    /**
+     * @param reader the text, positioned at the start of a line
+     * @param customer the name of the customer
+     * @param lineNumber the number of the line before the first one in <code>reader</code>
+     * @param from the earliest begin time of the calls to return, or null for no limit
+     * @param to the latest begin time of the calls to return, or null for no limit
+     * @param sorted whether the calls in the text are sorted by begin time
+     */
+    CallIterator(Reader reader, String customer, long lineNumber, LocalDateTime from, LocalDateTime to,
+                 boolean sorted) {
+      this.reader = reader;
+      this.customer = customer;
+      this.parser = new CallLineParser(customer);
+      this.lineNumber = lineNumber;
+      this.from = from;
+      this.to = to;
+      this.sorted = sorted;
+    }
+
+    /**
+     * @return the name of the customer on the first line of the text
+     */
+    String getCustomer() {
+      return this.customer;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (this.next == null && !this.done) {
+        PhoneCall call = readCall();
+        if (call == null) {
+          this.done = true;
+        } else if (this.to != null && call.getBeginTime().isAfter(this.to)) {
+          this.done = this.sorted;
+        } else if (this.from == null || !call.getBeginTime().isBefore(this.from)) {
+          this.next = call;
+        }
+      }
+      return this.next != null;
+    }
+
+    @Override
+    public PhoneCall next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      PhoneCall call = this.next;
+      this.next = null;
+      return call;
+    }
+
+    private PhoneCall readCall() {
+      try {
+        while (true) {
+          if (this.skipLineFeed) {
+            if (this.position == this.limit && !this.endOfText) {
+              fill();
+              continue;
+            }
+            if (this.position < this.limit && this.buffer[this.position] == '\n') {
+              this.position++;
+            }
+            this.skipLineFeed = false;
+          }
+
+          int lineEnd = indexOfLineEnd();
+          if (lineEnd < 0) {
+            if (!this.endOfText) {
+              fill();
+              continue;
+            }
+            if (this.position == this.limit) {
+              return null;
+            }
+            lineEnd = this.limit;
+          }
+
+          int lineStart = this.position;
+          this.position = lineEnd;
+          if (lineEnd < this.limit) {
+            this.skipLineFeed = this.buffer[lineEnd] == '\r';
+            this.position++;
+          }
+
+          this.lineNumber++;
+          if (!isBlank(lineStart, lineEnd)) {
+            try {
+              return this.parser.parse(this.buffer, lineStart, lineEnd);
+            } catch (ParserException e) {
+              throw new ParserException("Line " + this.lineNumber + ": " + e.getMessage(), e);
+            }
+          }
+        }
+
+      } catch (IOException e) {
+        throw new UncheckedParserException(new ParserException("Error reading file: " + e.getMessage(), e));
+
+      } catch (ParserException e) {
+        throw new UncheckedParserException(e);
+      }
+    }
+
+    private int indexOfLineEnd() {
+      for (int i = this.position; i < this.limit; i++) {
+        char c = this.buffer[i];
+        if (c == '\n' || c == '\r') {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private boolean isBlank(int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (this.buffer[i] > ' ') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Moves the unparsed characters to the front of the buffer, growing it if they fill it,
+     * and reads more characters after them.
+     */
+    private void fill() throws IOException {
+      int remaining = this.limit - this.position;
+      if (remaining == this.buffer.length) {
+        char[] larger = new char[this.buffer.length * 2];
+        System.arraycopy(this.buffer, this.position, larger, 0, remaining);
+        this.buffer = larger;
+      } else {
+        System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+      }
+      this.position = 0;
+      this.limit = remaining;
+
+      int read = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+      if (read < 0) {
+        this.endOfText = true;
+      } else {
+        this.limit += read;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.done = true;
+      this.reader.close();
+    }
+  }
+
+  /**
+   * Reads no more than a given number of bytes from another stream, so that a range read
+   * ends at the end of the last bucket of the index in the range.
+   */
+  private static class RangeInputStream extends FilterInputStream {
+    /** The number of bytes that may still be read */
+    private long remaining;
+
+    RangeInputStream(InputStream in, long length) {
+      super(in);
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (this.remaining <= 0) {
+        return -1;
+      }
+      int b = super.read();
+      if (b >= 0) {
+        this.remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (this.remaining <= 0) {
+        return -1;
+      }
+      int read = super.read(b, off, (int) Math.min(len, this.remaining));
+      if (read > 0) {
+        this.remaining -= read;
+      }
+      return read;
+    }
+  }
+
+  /**
+   * Thrown when a call read through {@link #stream()} cannot be parsed. The cause is the
+   * {@link ParserException} that describes the problem.
+   */
+  public static class UncheckedParserException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new exception that wraps a parser exception.
+     *
+     * @param cause the exception that describes why the call could not be parsed
+     */
+    public UncheckedParserException(ParserException cause) {
+      super(cause.getMessage(), cause);
+    }
 
-      return new PhoneCall(customer, caller, callee, begin, end);
-    } catch (java.time.format.DateTimeParseException e) {
-      throw new ParserException("Invalid date/time format in line: " + line, e);
-    } catch (Exception e) {
-      throw new ParserException("Error parsing call: " + line + " - " + e.getMessage(), e);
+    @Override
+    public synchronized ParserException getCause() {
+      return (ParserException) super.getCause();
     }
   }
-}
\ No newline at end of file
+}
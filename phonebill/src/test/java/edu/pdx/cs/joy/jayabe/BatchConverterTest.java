@@ -0,0 +1,149 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import edu.pdx.cs.joy.jdbc.H2DatabaseHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the {@link BatchConverter} class.
+ */
+public class BatchConverterTest {
+  private static final LocalDateTime BEGIN = LocalDateTime.of(2026, 2, 11, 10, 0);
+
+  private static PhoneBill createBill(String customer, int calls) {
+    PhoneBill bill = new PhoneBill(customer);
+    for (int i = 0; i < calls; i++) {
+      bill.addPhoneCall(new PhoneCall(customer, "503-123-4567", "503-765-4321",
+              BEGIN.plusHours(i), BEGIN.plusHours(i).plusMinutes(30)));
+    }
+    return bill;
+  }
+
+  private static File writeTextFile(File dir, String name, PhoneBill bill) throws IOException {
+    File file = new File(dir, name);
+    try (FileWriter writer = new FileWriter(file)) {
+      new TextDumper(writer).dump(bill);
+    }
+    return file;
+  }
+
+  private static BatchConverter convert(File dbFile, List<File> files, int threads) throws SQLException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      BatchConverter converter = new BatchConverter(connection, threads, new PrintStream(out), new PrintStream(out));
+      converter.convert(files);
+      return converter;
+    }
+  }
+
+  private static int countPhoneCalls(File dbFile) throws SQLException {
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile);
+         Statement statement = connection.createStatement();
+         ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM phone_calls")) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  @Test
+  void convertsEveryFileInTheBatch(@TempDir File tempDir) throws IOException, SQLException, ParserException {
+    File bills = new File(tempDir, "bills");
+    bills.mkdir();
+    for (int i = 0; i < 12; i++) {
+      writeTextFile(bills, "customer" + i + ".txt", createBill("Customer " + i, i + 1));
+    }
+    File binFile = new File(bills, "binary.bin");
+    try (FileOutputStream out = new FileOutputStream(binFile)) {
+      new BinaryDumper(out.getChannel()).dump(createBill("Binary Customer", 3));
+    }
+
+    File dbFile = new File(tempDir, "phonebill.db");
+    BatchConverter converter = convert(dbFile, BatchConverter.listFiles(bills.getPath()), 4);
+
+    assertThat(converter.getConvertedCount(), equalTo(13));
+    assertThat(converter.getFailedCount(), equalTo(0));
+    assertThat(converter.getCallCount(), equalTo(78L + 3));
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      assertThat(new JDBCLoader(connection, "Customer 11").parse().getPhoneCalls(), hasSize(12));
+      assertThat(new JDBCLoader(connection, "Binary Customer").parse().getPhoneCalls(), hasSize(3));
+    }
+  }
+
+  @Test
+  void secondRunSkipsFilesAlreadyConverted(@TempDir File tempDir) throws IOException, SQLException {
+    File first = writeTextFile(tempDir, "first.txt", createBill("First", 2));
+    File second = writeTextFile(tempDir, "second.txt", createBill("Second", 3));
+    File dbFile = new File(tempDir, "phonebill.db");
+
+    convert(dbFile, List.of(first), 1);
+    BatchConverter converter = convert(dbFile, List.of(first, second), 2);
+
+    assertThat(converter.getSkippedCount(), equalTo(1));
+    assertThat(converter.getConvertedCount(), equalTo(1));
+    assertThat(countPhoneCalls(dbFile), equalTo(5));
+  }
+
+  @Test
+  void fileThatChangedIsConvertedAgain(@TempDir File tempDir) throws IOException, SQLException, ParserException {
+    File file = writeTextFile(tempDir, "bill.txt", createBill("Customer", 2));
+    File dbFile = new File(tempDir, "phonebill.db");
+    convert(dbFile, List.of(file), 1);
+
+    writeTextFile(tempDir, "bill.txt", createBill("Customer", 4));
+    BatchConverter converter = convert(dbFile, List.of(file), 1);
+
+    assertThat(converter.getConvertedCount(), equalTo(1));
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      assertThat(new JDBCLoader(connection, "Customer").parse().getPhoneCalls(), hasSize(4));
+    }
+  }
+
+  @Test
+  void malformedFileDoesNotStopTheOthers(@TempDir File tempDir) throws IOException, SQLException {
+    File good = writeTextFile(tempDir, "good.txt", createBill("Good", 2));
+    File bad = new File(tempDir, "bad.txt");
+    try (FileWriter writer = new FileWriter(bad)) {
+      writer.write("Bad\nBad,503-111-2222,503-333-4444,02/10/2026 08:00\n");
+    }
+    File dbFile = new File(tempDir, "phonebill.db");
+
+    BatchConverter converter = convert(dbFile, List.of(bad, good), 2);
+    assertThat(converter.getFailedCount(), equalTo(1));
+    assertThat(converter.getConvertedCount(), equalTo(1));
+    assertThat(countPhoneCalls(dbFile), equalTo(2));
+
+    // The malformed file was not recorded, so it is tried again
+    converter = convert(dbFile, List.of(bad, good), 2);
+    assertThat(converter.getFailedCount(), equalTo(1));
+    assertThat(converter.getSkippedCount(), equalTo(1));
+  }
+
+  @Test
+  void globListsMatchingFilesInOrder(@TempDir File tempDir) throws IOException {
+    writeTextFile(tempDir, "b.txt", createBill("B", 1));
+    writeTextFile(tempDir, "a.txt", createBill("A", 1));
+    writeTextFile(tempDir, "c.bin", createBill("C", 1));
+
+    List<File> files = BatchConverter.listFiles(tempDir.getPath() + File.separator + "*.txt");
+    assertThat(files.stream().map(File::getName).toList(), contains("a.txt", "b.txt"));
+  }
+
+  @Test
+  void nameThatIsNeitherADirectoryNorAGlobIsRejected(@TempDir File tempDir) {
+    String missing = new File(tempDir, "missing").getPath();
+    assertThrows(IllegalArgumentException.class, () -> BatchConverter.listFiles(missing));
+  }
+}
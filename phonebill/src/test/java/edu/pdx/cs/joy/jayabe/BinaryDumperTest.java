@@ -0,0 +1,92 @@
+package edu.pdx.cs.joy.jayabe;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BinaryDumperTest {
+  private static byte[] dump(PhoneBill bill) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BinaryDumper(Channels.newChannel(out)).dump(bill);
+    return out.toByteArray();
+  }
+
+  @Test
+  void headerHasMagicVersionCustomerAndCount() throws IOException {
+    String customer = "Test Phone Bill";
+    PhoneBill bill = new PhoneBill(customer);
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    bill.addPhoneCall(new PhoneCall(customer, "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5)));
+
+    ByteBuffer bytes = ByteBuffer.wrap(dump(bill));
+
+    assertThat(bytes.getInt(), equalTo(BinaryFormat.MAGIC));
+    assertThat(bytes.getShort(), equalTo(BinaryFormat.VERSION));
+    assertThat(bytes.getShort(), equalTo((short) 0));
+    byte[] name = new byte[bytes.getInt()];
+    bytes.get(name);
+    assertThat(new String(name, StandardCharsets.UTF_8), equalTo(customer));
+    assertThat(bytes.getInt(), equalTo(1));
+    assertThat(bytes.remaining(), equalTo(BinaryFormat.RECORD_SIZE));
+  }
+
+  @Test
+  void recordHoldsPackedNumbersAndEpochMinutes() throws IOException {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    LocalDateTime begin = LocalDateTime.of(1970, 1, 2, 0, 1);
+    bill.addPhoneCall(new PhoneCall("Jane Doe", "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5)));
+
+    byte[] bytes = dump(bill);
+    ByteBuffer record = ByteBuffer.wrap(bytes, bytes.length - BinaryFormat.RECORD_SIZE, BinaryFormat.RECORD_SIZE);
+
+    assertThat(record.getLong(), equalTo(5031234567L));
+    assertThat(record.getLong(), equalTo(5037654321L));
+    assertThat(record.getLong(), equalTo(24L * 60 + 1));
+    assertThat(record.getLong(), equalTo(24L * 60 + 6));
+  }
+
+  @Test
+  void callsTakeFewerBytesThanInTheTextFormat() throws IOException {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    for (int i = 0; i < 10_000; i++) {
+      bill.addPhoneCall(new PhoneCall("Jane Doe", "503-123-4567", "503-765-4321",
+              begin.plusMinutes(i), begin.plusMinutes(i + 3)));
+    }
+
+    java.io.StringWriter text = new java.io.StringWriter();
+    new TextDumper(text).dump(bill);
+
+    assertThat(dump(bill).length, lessThan(text.toString().length() / 2));
+  }
+
+  @Test
+  void callWithAnInvalidPhoneNumberCannotBeDumped() {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    bill.addPhoneCall(new PhoneCall("Jane Doe", "5031234567", "503-765-4321", begin, begin.plusMinutes(5)));
+
+    IOException e = assertThrows(IOException.class, () -> dump(bill));
+    assertThat(e.getMessage(), containsString("5031234567"));
+  }
+
+  @Test
+  void callsThatDoNotMatchTheirCountCannotBeDumped() {
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    PhoneCall call = new PhoneCall("Jane Doe", "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5));
+    BinaryDumper dumper = new BinaryDumper(Channels.newChannel(new ByteArrayOutputStream()));
+
+    IOException e = assertThrows(IOException.class, () -> dumper.dump("Jane Doe", 2, List.of(call)));
+    assertThat(e.getMessage(), containsString("Expected 2 calls but found 1"));
+  }
+}
@@ -0,0 +1,163 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BinaryParserTest {
+  @TempDir
+  Path tempDir;
+
+  private static byte[] dump(PhoneBill bill) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BinaryDumper(Channels.newChannel(out)).dump(bill);
+    return out.toByteArray();
+  }
+
+  private static PhoneBill parse(byte[] bytes) throws ParserException {
+    return new BinaryParser(Channels.newChannel(new ByteArrayInputStream(bytes))).parse();
+  }
+
+  private static List<String> describe(PhoneBill bill) {
+    return bill.getPhoneCalls().stream()
+            .map(call -> call.getCaller() + " " + call.getCallee() + " " + call.getBeginTime() + " " + call.getEndTime())
+            .toList();
+  }
+
+  @Test
+  void billWrittenByBinaryDumperCanBeParsed() throws IOException, ParserException {
+    String customer = "Zo\u00EB M\u00FCller";
+    PhoneBill bill = new PhoneBill(customer);
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 23, 50);
+    bill.addPhoneCall(new PhoneCall(customer, "503-123-4567", "503-765-4321", begin, begin.plusMinutes(20)));
+    bill.addPhoneCall(new PhoneCall(customer, "000-000-0000", "999-999-9999", begin, begin.plusHours(1)));
+    bill.addPhoneCall(new PhoneCall(customer, "503-123-4567", "503-222-3333",
+            LocalDateTime.of(1969, 12, 31, 23, 59), LocalDateTime.of(1970, 1, 1, 0, 0)));
+
+    PhoneBill parsed = parse(dump(bill));
+
+    assertThat(parsed.getCustomer(), equalTo(customer));
+    assertThat(describe(parsed), equalTo(describe(bill)));
+  }
+
+  @Test
+  void customerNameIsShared() throws IOException, ParserException {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    bill.addPhoneCall(new PhoneCall("Jane Doe", "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5)));
+
+    PhoneBill parsed = parse(dump(bill));
+
+    assertSame(parsed.getCustomer(), parsed.getPhoneCalls().iterator().next().getCustomer());
+  }
+
+  @Test
+  void emptyBillCanBeParsed() throws IOException, ParserException {
+    PhoneBill parsed = parse(dump(new PhoneBill("Jane Doe")));
+
+    assertThat(parsed.getCustomer(), equalTo("Jane Doe"));
+    assertThat(parsed.getPhoneCalls(), is(empty()));
+  }
+
+  @Test
+  void emptyFileCannotBeParsed() {
+    ParserException e = assertThrows(ParserException.class, () -> parse(new byte[0]));
+    assertThat(e.getMessage(), containsString("empty"));
+  }
+
+  @Test
+  void textFileIsNotABinaryBill() {
+    byte[] text = "Jane Doe\nJane Doe,503-123-4567,503-765-4321,02/11/2026 10:00,02/11/2026 10:05\n".getBytes();
+    ParserException e = assertThrows(ParserException.class, () -> parse(text));
+    assertThat(e.getMessage(), containsString("Not a binary phone bill"));
+  }
+
+  @Test
+  void unknownVersionCannotBeParsed() throws IOException {
+    byte[] bytes = dump(new PhoneBill("Jane Doe"));
+    ByteBuffer.wrap(bytes).putShort(Integer.BYTES, (short) 99);
+
+    ParserException e = assertThrows(ParserException.class, () -> parse(bytes));
+    assertThat(e.getMessage(), containsString("version: 99"));
+  }
+
+  @Test
+  void truncatedFileCannotBeParsed() throws IOException {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    bill.addPhoneCall(new PhoneCall("Jane Doe", "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5)));
+    byte[] bytes = dump(bill);
+
+    ParserException e = assertThrows(ParserException.class, () -> parse(Arrays.copyOf(bytes, bytes.length - 1)));
+    assertThat(e.getMessage(), containsString("truncated"));
+  }
+
+  @Test
+  void invalidPhoneNumberInARecordCannotBeParsed() throws IOException {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    bill.addPhoneCall(new PhoneCall("Jane Doe", "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5)));
+    byte[] bytes = dump(bill);
+    ByteBuffer.wrap(bytes).putLong(bytes.length - BinaryFormat.RECORD_SIZE, 10_000_000_000L);
+
+    ParserException e = assertThrows(ParserException.class, () -> parse(bytes));
+    assertThat(e.getMessage(), containsString("Call 1"));
+  }
+
+  @Test
+  void customerNameLongerThanTheFileCannotBeParsed() throws IOException {
+    byte[] bytes = dump(new PhoneBill("Jane Doe"));
+    ByteBuffer.wrap(bytes).putInt(BinaryFormat.HEADER_SIZE - Integer.BYTES, Integer.MAX_VALUE);
+
+    ParserException e = assertThrows(ParserException.class, () -> parse(bytes));
+    assertThat(e.getMessage(), containsString("Invalid customer name length"));
+
+    ByteBuffer.wrap(bytes).putInt(BinaryFormat.HEADER_SIZE - Integer.BYTES, Integer.MAX_VALUE - Integer.BYTES);
+    e = assertThrows(ParserException.class, () -> parse(bytes));
+    assertThat(e.getMessage(), containsString("truncated"));
+  }
+
+  @Test
+  void moreCallsThanTheFileHoldsCannotBeParsed() throws IOException {
+    byte[] bytes = dump(new PhoneBill("Jane Doe"));
+    ByteBuffer.wrap(bytes).putInt(bytes.length - Integer.BYTES, Integer.MAX_VALUE / BinaryFormat.RECORD_SIZE);
+
+    ParserException e = assertThrows(ParserException.class, () -> parse(bytes));
+    assertThat(e.getMessage(), containsString("truncated"));
+
+    Path file = Files.write(tempDir.resolve("bill.bin"), bytes);
+    try (FileChannel channel = FileChannel.open(file)) {
+      e = assertThrows(ParserException.class, () -> new BinaryParser(channel).parse());
+      assertThat(e.getMessage(), containsString("truncated"));
+    }
+  }
+
+  @Test
+  void billCanBeParsedFromAFileChannel() throws IOException, ParserException {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    bill.addPhoneCall(new PhoneCall("Jane Doe", "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5)));
+    Path file = Files.write(tempDir.resolve("bill.bin"), dump(bill));
+
+    try (FileChannel channel = FileChannel.open(file)) {
+      assertThat(describe(new BinaryParser(channel).parse()), equalTo(describe(bill)));
+    }
+  }
+}
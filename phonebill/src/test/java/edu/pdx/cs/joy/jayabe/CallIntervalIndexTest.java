@@ -0,0 +1,95 @@
+package edu.pdx.cs.joy.jayabe;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the {@link CallIntervalIndex} class.
+ */
+class CallIntervalIndexTest {
+
+  private static final LocalDateTime NOON = LocalDateTime.of(2026, 2, 1, 12, 0);
+
+  private static PhoneCall call(int beginMinute, int endMinute) {
+    return new PhoneCall("Alice", "503-123-4567", "503-765-4321",
+            NOON.plusMinutes(beginMinute), NOON.plusMinutes(endMinute));
+  }
+
+  @Test
+  void emptyIndexHasNoActiveCalls() {
+    assertThat(new CallIntervalIndex().activeAt(NOON), is(empty()));
+  }
+
+  @Test
+  void callIsActiveFromItsBeginThroughItsEnd() {
+    CallIntervalIndex index = new CallIntervalIndex();
+    PhoneCall call = call(10, 20);
+    index.add(call);
+
+    assertThat(index.activeAt(NOON.plusMinutes(9)), is(empty()));
+    assertThat(index.activeAt(NOON.plusMinutes(10)), contains(call));
+    assertThat(index.activeAt(NOON.plusMinutes(15)), contains(call));
+    assertThat(index.activeAt(NOON.plusMinutes(20)), contains(call));
+    assertThat(index.activeAt(NOON.plusMinutes(21)), is(empty()));
+  }
+
+  @Test
+  void longCallThatBeganEarlierIsFound() {
+    CallIntervalIndex index = new CallIntervalIndex();
+    PhoneCall longCall = call(0, 120);
+    index.add(longCall);
+    for (int i = 1; i < 100; i++) {
+      index.add(call(i, i));
+    }
+
+    assertThat(index.activeAt(NOON.plusMinutes(110)), contains(longCall));
+  }
+
+  @Test
+  void overlappingCallsAreReturnedInSortedOrder() {
+    CallIntervalIndex index = new CallIntervalIndex();
+    PhoneCall late = call(30, 60);
+    PhoneCall early = call(0, 45);
+    PhoneCall outside = call(70, 80);
+    index.add(late);
+    index.add(outside);
+    index.add(early);
+
+    assertThat(index.overlapping(NOON.plusMinutes(40), NOON.plusMinutes(65)), contains(early, late));
+  }
+
+  @Test
+  void queriesMatchABruteForceScan() {
+    Random random = new Random(410);
+    CallIntervalIndex index = new CallIntervalIndex();
+    List<PhoneCall> calls = new ArrayList<>();
+    PhoneBill sorted = new PhoneBill("Alice");
+    for (int i = 0; i < 2_000; i++) {
+      int begin = random.nextInt(10_000);
+      PhoneCall call = call(begin, begin + random.nextInt(300));
+      index.add(call);
+      calls.add(call);
+      sorted.addPhoneCall(call);
+    }
+
+    for (int i = 0; i < 200; i++) {
+      LocalDateTime from = NOON.plusMinutes(random.nextInt(10_500));
+      LocalDateTime to = from.plusMinutes(random.nextInt(60));
+
+      List<PhoneCall> expected = new ArrayList<>();
+      for (PhoneCall call : sorted.getPhoneCalls()) {
+        if (!call.getBeginTime().isAfter(to) && !call.getEndTime().isBefore(from)) {
+          expected.add(call);
+        }
+      }
+      assertThat(index.overlapping(from, to), equalTo(expected));
+    }
+  }
+}
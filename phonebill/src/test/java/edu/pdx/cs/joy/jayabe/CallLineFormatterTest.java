@@ -0,0 +1,85 @@
+package edu.pdx.cs.joy.jayabe;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class CallLineFormatterTest {
+  private static final List<Charset> CHARSETS = List.of(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+          StandardCharsets.US_ASCII, StandardCharsets.UTF_16, Charset.defaultCharset());
+
+  private static byte[] expected(PhoneCall call, String customer, Charset charset) {
+    return (TextDumper.formatCall(call, customer) + "\n").getBytes(charset);
+  }
+
+  private static byte[] format(CallLineFormatter formatter, PhoneCall call) {
+    int length = formatter.format(call);
+    return Arrays.copyOf(formatter.bytes(), length);
+  }
+
+  private static LocalDateTime randomDateTime(Random random) {
+    int year = switch (random.nextInt(10)) {
+      case 0 -> random.nextInt(20) - 10;
+      case 1 -> 9990 + random.nextInt(20);
+      default -> 1900 + random.nextInt(200);
+    };
+    return LocalDateTime.of(year, 1 + random.nextInt(12), 1 + random.nextInt(28),
+            random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1_000_000_000));
+  }
+
+  @Test
+  void linesMatchEncodingTheFormattedCall() {
+    Random random = new Random(18);
+    String[] customers = {"Jane Doe", "Zo\u00EB M\u00FCller", "\u674E\u5C0F\u9F99", "x".repeat(500), ""};
+    String[] numbers = {"503-111-2222", "503-333-4444", "5031112222", "\uFF15\uFF10\uFF13-111-2222", ""};
+
+    for (Charset charset : CHARSETS) {
+      for (String customer : customers) {
+        CallLineFormatter formatter = new CallLineFormatter(customer, charset);
+        for (int i = 0; i < 2_000; i++) {
+          LocalDateTime begin = random.nextInt(3) == 0 ? LocalDateTime.of(2026, 3, 1, 12, 0) : randomDateTime(random);
+          PhoneCall call = new PhoneCall(customer, numbers[random.nextInt(numbers.length)],
+                  numbers[random.nextInt(numbers.length)], begin, randomDateTime(random));
+
+          assertThat(charset + " " + call, format(formatter, call), equalTo(expected(call, customer, charset)));
+        }
+      }
+    }
+  }
+
+  @Test
+  void missingNumbersAreWrittenAsTheyAreFormatted() {
+    LocalDateTime begin = LocalDateTime.of(2026, 3, 1, 12, 0);
+    List<PhoneCall> calls = List.of(
+            new PhoneCall("Jane Doe", null, "503-333-4444", begin, begin),
+            new PhoneCall("Jane Doe", "503-111-2222", null, begin, begin),
+            new PhoneCall("Jane Doe", (String) null, null, begin, begin));
+
+    for (Charset charset : CHARSETS) {
+      CallLineFormatter formatter = new CallLineFormatter("Jane Doe", charset);
+      for (PhoneCall call : calls) {
+        assertThat(charset + " " + call, format(formatter, call), equalTo(expected(call, "Jane Doe", charset)));
+      }
+    }
+  }
+
+  @Test
+  void sameDayIsReusedForTheNextCall() {
+    CallLineFormatter formatter = new CallLineFormatter("Jane Doe", StandardCharsets.UTF_8);
+    LocalDateTime begin = LocalDateTime.of(2026, 3, 1, 23, 59);
+
+    format(formatter, new PhoneCall("Jane Doe", "503-111-2222", "503-333-4444", begin, begin));
+    PhoneCall next = new PhoneCall("Jane Doe", "503-111-2222", "503-333-4444", begin.plusMinutes(1), begin);
+
+    assertThat(new String(format(formatter, next), StandardCharsets.UTF_8),
+            equalTo("Jane Doe,503-111-2222,503-333-4444,03/02/2026 00:00,03/01/2026 23:59\n"));
+  }
+}
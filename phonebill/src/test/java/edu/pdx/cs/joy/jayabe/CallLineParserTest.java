@@ -0,0 +1,193 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link CallLineParser} class.
+ */
+class CallLineParserTest {
+
+  private static final String CUSTOMER = "Alice";
+
+  /** One parser for every test, so that the date it remembers is exercised too */
+  private final CallLineParser parser = new CallLineParser(CUSTOMER);
+
+  private PhoneCall parse(String line) throws ParserException {
+    return this.parser.parse(line.toCharArray(), 0, line.length());
+  }
+
+  /**
+   * Parses a line the way <code>TextParser</code> did before it had a hand-written
+   * tokenizer, to check that the two agree.
+   */
+  private static PhoneCall parseWithSplit(String line) throws ParserException {
+    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm");
+    String[] parts = line.split(",");
+    if (parts.length != 5) {
+      throw new ParserException("Malformatted line in text file (expected 5 fields): " + line);
+    }
+
+    try {
+      String caller = parts[1].trim();
+      String callee = parts[2].trim();
+      if (!PhoneNumber.isValid(caller) || !PhoneNumber.isValid(callee)) {
+        throw new ParserException("Invalid phone number (expected nnn-nnn-nnnn) in line: " + line);
+      }
+      LocalDateTime begin = LocalDateTime.parse(parts[3].trim(), formatter);
+      LocalDateTime end = LocalDateTime.parse(parts[4].trim(), formatter);
+      return new PhoneCall(CUSTOMER, caller, callee, begin, end);
+    } catch (java.time.format.DateTimeParseException e) {
+      throw new ParserException("Invalid date/time format in line: " + line, e);
+    }
+  }
+
+  private static String describe(PhoneCall call) {
+    return call.getCaller() + "|" + call.getCallee() + "|" + call.getBeginTime() + "|" + call.getEndTime();
+  }
+
+  private void assertSameResult(String line) {
+    String expected;
+    try {
+      expected = describe(parseWithSplit(line));
+    } catch (ParserException e) {
+      expected = "ParserException: " + e.getMessage();
+    }
+
+    String actual;
+    try {
+      actual = describe(parse(line));
+    } catch (ParserException e) {
+      actual = "ParserException: " + e.getMessage();
+    }
+
+    assertEquals(expected, actual, "Parsing \"" + line + "\"");
+  }
+
+  @Test
+  void parsesAWellFormedLine() throws ParserException {
+    PhoneCall call = parse("Alice,503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30");
+
+    assertThat(call.getCustomer(), equalTo(CUSTOMER));
+    assertThat(call.getCaller(), equalTo("503-555-1234"));
+    assertThat(call.getCallee(), equalTo("503-555-6789"));
+    assertThat(call.getBeginTime(), equalTo(LocalDateTime.of(2025, 1, 15, 10, 0)));
+    assertThat(call.getEndTime(), equalTo(LocalDateTime.of(2025, 1, 15, 10, 30)));
+  }
+
+  @Test
+  void parsesALineInTheMiddleOfABuffer() throws ParserException {
+    String text = "xxAlice,503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30yy";
+    PhoneCall call = this.parser.parse(text.toCharArray(), 2, text.length() - 2);
+
+    assertThat(call.getEndTime(), equalTo(LocalDateTime.of(2025, 1, 15, 10, 30)));
+  }
+
+  @Test
+  void agreesWithSplittingOnUnusualLines() {
+    List<String> lines = List.of(
+            "Alice, 503-555-1234 ,\t503-555-6789, 01/15/2025 10:00 ,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30,",
+            "Alice,503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30,,,",
+            "Alice,503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30, ",
+            "Alice,503-555-1234,503-555-6789,01/15/2025 10:00,",
+            "Alice,503-555-1234,503-555-6789,01/15/2025 10:00, ",
+            ",503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30",
+            ",,,,",
+            "Alice",
+            "Alice,503-555-1234, ,01/15/2025 10:00,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789, ,01/15/2025 10:30",
+            "Alice,503-555-123,503-555-6789,01/15/2025 10:00,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,02/30/2025 10:00,02/31/2024 10:30",
+            "Alice,503-555-1234,503-555-6789,02/32/2024 10:00,02/28/2024 10:30",
+            "Alice,503-555-1234,503-555-6789,12/31/2025 24:00,02/30/2025 24:00",
+            "Alice,503-555-1234,503-555-6789,01/15/2025 24:01,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,01/15/2025 23:60,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,13/15/2025 10:00,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,01/15/0000 10:00,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,01/15/+20250 10:00,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,1/15/2025 10:00,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,01/15/2025  10:00,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,01-15-2025 10:00,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,01/15/2025T10:00,01/15/2025 10:30",
+            "Alice,503-555-1234,503-555-6789,\uFF101/15/2025 10:00,01/15/2025 10:30");
+    for (String line : lines) {
+      assertSameResult(line);
+    }
+  }
+
+  @Test
+  void agreesWithSplittingOnRandomlyDamagedLines() {
+    Random random = new Random(12);
+    String alphabet = "0123456789/:-, \tAx+";
+    for (int i = 0; i < 50_000; i++) {
+      LocalDateTime begin = LocalDateTime.of(1990 + random.nextInt(40), 1 + random.nextInt(12),
+              1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+      StringBuilder line = new StringBuilder("Alice,503-555-1234,503-555-6789,"
+              + begin.format(CallLineParser.DATE_TIME_FORMATTER) + ","
+              + begin.plusMinutes(random.nextInt(100)).format(CallLineParser.DATE_TIME_FORMATTER));
+
+      int damage = random.nextInt(3);
+      for (int d = 0; d < damage; d++) {
+        int at = random.nextInt(line.length());
+        char c = alphabet.charAt(random.nextInt(alphabet.length()));
+        switch (random.nextInt(3)) {
+          case 0 -> line.setCharAt(at, c);
+          case 1 -> line.insert(at, c);
+          default -> line.deleteCharAt(at);
+        }
+      }
+      assertSameResult(line.toString());
+    }
+  }
+
+  @Test
+  void textParserHandlesEveryKindOfLineEnding() throws ParserException {
+    String call = "Alice,503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30";
+    String content = "Alice\r\n" + call + "\r\n" + call + "\r" + call + "\n\r\n  \n" + call;
+
+    PhoneBill bill = new TextParser(new StringReader(content)).parse();
+
+    assertThat(bill.getCustomer(), equalTo(CUSTOMER));
+    assertThat(bill.getPhoneCalls(), hasSize(4));
+  }
+
+  @Test
+  void textParserReadsLinesLongerThanItsBuffer() throws ParserException {
+    String padding = " ".repeat(20_000);
+    String content = "Alice\n"
+            + "Alice,503-555-1234," + padding + "503-555-6789,01/15/2025 10:00,01/15/2025 10:30\n"
+            + "Alice,503-555-1234,503-555-6789,01/16/2025 10:00,01/16/2025 10:30\n";
+
+    PhoneBill bill = new TextParser(new StringReader(content)).parse();
+
+    assertThat(bill.getPhoneCalls(), hasSize(2));
+  }
+
+  @Test
+  void textParserReadsManyLinesAcrossBufferBoundaries() throws ParserException {
+    StringBuilder content = new StringBuilder("Alice\r\n");
+    LocalDateTime begin = LocalDateTime.of(2025, 1, 15, 10, 0);
+    for (int i = 0; i < 5_000; i++) {
+      LocalDateTime time = begin.plusMinutes(i);
+      content.append("Alice,503-555-1234,503-555-6789,")
+              .append(time.format(CallLineParser.DATE_TIME_FORMATTER)).append(',')
+              .append(time.plusMinutes(1).format(CallLineParser.DATE_TIME_FORMATTER)).append("\r\n");
+    }
+
+    PhoneBill bill = new TextParser(new StringReader(content.toString())).parse();
+
+    assertThat(bill.getPhoneCalls(), hasSize(5_000));
+    assertThat(bill.getSummary().getLastCall().getBeginTime(), equalTo(begin.plusMinutes(4_999)));
+  }
+}
@@ -0,0 +1,85 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for the Compact class.
+ * Tests rewriting text files that calls were appended to in sorted order.
+ */
+public class CompactTest {
+
+  private static PhoneCall call(int hour, String callee) {
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 10, hour, 0);
+    return new PhoneCall("Jane Doe", "503-111-2222", callee, begin, begin.plusMinutes(30));
+  }
+
+  @Test
+  public void compactSortsAppendedCalls(@TempDir File tempDir) throws IOException, ParserException {
+    File textFile = new File(tempDir, "phonebill.txt");
+    TextDumper.appendPhoneCall(textFile, "Jane Doe", call(12, "503-333-4444"));
+    TextDumper.appendPhoneCall(textFile, "Jane Doe", call(8, "503-555-6666"));
+    TextDumper.appendPhoneCall(textFile, "Jane Doe", call(10, "503-777-8888"));
+
+    Compact.main(new String[]{textFile.getPath()});
+
+    List<String> lines = Files.readAllLines(textFile.toPath());
+    assertThat(lines, hasSize(4));
+    assertThat(lines.get(0), equalTo("Jane Doe"));
+    assertThat(lines.get(1), containsString("503-555-6666"));
+    assertThat(lines.get(2), containsString("503-777-8888"));
+    assertThat(lines.get(3), containsString("503-333-4444"));
+    assertThat(tempDir.list(), arrayWithSize(1));
+  }
+
+  @Test
+  public void compactKeepsTheFilesPermissions(@TempDir File tempDir) throws IOException, ParserException {
+    File textFile = new File(tempDir, "phonebill.txt");
+    TextDumper.appendPhoneCall(textFile, "Jane Doe", call(12, "503-333-4444"));
+    assumeTrue(Files.getFileAttributeView(textFile.toPath(), PosixFileAttributeView.class) != null);
+    Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r--r--");
+    Files.setPosixFilePermissions(textFile.toPath(), permissions);
+
+    Compact.compact(textFile, false);
+
+    assertThat(Files.getPosixFilePermissions(textFile.toPath()), equalTo(permissions));
+  }
+
+  @Test
+  public void dedupDropsRepeatedCalls(@TempDir File tempDir) throws IOException, ParserException {
+    File textFile = new File(tempDir, "phonebill.txt");
+    TextDumper.appendPhoneCall(textFile, "Jane Doe", call(8, "503-555-6666"));
+    TextDumper.appendPhoneCall(textFile, "Jane Doe", call(9, "503-555-6666"));
+    TextDumper.appendPhoneCall(textFile, "Jane Doe", call(8, "503-555-6666"));
+
+    PhoneBill bill = Compact.compact(textFile, true);
+
+    assertThat(bill.getRejectedDuplicateCount(), equalTo(1));
+    assertThat(Files.readAllLines(textFile.toPath()), hasSize(3));
+  }
+
+  @Test
+  public void fileThatCannotBeParsedIsLeftAlone(@TempDir File tempDir) throws IOException {
+    File textFile = new File(tempDir, "phonebill.txt");
+    String content = "Jane Doe\nJane Doe,503-111-2222,503-555-6666,02/10/2026 09:00\n";
+    Files.writeString(textFile.toPath(), content);
+
+    assertThrows(ParserException.class, () -> Compact.compact(textFile, false));
+    assertThat(Files.readString(textFile.toPath()), equalTo(content));
+  }
+}
@@ -0,0 +1,183 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompressedTextFileTest {
+
+  private static PhoneBill randomBill(String customer, Random random, int calls) {
+    PhoneBill bill = new PhoneBill(customer);
+    LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+    for (int i = 0; i < calls; i++) {
+      LocalDateTime begin = start.plusMinutes(random.nextInt(90 * 24 * 60));
+      bill.addPhoneCall(new PhoneCall(customer, "503-111-" + (1000 + random.nextInt(9000)), "503-333-4444",
+              begin, begin.plusMinutes(random.nextInt(120))));
+    }
+    return bill;
+  }
+
+  private static File compress(File file, PhoneBill bill, int blockSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      new CompressedTextDumper(channel, blockSize).dump(bill);
+    }
+    return file;
+  }
+
+  private static String read(Reader reader) throws IOException {
+    try (reader) {
+      StringWriter text = new StringWriter();
+      reader.transferTo(text);
+      return text.toString();
+    }
+  }
+
+  private static List<String> describe(Collection<PhoneCall> calls) {
+    return calls.stream().map(PhoneCall::toString).toList();
+  }
+
+  @Test
+  void readerReturnsTheTextTextDumperWouldWrite(@TempDir File tempDir) throws IOException {
+    PhoneBill bill = randomBill("Zo\u00EB M\u00FCller", new Random(1), 2_000);
+    File file = compress(new File(tempDir, "bill.txtz"), bill, 1024);
+    StringWriter expected = new StringWriter();
+    new TextDumper(expected).dump(bill);
+
+    try (CompressedTextFile compressed = CompressedTextFile.open(file)) {
+      assertThat(compressed.getCustomer(), equalTo("Zo\u00EB M\u00FCller"));
+      assertThat(compressed.blockCount(), greaterThan(50));
+    }
+    assertThat(read(CompressedTextFile.open(file).reader()), equalTo(expected.toString()));
+  }
+
+  @Test
+  void compressedBillIsMuchSmallerThanText(@TempDir File tempDir) throws IOException {
+    PhoneBill bill = randomBill("Jane Doe", new Random(2), 10_000);
+    File file = compress(new File(tempDir, "bill.txtz"), bill, CompressedTextDumper.BLOCK_SIZE);
+    StringWriter text = new StringWriter();
+    new TextDumper(text).dump(bill);
+
+    assertThat(file.length(), lessThan((long) text.toString().length() / 4));
+  }
+
+  @Test
+  void emptyBillCanBeRead(@TempDir File tempDir) throws IOException, ParserException {
+    File file = compress(new File(tempDir, "bill.txtz"), new PhoneBill("Jane Doe"), 1024);
+
+    PhoneBill bill = new TextParser(CompressedTextFile.open(file).reader()).parse();
+
+    assertThat(bill.getCustomer(), equalTo("Jane Doe"));
+    assertThat(bill.getPhoneCalls(), is(empty()));
+  }
+
+  @Test
+  void billCanBeStreamedThroughTextParser(@TempDir File tempDir) throws IOException, ParserException {
+    PhoneBill bill = randomBill("Jane Doe", new Random(3), 1_000);
+    File file = compress(new File(tempDir, "bill.txtz"), bill, 512);
+
+    TextParser parser = new TextParser(CompressedTextFile.open(file).reader());
+    try (var calls = parser.stream()) {
+      assertThat(calls.count(), equalTo(1_000L));
+    }
+    assertThat(parser.getCustomer(), equalTo("Jane Doe"));
+  }
+
+  @Test
+  void rangeReadReturnsTheCallsThatBeganInTheRange(@TempDir File tempDir) throws IOException, ParserException {
+    Random random = new Random(4);
+    PhoneBill bill = randomBill("Jane Doe", random, 2_000);
+    File file = compress(new File(tempDir, "bill.txtz"), bill, 512);
+
+    LocalDateTime start = LocalDateTime.of(2025, 12, 25, 0, 0);
+    for (int i = 0; i < 50; i++) {
+      LocalDateTime from = start.plusMinutes(random.nextInt(100 * 24 * 60));
+      LocalDateTime to = from.plusMinutes(random.nextInt(10 * 24 * 60));
+
+      PhoneBill range = new TextParser(file, from, to).parse();
+
+      assertThat(describe(range.getPhoneCalls()), equalTo(describe(bill.callsBetween(from, to))));
+    }
+    assertThat(TextFileIndex.indexFileFor(file).exists(), is(false));
+  }
+
+  @Test
+  void rangeReadDecompressesOnlyTheBlocksInTheRange(@TempDir File tempDir) throws IOException, ParserException {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    LocalDateTime start = LocalDateTime.of(2026, 3, 1, 0, 0);
+    for (int day = 0; day < 30; day++) {
+      for (int hour = 0; hour < 24; hour++) {
+        LocalDateTime begin = start.plusDays(day).plusHours(hour);
+        bill.addPhoneCall(new PhoneCall("Jane Doe", "503-111-2222", "503-333-4444", begin, begin.plusMinutes(5)));
+      }
+    }
+    File file = compress(new File(tempDir, "bill.txtz"), bill, 1024);
+
+    // Damage the first block, which holds the first calls in March
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    int firstBlock = CompressedTextFile.HEADER_SIZE + "Jane Doe".length();
+    for (int i = firstBlock; i < firstBlock + 20; i++) {
+      bytes[i] = (byte) 0xFF;
+    }
+    Files.write(file.toPath(), bytes);
+
+    LocalDateTime from = LocalDateTime.of(2026, 3, 20, 0, 0);
+    LocalDateTime to = LocalDateTime.of(2026, 3, 21, 23, 59);
+    PhoneBill range = new TextParser(file, from, to).parse();
+    assertThat(describe(range.getPhoneCalls()), equalTo(describe(bill.callsBetween(from, to))));
+
+    ParserException e = assertThrows(ParserException.class,
+            () -> new TextParser(CompressedTextFile.open(file).reader()).parse());
+    assertThat(e.getMessage(), containsString("damaged"));
+  }
+
+  @Test
+  void rangeReadReportsTheNumberOfALineThatCannotBeParsed(@TempDir File tempDir) throws IOException {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    LocalDateTime begin = LocalDateTime.of(2026, 3, 1, 0, 0);
+    for (int i = 0; i < 200; i++) {
+      bill.addPhoneCall(new PhoneCall("Jane Doe", "503-111-2222", "503-333-4444", begin.plusHours(i), begin.plusHours(i)));
+    }
+    // A call whose phone number cannot be parsed back, at line 152
+    bill.addPhoneCall(new PhoneCall("Jane Doe", "503-111-2222x", "503-333-4444", begin.plusHours(150), begin.plusHours(150)));
+    File file = compress(new File(tempDir, "bill.txtz"), bill, 512);
+
+    ParserException e = assertThrows(ParserException.class,
+            () -> new TextParser(file, begin.plusHours(140), begin.plusHours(160)).parse());
+    assertThat(e.getMessage(), startsWith("Line 153: "));
+  }
+
+  @Test
+  void textFileIsNotCompressed(@TempDir File tempDir) throws IOException {
+    File file = new File(tempDir, "bill.txt");
+    Files.writeString(file.toPath(), "Jane Doe\n");
+
+    assertThat(CompressedTextFile.isCompressed(file), is(false));
+    IOException e = assertThrows(IOException.class, () -> CompressedTextFile.open(file));
+    assertThat(e.getMessage(), anyOf(containsString("damaged"), containsString("Not a compressed")));
+  }
+
+  @Test
+  void truncatedFileIsDamaged(@TempDir File tempDir) throws IOException {
+    File file = compress(new File(tempDir, "bill.txtz"), randomBill("Jane Doe", new Random(5), 100), 512);
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), java.util.Arrays.copyOf(bytes, bytes.length - 3));
+
+    assertThat(CompressedTextFile.isCompressed(file), is(true));
+    IOException e = assertThrows(IOException.class, () -> CompressedTextFile.open(file));
+    assertThat(e.getMessage(), containsString("damaged"));
+  }
+}
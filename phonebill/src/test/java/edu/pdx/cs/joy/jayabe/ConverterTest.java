@@ -154,4 +154,127 @@ public class ConverterTest {
       assertThat(loadedBill.getPhoneCalls().size(), equalTo(0));
     }
   }
+
+  @Test
+  public void converterSavesNothingWhenALineIsMalformed(@TempDir File tempDir) throws IOException, SQLException, ParserException {
+    File textFile = new File(tempDir, "phonebill.txt");
+    String customerName = "Jane Doe";
+    try (FileWriter writer = new FileWriter(textFile)) {
+      writer.write(customerName + "\n");
+      writer.write(customerName + ",503-111-2222,503-333-4444,02/10/2026 08:00,02/10/2026 08:30\n");
+      writer.write(customerName + ",503-111-2222,503-333-4444,02/10/2026 09:00\n");
+    }
+
+    File dbFile = new File(tempDir, "phonebill.db");
+    ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    PrintStream originalErr = System.err;
+    System.setErr(new PrintStream(errContent));
+
+    try {
+      Converter.main(new String[]{textFile.getAbsolutePath(), dbFile.getAbsolutePath()});
+      assertThat(errContent.toString(), containsString("Error parsing text file"));
+    } finally {
+      System.setErr(originalErr);
+    }
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      PhoneBillDAO.createTable(connection);
+      assertThat(new JDBCLoader(connection, customerName).parse().getPhoneCalls(), is(empty()));
+    }
+  }
+
+  @Test
+  public void converterConvertsBinaryFileToDatabase(@TempDir File tempDir) throws IOException, SQLException, ParserException {
+    File binFile = new File(tempDir, "phonebill.bin");
+    String customerName = "Binary Customer";
+    PhoneBill originalBill = new PhoneBill(customerName);
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    originalBill.addPhoneCall(new PhoneCall(customerName, "503-123-4567", "503-765-4321", begin, begin.plusMinutes(30)));
+    originalBill.addPhoneCall(new PhoneCall(customerName, "503-123-4567", "503-222-3333", begin.plusHours(1), begin.plusHours(2)));
+
+    try (FileOutputStream out = new FileOutputStream(binFile)) {
+      new BinaryDumper(out.getChannel()).dump(originalBill);
+    }
+
+    File dbFile = new File(tempDir, "phonebill.db");
+    Converter.main(new String[]{binFile.getAbsolutePath(), dbFile.getAbsolutePath()});
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      PhoneBill loadedBill = new JDBCLoader(connection, customerName).parse();
+      assertThat(loadedBill.getPhoneCalls(), hasSize(2));
+      assertThat(loadedBill.getPhoneCalls().iterator().next().getCallee(), equalTo("503-765-4321"));
+    }
+  }
+
+  @Test
+  public void converterConvertsCompressedTextFileToDatabase(@TempDir File tempDir) throws IOException, SQLException, ParserException {
+    File compressedFile = new File(tempDir, "phonebill.txtz");
+    String customerName = "Compressed Customer";
+    PhoneBill originalBill = new PhoneBill(customerName);
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    for (int i = 0; i < 100; i++) {
+      originalBill.addPhoneCall(new PhoneCall(customerName, "503-123-4567", "503-765-4321",
+              begin.plusHours(i), begin.plusHours(i).plusMinutes(30)));
+    }
+
+    try (FileOutputStream out = new FileOutputStream(compressedFile)) {
+      new CompressedTextDumper(out.getChannel()).dump(originalBill);
+    }
+
+    File dbFile = new File(tempDir, "phonebill.db");
+    Converter.main(new String[]{compressedFile.getAbsolutePath(), dbFile.getAbsolutePath()});
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      PhoneBill loadedBill = new JDBCLoader(connection, customerName).parse();
+      assertThat(loadedBill.getPhoneCalls(), hasSize(100));
+    }
+  }
+
+  @Test
+  public void converterConvertsABatchOfFiles(@TempDir File tempDir) throws IOException, SQLException, ParserException {
+    File bills = new File(tempDir, "bills");
+    bills.mkdir();
+    for (String customerName : new String[]{"Alice", "Bob", "Carol"}) {
+      PhoneBill bill = new PhoneBill(customerName);
+      LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+      bill.addPhoneCall(new PhoneCall(customerName, "503-123-4567", "503-765-4321", begin, begin.plusMinutes(30)));
+      try (FileWriter writer = new FileWriter(new File(bills, customerName + ".txt"))) {
+        new TextDumper(writer).dump(bill);
+      }
+    }
+
+    File dbFile = new File(tempDir, "phonebill.db");
+    ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    PrintStream originalOut = System.out;
+    System.setOut(new PrintStream(outContent));
+
+    try {
+      Converter.main(new String[]{"-batch", "-threads", "2", bills.getAbsolutePath(), dbFile.getAbsolutePath()});
+      Converter.main(new String[]{"-batch", bills.getAbsolutePath(), dbFile.getAbsolutePath()});
+
+      String output = outContent.toString();
+      assertThat(output, containsString("Converted 3 files"));
+      assertThat(output, containsString("skipped 3 already converted"));
+    } finally {
+      System.setOut(originalOut);
+    }
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      assertThat(new JDBCLoader(connection, "Bob").parse().getPhoneCalls(), hasSize(1));
+    }
+  }
+
+  @Test
+  public void converterRejectsInvalidNumberOfThreads(@TempDir File tempDir) {
+    ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    PrintStream originalErr = System.err;
+    System.setErr(new PrintStream(errContent));
+
+    try {
+      Converter.main(new String[]{"-batch", "-threads", "zero", tempDir.getAbsolutePath(), "phonebill.db"});
+      assertThat(errContent.toString(), containsString("Invalid number of threads: zero"));
+    } finally {
+      System.setErr(originalErr);
+    }
+  }
 }
@@ -0,0 +1,225 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import edu.pdx.cs.joy.jdbc.H2DatabaseHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the {@link Exporter} class.
+ */
+public class ExporterTest {
+  private static final LocalDateTime BEGIN = LocalDateTime.of(2026, 2, 11, 10, 0);
+
+  private static PhoneBill createBill(String customer, int calls) {
+    PhoneBill bill = new PhoneBill(customer);
+    // Added in reverse so that the database does not hold the calls in order
+    for (int i = calls - 1; i >= 0; i--) {
+      bill.addPhoneCall(new PhoneCall(customer, "503-123-4567", "503-765-432" + (i % 10),
+              BEGIN.plusHours(i), BEGIN.plusHours(i).plusMinutes(30)));
+    }
+    return bill;
+  }
+
+  private static File createDatabase(File tempDir, PhoneBill... bills) throws SQLException, IOException {
+    File dbFile = new File(tempDir, "phonebill.db");
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      PhoneBillDAO.createTable(connection);
+      JDBCDumper dumper = new JDBCDumper(connection);
+      for (PhoneBill bill : bills) {
+        dumper.dump(bill.getCustomer(), bill.getPhoneCalls().stream().sorted(Comparator.reverseOrder()).toList());
+      }
+    }
+    return dbFile;
+  }
+
+  /**
+   * Pretty prints a bill with the summary of its calls in sorted order, which is the order
+   * they are exported in, so that ties for the longest call are broken the same way.
+   */
+  private static void prettyPrint(PhoneBill bill, Writer writer) throws IOException {
+    new PrettyPrinter(writer).dump(bill.getCustomer(), PhoneBillSummary.of(bill.getPhoneCalls()), bill.getPhoneCalls());
+  }
+
+  private static String textOf(PhoneBill bill) throws IOException {
+    StringWriter text = new StringWriter();
+    new TextDumper(text).dump(bill);
+    return text.toString();
+  }
+
+  @Test
+  void customerIsExportedAsTheTextTheirBillWouldBeDumpedAs(@TempDir File tempDir) throws IOException, SQLException {
+    PhoneBill bill = createBill("Jane Doe", 25);
+    File dbFile = createDatabase(tempDir, bill, createBill("John Doe", 3));
+    File textFile = new File(tempDir, "jane.txt");
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      int calls = new Exporter(connection).exportCustomer("Jane Doe", Exporter.Format.TEXT, textFile.getPath());
+      assertThat(calls, equalTo(25));
+    }
+
+    assertThat(Files.readString(textFile.toPath()), equalTo(textOf(bill)));
+  }
+
+  @Test
+  void customerIsExportedAsABinaryBill(@TempDir File tempDir) throws IOException, SQLException, ParserException {
+    File dbFile = createDatabase(tempDir, createBill("Jane Doe", 5));
+    File binFile = new File(tempDir, "jane.bin");
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      new Exporter(connection).exportCustomer("Jane Doe", Exporter.Format.BINARY, binFile.getPath());
+    }
+
+    try (FileChannel channel = new FileInputStream(binFile).getChannel()) {
+      PhoneBill bill = new BinaryParser(channel).parse();
+      assertThat(bill.getCustomer(), equalTo("Jane Doe"));
+      assertThat(bill.getPhoneCalls(), hasSize(5));
+      assertThat(bill.getPhoneCalls().iterator().next().getBeginTime(), equalTo(BEGIN));
+    }
+  }
+
+  /**
+   * Returns a connection that runs <code>change</code> on another connection just before
+   * the exporter queries the calls, after it has counted or summarized them.
+   */
+  private static Connection changedBeforeCallsAreRead(Connection connection, File dbFile, PhoneCall change) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("createStatement") && args != null) {
+                try (Connection other = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+                  new JDBCDumper(other).dump(change.getCustomer(), List.of(change));
+                }
+              }
+              try {
+                return method.invoke(connection, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            });
+  }
+
+  @Test
+  void callAddedDuringABinaryExportIsNotExported(@TempDir File tempDir) throws IOException, SQLException, ParserException {
+    File dbFile = createDatabase(tempDir, createBill("Jane Doe", 5));
+    File binFile = new File(tempDir, "jane.bin");
+    PhoneCall added = new PhoneCall("Jane Doe", "503-123-4567", "503-765-4321",
+            BEGIN.minusDays(1), BEGIN.minusDays(1).plusMinutes(5));
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      Connection changing = changedBeforeCallsAreRead(connection, dbFile, added);
+      int calls = new Exporter(changing).exportCustomer("Jane Doe", Exporter.Format.BINARY, binFile.getPath());
+      assertThat(calls, equalTo(5));
+      assertThat(connection.getAutoCommit(), is(true));
+      assertThat(connection.getTransactionIsolation(), is(Connection.TRANSACTION_READ_COMMITTED));
+    }
+
+    try (FileChannel channel = new FileInputStream(binFile).getChannel()) {
+      assertThat(new BinaryParser(channel).parse().getPhoneCalls(), hasSize(5));
+    }
+  }
+
+  @Test
+  void customerIsExportedAsTheirPrettyPrintedBill(@TempDir File tempDir) throws IOException, SQLException {
+    PhoneBill bill = createBill("Jane Doe", 4);
+    File dbFile = createDatabase(tempDir, bill);
+    File prettyFile = new File(tempDir, "jane.pretty.txt");
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      new Exporter(connection).exportCustomer("Jane Doe", Exporter.Format.PRETTY, prettyFile.getPath());
+    }
+
+    StringWriter expected = new StringWriter();
+    prettyPrint(bill, expected);
+    assertThat(Files.readString(prettyFile.toPath()), equalTo(expected.toString()));
+  }
+
+  @Test
+  void customerNotInTheDatabaseHasAnEmptyBill(@TempDir File tempDir) throws IOException, SQLException {
+    File dbFile = createDatabase(tempDir, createBill("Jane Doe", 1));
+    File textFile = new File(tempDir, "nobody.txt");
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      int calls = new Exporter(connection).exportCustomer("Nobody", Exporter.Format.TEXT, textFile.getPath());
+      assertThat(calls, equalTo(0));
+    }
+
+    assertThat(Files.readString(textFile.toPath()), equalTo("Nobody\n"));
+  }
+
+  @Test
+  void everyCustomerIsExportedToTheirOwnFile(@TempDir File tempDir) throws IOException, SQLException {
+    PhoneBill jane = createBill("Jane Doe", 3);
+    PhoneBill john = createBill("John Doe", 7);
+    PhoneBill empty = new PhoneBill("No Calls");
+    File dbFile = createDatabase(tempDir, jane, empty, john);
+    File outDir = new File(tempDir, "export");
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      int customers = new Exporter(connection).exportAll(Exporter.Format.TEXT, outDir.getPath());
+      assertThat(customers, equalTo(3));
+    }
+
+    assertThat(Files.readString(new File(outDir, "Jane_Doe.txt").toPath()), equalTo(textOf(jane)));
+    assertThat(Files.readString(new File(outDir, "John_Doe.txt").toPath()), equalTo(textOf(john)));
+    assertThat(Files.readString(new File(outDir, "No_Calls.txt").toPath()), equalTo("No Calls\n"));
+  }
+
+  @Test
+  void everyCustomerIsPrettyPrintedToOneFile(@TempDir File tempDir) throws IOException, SQLException {
+    PhoneBill jane = createBill("Jane Doe", 2);
+    PhoneBill john = createBill("John Doe", 3);
+    File dbFile = createDatabase(tempDir, jane, john);
+    File prettyFile = new File(tempDir, "all.txt");
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      new Exporter(connection).exportAll(Exporter.Format.PRETTY, prettyFile.getPath());
+    }
+
+    StringWriter expected = new StringWriter();
+    prettyPrint(jane, expected);
+    prettyPrint(john, expected);
+    assertThat(Files.readString(prettyFile.toPath()), equalTo(expected.toString()));
+  }
+
+  @Test
+  void customersWhoseNamesGiveTheSameFileNameGetDifferentFiles(@TempDir File tempDir) throws IOException, SQLException {
+    File dbFile = createDatabase(tempDir, createBill("Jane Doe", 1), createBill("Jane/Doe", 2));
+    File outDir = new File(tempDir, "export");
+
+    try (Connection connection = H2DatabaseHelper.createFileBasedConnection(dbFile)) {
+      new Exporter(connection).exportAll(Exporter.Format.TEXT, outDir.getPath());
+    }
+
+    assertThat(outDir.list(), arrayContainingInAnyOrder("Jane_Doe.txt", "Jane_Doe-2.txt"));
+    assertThat(Exporter.fileNameOf(".."), equalTo("_.."));
+  }
+
+  @Test
+  void mainReportsAnUnknownFormat(@TempDir File tempDir) {
+    ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    PrintStream originalErr = System.err;
+    System.setErr(new PrintStream(errContent));
+
+    try {
+      Exporter.main(new String[]{"-format", "xml", "phonebill.db", tempDir.getPath()});
+      assertThat(errContent.toString(), containsString("Unknown format: xml"));
+      assertThat(errContent.toString(), containsString("usage:"));
+    } finally {
+      System.setErr(originalErr);
+    }
+  }
+}
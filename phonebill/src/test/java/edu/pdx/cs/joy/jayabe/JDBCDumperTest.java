@@ -1,5 +1,6 @@
 package edu.pdx.cs.joy.jayabe;
 
+import edu.pdx.cs.joy.ParserException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,6 +8,9 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -188,4 +192,200 @@ public class JDBCDumperTest {
   public void nullPhoneBillDoesNotThrowException() {
     assertDoesNotThrow(() -> dumper.dump(null));
   }
+
+  private int countPhoneCalls() throws SQLException {
+    try (Statement stmt = connection.createStatement();
+         ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM phone_calls")) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  private static PhoneCall call(String customer, int hour, String callee) {
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, hour, 0);
+    return new PhoneCall(customer, "503-123-4567", callee, begin, begin.plusMinutes(10));
+  }
+
+  @Test
+  public void callsAreInsertedInManyBatches() throws IOException, SQLException {
+    String customerName = "Batch Customer";
+    PhoneBill bill = new PhoneBill(customerName);
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 0, 0);
+    for (int i = 0; i < 25; i++) {
+      bill.addPhoneCall(new PhoneCall(customerName, "503-123-4567", "503-765-4321",
+              begin.plusMinutes(i), begin.plusMinutes(i + 1)));
+    }
+
+    new JDBCDumper(connection, 4).dump(bill);
+
+    assertThat(countPhoneCalls(), equalTo(25));
+    assertThat(connection.getAutoCommit(), equalTo(true));
+  }
+
+  @Test
+  public void callsAlreadyInTheDatabaseAreNotSavedAgain() throws IOException, SQLException {
+    String customerName = "Repeat Customer";
+    dumper.dump(customerName, List.of(call(customerName, 9, "503-765-4321"), call(customerName, 10, "503-765-4321")));
+    dumper.dump(customerName, List.of(call(customerName, 10, "503-765-4321"), call(customerName, 11, "503-765-4321")));
+
+    assertThat(countPhoneCalls(), equalTo(3));
+  }
+
+  @Test
+  public void duplicateCallsInOneDumpAreSavedOnce() throws IOException, SQLException {
+    String customerName = "Duplicate Customer";
+    // Sorted, with a duplicate among calls that begin at the same time
+    dumper.dump(customerName, List.of(call(customerName, 9, "503-765-4321"), call(customerName, 9, "503-222-3333"),
+            call(customerName, 9, "503-765-4321"), call(customerName, 10, "503-765-4321")));
+    assertThat(countPhoneCalls(), equalTo(3));
+  }
+
+  @Test
+  public void duplicateCallsOutOfOrderAreSavedOnce() throws IOException, SQLException {
+    String customerName = "Unsorted Customer";
+    new JDBCDumper(connection, 2).dump(customerName, List.of(call(customerName, 9, "503-765-4321"),
+            call(customerName, 11, "503-765-4321"), call(customerName, 10, "503-765-4321"),
+            call(customerName, 9, "503-765-4321"), call(customerName, 10, "503-765-4321")));
+    assertThat(countPhoneCalls(), equalTo(3));
+  }
+
+  @Test
+  public void batchThatFailsIsRolledBack() throws SQLException {
+    String customerName = "Failing Customer";
+    List<PhoneCall> calls = new ArrayList<>();
+    for (int hour = 0; hour < 5; hour++) {
+      calls.add(call(customerName, hour, "503-765-4321"));
+    }
+    calls.add(call(customerName, 6, "not a number"));
+
+    assertThrows(IOException.class, () -> new JDBCDumper(connection, 3).dump(customerName, calls));
+
+    // The first batch was committed; the second, which held the invalid call, was not
+    assertThat(countPhoneCalls(), equalTo(3));
+    assertThat(connection.getAutoCommit(), equalTo(true));
+  }
+
+  @Test
+  public void callsJoinTheCallersTransaction() throws IOException, SQLException {
+    String customerName = "Transaction Customer";
+    connection.setAutoCommit(false);
+    new JDBCDumper(connection, 1).dump(customerName, List.of(call(customerName, 9, "503-765-4321"),
+            call(customerName, 10, "503-765-4321")));
+    assertThat(countPhoneCalls(), equalTo(2));
+
+    connection.rollback();
+    assertThat(countPhoneCalls(), equalTo(0));
+  }
+
+  @Test
+  public void onlyCallsAddedSinceTheBillWasLoadedAreSaved() throws IOException, SQLException, ParserException {
+    String customerName = "Loaded Customer";
+    dumper.dump(customerName, List.of(call(customerName, 9, "503-765-4321"), call(customerName, 10, "503-765-4321")));
+    PhoneBill bill = new JDBCLoader(connection, customerName).parse();
+
+    // A call removed behind the loaded bill's back would come back if the bill's calls were saved again
+    try (Statement stmt = connection.createStatement()) {
+      stmt.executeUpdate("DELETE FROM phone_calls WHERE HOUR(begin) = 9");
+    }
+    bill.addPhoneCall(call(customerName, 11, "503-765-4321"));
+    dumper.dump(bill);
+
+    assertThat(countPhoneCalls(), equalTo(2));
+    assertThat(bill.getUnsavedCalls(), is(empty()));
+  }
+
+  @Test
+  public void billIsMarkedAsSavedByTheDumpersOwnTransaction() throws IOException, SQLException {
+    String customerName = "Marked Customer";
+    PhoneBill bill = new PhoneBill(customerName);
+    bill.addPhoneCall(call(customerName, 9, "503-765-4321"));
+    dumper.dump(bill);
+    assertThat(bill.getUnsavedCalls(), is(empty()));
+
+    bill.addPhoneCall(call(customerName, 10, "503-765-4321"));
+    dumper.dump(bill);
+
+    assertThat(countPhoneCalls(), equalTo(2));
+    assertThat(bill.getUnsavedCalls(), is(empty()));
+  }
+
+  @Test
+  public void billIsNotMarkedAsSavedInTheCallersTransaction() throws IOException, SQLException {
+    String customerName = "Uncommitted Customer";
+    PhoneBill bill = new PhoneBill(customerName);
+    bill.addPhoneCall(call(customerName, 9, "503-765-4321"));
+
+    connection.setAutoCommit(false);
+    dumper.dump(bill);
+    connection.rollback();
+    connection.setAutoCommit(true);
+    assertThat(bill.getUnsavedCalls().size(), equalTo(1));
+
+    dumper.dump(bill);
+    assertThat(countPhoneCalls(), equalTo(1));
+  }
+
+  @Test
+  public void billIsNotMarkedAsSavedWhenTheDumpFails() throws SQLException {
+    String customerName = "Failed Customer";
+    PhoneBill bill = new PhoneBill(customerName);
+    bill.addPhoneCall(call(customerName, 9, "503-765-4321"));
+    bill.addPhoneCall(call(customerName, 10, "not a number"));
+
+    assertThrows(IOException.class, () -> dumper.dump(bill));
+
+    assertThat(bill.getUnsavedCalls().size(), equalTo(2));
+    assertThat(countPhoneCalls(), equalTo(0));
+  }
+
+  @Test
+  public void batchSizeMustBePositive() {
+    assertThrows(IllegalArgumentException.class, () -> new JDBCDumper(connection, 0));
+  }
+
+  @Test
+  public void programsDumpingTheSameCallsAtOnceSaveEachCallOnce() throws Exception {
+    String url = "jdbc:h2:mem:jdbcdumper_concurrent_test;DB_CLOSE_DELAY=-1";
+    String customerName = "Concurrent Customer";
+    List<PhoneCall> calls = new ArrayList<>();
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 0, 0);
+    for (int i = 0; i < 2000; i++) {
+      calls.add(new PhoneCall(customerName, "503-123-4567", "503-765-4321", begin.plusMinutes(i), begin.plusMinutes(i + 1)));
+    }
+
+    try (Connection setup = DriverManager.getConnection(url)) {
+      try {
+        PhoneBillDAO.createTable(setup);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < 2; t++) {
+          Thread thread = new Thread(() -> {
+            try (Connection other = DriverManager.getConnection(url)) {
+              new JDBCDumper(other, 100).dump(customerName, calls);
+            } catch (IOException | SQLException e) {
+              failures.add(e);
+            }
+          });
+          threads.add(thread);
+          thread.start();
+        }
+        for (Thread thread : threads) {
+          thread.join();
+        }
+
+        assertThat(failures, is(empty()));
+        try (Statement stmt = setup.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*), COUNT(DISTINCT customer_id) FROM phone_calls")) {
+          rs.next();
+          assertThat(rs.getInt(1), equalTo(2000));
+          assertThat(rs.getInt(2), equalTo(1));
+        }
+
+      } finally {
+        try (Statement stmt = setup.createStatement()) {
+          stmt.execute("DROP ALL OBJECTS");
+        }
+      }
+    }
+  }
 }
@@ -217,4 +217,18 @@ public class JDBCLoaderTest {
     assertThat(loadedBill.getCustomer(), equalTo(customerName));
     assertThat(loadedBill.getPhoneCalls().size(), equalTo(1));
   }
+
+  @Test
+  public void loadedBillHasNoUnsavedCalls() throws ParserException, IOException {
+    String customerName = "Saved Customer";
+    PhoneBill saved = new PhoneBill(customerName);
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 9, 0);
+    saved.addPhoneCall(new PhoneCall(customerName, "503-123-4567", "503-765-4321", begin, begin.plusMinutes(10)));
+    new JDBCDumper(connection).dump(saved);
+
+    PhoneBill bill = new JDBCLoader(connection, customerName).parse();
+
+    assertThat(bill.getPhoneCalls().size(), equalTo(1));
+    assertThat(bill.getUnsavedCalls(), is(empty()));
+  }
 }
@@ -0,0 +1,147 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Merge class.
+ * Tests merging several sorted text files into one.
+ */
+public class MergeTest {
+
+  private static final String CUSTOMER = "Jane Doe";
+
+  private static PhoneCall call(int hour, String callee) {
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 10, hour, 0);
+    return new PhoneCall(CUSTOMER, "503-111-2222", callee, begin, begin.plusMinutes(30));
+  }
+
+  private static File writeBill(File dir, String name, String customer, PhoneCall... calls) throws IOException {
+    PhoneBill bill = new PhoneBill(customer);
+    for (PhoneCall call : calls) {
+      bill.addPhoneCall(call);
+    }
+    File file = new File(dir, name);
+    try (FileWriter writer = new FileWriter(file)) {
+      new TextDumper(writer).dump(bill);
+    }
+    return file;
+  }
+
+  private static PhoneBill readBill(File file) throws IOException, ParserException {
+    try (FileReader reader = new FileReader(file)) {
+      return new TextParser(reader).parse();
+    }
+  }
+
+  @Test
+  public void mergeWritesAllCallsInSortedOrder(@TempDir File tempDir) throws IOException, ParserException {
+    File first = writeBill(tempDir, "first.txt", CUSTOMER, call(8, "503-333-4444"), call(12, "503-333-4444"));
+    File second = writeBill(tempDir, "second.txt", CUSTOMER, call(10, "503-555-6666"));
+    File out = new File(tempDir, "merged.txt");
+
+    Merge.main(new String[]{out.getPath(), first.getPath(), second.getPath()});
+
+    PhoneBill merged = readBill(out);
+    assertThat(merged.getCustomer(), equalTo(CUSTOMER));
+    assertThat(merged.getPhoneCalls().stream().map(PhoneCall::toString).toList(),
+            contains(call(8, "503-333-4444").toString(), call(10, "503-555-6666").toString(),
+                    call(12, "503-333-4444").toString()));
+  }
+
+  @Test
+  public void dedupDropsCallsThatAppearInSeveralFiles(@TempDir File tempDir) throws IOException, ParserException {
+    File first = writeBill(tempDir, "first.txt", CUSTOMER, call(8, "503-333-4444"), call(9, "503-333-4444"));
+    File second = writeBill(tempDir, "second.txt", CUSTOMER, call(8, "503-333-4444"), call(9, "503-777-8888"));
+    File out = new File(tempDir, "merged.txt");
+
+    int dropped = Merge.merge(List.of(first.getPath(), second.getPath()), out.getPath(), true);
+
+    assertThat(dropped, equalTo(1));
+    assertThat(readBill(out).getPhoneCalls(), hasSize(3));
+  }
+
+  @Test
+  public void filesForDifferentCustomersCannotBeMerged(@TempDir File tempDir) throws IOException {
+    File first = writeBill(tempDir, "first.txt", CUSTOMER, call(8, "503-333-4444"));
+    File second = writeBill(tempDir, "second.txt", "John Doe", call(9, "503-333-4444"));
+    File out = new File(tempDir, "merged.txt");
+
+    assertThrows(IllegalArgumentException.class,
+            () -> Merge.merge(List.of(first.getPath(), second.getPath()), out.getPath(), false));
+  }
+
+  @Test
+  public void malformedLineIsReportedAsParserException(@TempDir File tempDir) throws IOException {
+    File first = writeBill(tempDir, "first.txt", CUSTOMER, call(8, "503-333-4444"));
+    File second = new File(tempDir, "second.txt");
+    try (FileWriter writer = new FileWriter(second)) {
+      writer.write(CUSTOMER + "\n" + CUSTOMER + ",not-a-number,503-333-4444,02/10/2026 09:00,02/10/2026 09:30\n");
+    }
+    File out = new File(tempDir, "merged.txt");
+
+    assertThrows(ParserException.class,
+            () -> Merge.merge(List.of(first.getPath(), second.getPath()), out.getPath(), false));
+  }
+
+  @Test
+  public void failedMergeLeavesTheOutputFileUnchanged(@TempDir File tempDir) throws IOException {
+    File first = writeBill(tempDir, "first.txt", CUSTOMER, call(8, "503-333-4444"), call(9, "503-333-4444"));
+    // Calls appended with Project4 -append are not sorted
+    File appended = new File(tempDir, "appended.txt");
+    try (FileWriter writer = new FileWriter(appended)) {
+      writer.write(CUSTOMER + "\n"
+              + CUSTOMER + ",503-111-2222,503-555-6666,02/10/2026 12:00,02/10/2026 12:30\n"
+              + CUSTOMER + ",503-111-2222,503-555-6666,02/10/2026 10:00,02/10/2026 10:30\n");
+    }
+    File out = writeBill(tempDir, "merged.txt", CUSTOMER, call(7, "503-999-0000"));
+    String before = Files.readString(out.toPath());
+
+    assertThrows(IllegalArgumentException.class,
+            () -> Merge.merge(List.of(first.getPath(), appended.getPath()), out.getPath(), false));
+
+    assertThat(Files.readString(out.toPath()), equalTo(before));
+    assertThat(tempDir.list(), arrayContainingInAnyOrder("first.txt", "appended.txt", "merged.txt"));
+  }
+
+  @Test
+  public void failedMergeDoesNotCreateTheOutputFile(@TempDir File tempDir) throws IOException {
+    File first = writeBill(tempDir, "first.txt", CUSTOMER, call(8, "503-333-4444"));
+    File out = new File(tempDir, "merged.txt");
+    File malformed = new File(tempDir, "malformed.txt");
+    try (FileWriter writer = new FileWriter(malformed)) {
+      writer.write(CUSTOMER + "\n" + CUSTOMER + ",not-a-number,503-333-4444,02/10/2026 09:00,02/10/2026 09:30\n");
+    }
+
+    assertThrows(ParserException.class,
+            () -> Merge.merge(List.of(first.getPath(), malformed.getPath()), out.getPath(), false));
+
+    assertThat(out.exists(), is(false));
+    assertThat(tempDir.list(), arrayContainingInAnyOrder("first.txt", "malformed.txt"));
+  }
+
+  @Test
+  public void missingArgumentsPrintUsage() {
+    ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    PrintStream originalErr = System.err;
+    System.setErr(new PrintStream(errContent));
+
+    try {
+      Merge.main(new String[]{"-dedup", "merged.txt"});
+    } finally {
+      System.setErr(originalErr);
+    }
+
+    assertThat(errContent.toString(), containsString("usage:"));
+  }
+}
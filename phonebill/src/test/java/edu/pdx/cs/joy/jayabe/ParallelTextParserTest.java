@@ -0,0 +1,137 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ParallelTextParser} class.
+ */
+class ParallelTextParserTest {
+
+  private static ForkJoinPool pool;
+
+  @BeforeAll
+  static void createPool() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  static void shutDownPool() {
+    pool.shutdown();
+  }
+
+  private static ParallelTextParser parser(Path file) {
+    // Tiny chunks, so that even small files are split among many tasks
+    return new ParallelTextParser(file, pool, StandardCharsets.UTF_8, 64);
+  }
+
+  private static PhoneBill parseSequentially(Path file) throws IOException, ParserException {
+    try (FileReader reader = new FileReader(file.toFile(), StandardCharsets.UTF_8)) {
+      return new TextParser(reader).parse();
+    }
+  }
+
+  private static List<String> describe(PhoneBill bill) {
+    List<String> calls = new ArrayList<>();
+    for (PhoneCall call : bill.getPhoneCalls()) {
+      calls.add(call.getCaller() + "|" + call.getCallee() + "|" + call.getBeginTime() + "|" + call.getEndTime());
+    }
+    return calls;
+  }
+
+  private static String randomBill(Random random, String customer, int calls) {
+    String[] lineEndings = {"\n", "\r\n", "\r"};
+    StringBuilder text = new StringBuilder(customer).append("\r\n");
+    LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+    for (int i = 0; i < calls; i++) {
+      LocalDateTime begin = start.plusMinutes(random.nextInt(500));
+      text.append(customer).append(",503-555-000").append(random.nextInt(3))
+              .append(",971-555-").append(1000 + random.nextInt(9000)).append(',')
+              .append(begin.format(CallLineParser.DATE_TIME_FORMATTER)).append(',')
+              .append(begin.plusMinutes(random.nextInt(60)).format(CallLineParser.DATE_TIME_FORMATTER))
+              .append(lineEndings[random.nextInt(lineEndings.length)]);
+      if (random.nextInt(20) == 0) {
+        text.append("   \n");
+      }
+    }
+    return text.toString();
+  }
+
+  @Test
+  void producesTheSameBillAsTextParser(@TempDir Path dir) throws IOException, ParserException {
+    Path file = dir.resolve("bill.txt");
+    Files.writeString(file, randomBill(new Random(13), "Zo\u00EB M\u00FCller", 3_000), StandardCharsets.UTF_8);
+
+    PhoneBill expected = parseSequentially(file);
+    PhoneBill actual = parser(file).parse();
+
+    assertThat(actual.getCustomer(), equalTo("Zo\u00EB M\u00FCller"));
+    assertThat(actual.getPhoneCalls(), hasSize(3_000));
+    assertThat(describe(actual), equalTo(describe(expected)));
+  }
+
+  @Test
+  void billWithOnlyACustomerHasNoCalls(@TempDir Path dir) throws ParserException, IOException {
+    Path file = dir.resolve("bill.txt");
+    Files.writeString(file, "Alice");
+
+    PhoneBill bill = parser(file).parse();
+
+    assertThat(bill.getCustomer(), equalTo("Alice"));
+    assertThat(bill.getPhoneCalls(), is(empty()));
+  }
+
+  @Test
+  void emptyFileThrowsParserException(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("bill.txt");
+    Files.writeString(file, "  \n");
+
+    ParserException ex = assertThrows(ParserException.class, () -> parser(file).parse());
+    assertThat(ex.getMessage(), containsString("empty or missing the customer name"));
+  }
+
+  @Test
+  void malformedLineIsReportedWithItsLineNumber(@TempDir Path dir) throws IOException {
+    String good = "Alice,503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30\n";
+    StringBuilder text = new StringBuilder("Alice\n");
+    for (int i = 0; i < 500; i++) {
+      text.append(good);
+    }
+    text.append("\n").append("Alice,503-555-1234,503-555-6789,01/15/2025 10:00\n");
+    text.append("Alice,bad,503-555-6789,01/15/2025 10:00,01/15/2025 10:30\n");
+    Path file = dir.resolve("bill.txt");
+    Files.writeString(file, text);
+
+    ParserException parallel = assertThrows(ParserException.class, () -> parser(file).parse());
+    ParserException sequential = assertThrows(ParserException.class, () -> parseSequentially(file));
+
+    assertThat(parallel.getMessage(), startsWith("Line 503: Malformatted line"));
+    assertThat(parallel.getMessage(), equalTo(sequential.getMessage()));
+  }
+
+  @Test
+  void defaultChunkSizeParsesSmallFileInOneChunk(@TempDir Path dir) throws IOException, ParserException {
+    Path file = dir.resolve("bill.txt");
+    Files.writeString(file, randomBill(new Random(5), "Alice", 200));
+
+    assertThat(describe(new ParallelTextParser(file, pool).parse()), equalTo(describe(parseSequentially(file))));
+  }
+}
@@ -5,10 +5,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * A simple example unit test that demonstrates persisting a PhoneBill
@@ -73,5 +76,163 @@ public class PhoneBillDAOTest {
     Collection<PhoneCall> fetchedCalls = fetchedBill.getPhoneCalls();
     assertThat(fetchedCalls, is(notNullValue()));
   }
-}
 
+  @Test
+  public void savingTheSameCustomerTwiceKeepsOneCustomer() throws SQLException {
+    dao.save(new PhoneBill("Jane Doe"));
+    dao.save(new PhoneBill("Jane Doe"));
+
+    try (Statement statement = connection.createStatement();
+         ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM customers")) {
+      rs.next();
+      assertThat(rs.getInt(1), equalTo(1));
+    }
+  }
+
+  @Test
+  public void databaseRejectsADuplicateCall() throws SQLException {
+    String insertCallSQL = "INSERT INTO phone_calls (customer_id, caller, callee, begin, \"end\") " +
+            "VALUES (1, '503-123-4567', '503-765-4321', TIMESTAMP '2026-02-11 10:00:00', TIMESTAMP '2026-02-11 10:30:00')";
+    try (Statement statement = connection.createStatement()) {
+      statement.executeUpdate("INSERT INTO customers (name) VALUES ('Jane Doe')");
+      statement.executeUpdate(insertCallSQL);
+
+      SQLException e = assertThrows(SQLException.class, () -> statement.executeUpdate(insertCallSQL));
+      assertThat(e.getSQLState(), equalTo("23505"));
+      assertThrows(SQLException.class, () -> statement.executeUpdate("INSERT INTO customers (name) VALUES ('Jane Doe')"));
+    }
+  }
+
+  @Test
+  public void tablesCreatedWithoutConstraintsLoseTheirDuplicates() throws SQLException {
+    try (Connection legacy = DriverManager.getConnection("jdbc:h2:mem:phonebill_legacy_test");
+         Statement statement = legacy.createStatement()) {
+      statement.execute("CREATE TABLE customers (id IDENTITY PRIMARY KEY, name VARCHAR(255))");
+      statement.execute("CREATE TABLE phone_calls (id IDENTITY PRIMARY KEY, customer_id INTEGER, " +
+              "caller CHAR(12), callee CHAR(12), begin TIMESTAMP, \"end\" TIMESTAMP, " +
+              "FOREIGN KEY (customer_id) REFERENCES customers(id))");
+      statement.executeUpdate("INSERT INTO customers (name) VALUES ('Jane Doe'), ('Jane Doe'), ('John Doe')");
+      String call = "'503-123-4567', '503-765-4321', TIMESTAMP '2026-02-11 10:00:00', TIMESTAMP '2026-02-11 10:30:00'";
+      statement.executeUpdate("INSERT INTO phone_calls (customer_id, caller, callee, begin, \"end\") VALUES " +
+              "(1, " + call + "), (2, " + call + "), (2, " + call + "), (3, " + call + ")");
+
+      PhoneBillDAO.createTable(legacy);
+
+      try (ResultSet rs = statement.executeQuery("SELECT customer_id FROM phone_calls ORDER BY customer_id")) {
+        assertTrue(rs.next());
+        assertThat(rs.getInt(1), equalTo(1));
+        assertTrue(rs.next());
+        assertThat(rs.getInt(1), equalTo(3));
+        assertFalse(rs.next());
+      }
+      assertThrows(SQLException.class, () -> statement.executeUpdate("INSERT INTO customers (name) VALUES ('John Doe')"));
+    }
+  }
+
+  /**
+   * Returns H2's plan for a statement, with every parameter set to the given values.
+   */
+  private String explain(String sql, Object... parameters) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+      for (int i = 0; i < parameters.length; i++) {
+        statement.setObject(i + 1, parameters[i]);
+      }
+      try (ResultSet rs = statement.executeQuery()) {
+        assertTrue(rs.next());
+        return rs.getString(1);
+      }
+    }
+  }
+
+  @Test
+  public void newDatabaseIsAtTheCurrentSchemaVersion() throws SQLException {
+    assertThat(PhoneBillDAO.getSchemaVersion(connection), equalTo(PhoneBillDAO.SCHEMA_VERSION));
+
+    // Creating the tables again changes nothing
+    PhoneBillDAO.createTable(connection);
+    assertThat(PhoneBillDAO.getSchemaVersion(connection), equalTo(PhoneBillDAO.SCHEMA_VERSION));
+    try (Statement statement = connection.createStatement();
+         ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM schema_version")) {
+      rs.next();
+      assertThat(rs.getInt(1), equalTo(1));
+    }
+  }
+
+  @Test
+  public void databaseFromANewerVersionIsRejected() throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.executeUpdate("UPDATE schema_version SET version = " + (PhoneBillDAO.SCHEMA_VERSION + 1));
+    }
+
+    SQLException e = assertThrows(SQLException.class, () -> PhoneBillDAO.createTable(connection));
+    assertThat(e.getMessage(), containsString("newer"));
+  }
+
+  @Test
+  public void databaseAtAnOlderVersionIsMigrated() throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE converted_files");
+      statement.executeUpdate("UPDATE schema_version SET version = 2");
+    }
+
+    PhoneBillDAO.createTable(connection);
+
+    assertThat(PhoneBillDAO.getSchemaVersion(connection), equalTo(PhoneBillDAO.SCHEMA_VERSION));
+    try (Statement statement = connection.createStatement();
+         ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM converted_files")) {
+      assertTrue(rs.next());
+    }
+  }
+
+  @Test
+  public void loaderFindsACustomersCallsThroughTheCustomerAndBeginIndex() throws SQLException {
+    String plan = explain(JDBCLoader.SELECT_CALLS_SQL, 1);
+    assertThat(plan, containsString("PHONE_CALLS_UNIQUE_INDEX"));
+    assertThat(plan, containsString("CUSTOMER_ID = ?1"));
+    assertThat(plan, not(containsString("tableScan")));
+  }
+
+  @Test
+  public void dumperChecksForADuplicateCallThroughTheUniqueIndex() throws SQLException {
+    String plan = explain(JDBCDumper.INSERT_CALL_SQL, 1, "503-123-4567", "503-765-4321",
+            Timestamp.valueOf("2026-02-11 10:00:00"), Timestamp.valueOf("2026-02-11 10:30:00"));
+    assertThat(plan, containsString("PHONE_CALLS_UNIQUE_INDEX"));
+    assertThat(plan, not(containsString("tableScan")));
+  }
+
+  @Test
+  public void loaderFindsTheCustomerThroughTheUniqueNameIndex() throws SQLException {
+    String plan = explain(JDBCLoader.SELECT_CUSTOMER_SQL, "Jane Doe");
+    assertThat(plan, containsString("CUSTOMERS_NAME_UNIQUE_INDEX"));
+    assertThat(plan, not(containsString("tableScan")));
+  }
+
+  /**
+   * H2 does not say in the plan of a merge how it finds the row with the key, which it does
+   * by looking up the key columns, so check that the key is the indexed name.
+   */
+  @Test
+  public void dumperFindsTheCustomerThroughTheUniqueNameIndex() throws SQLException {
+    String plan = explain(JDBCDumper.MERGE_CUSTOMER_SQL, "Jane Doe");
+    assertThat(plan, matchesPattern("(?is).*MERGE INTO customers \\(name\\) KEY \\(name\\).*"));
+    assertThat(indexesStartingWith("CUSTOMERS", "NAME"), hasItem(startsWith("CUSTOMERS_NAME_UNIQUE_INDEX")));
+  }
+
+  /**
+   * Returns the names of the indexes on a table whose first column is the given one.
+   */
+  private List<String> indexesStartingWith(String table, String column) throws SQLException {
+    List<String> indexes = new ArrayList<>();
+    try (PreparedStatement statement = connection.prepareStatement("SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS " +
+            "WHERE TABLE_NAME = ? AND COLUMN_NAME = ? AND ORDINAL_POSITION = 1")) {
+      statement.setString(1, table);
+      statement.setString(2, column);
+      try (ResultSet rs = statement.executeQuery()) {
+        while (rs.next()) {
+          indexes.add(rs.getString(1));
+        }
+      }
+    }
+    return indexes;
+  }
+}
@@ -0,0 +1,223 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PhoneBillDataSource class.
+ */
+public class PhoneBillDataSourceTest {
+
+  @TempDir
+  File tempDir;
+
+  private PhoneBillDataSource dataSource;
+
+  @BeforeEach
+  public void setUp() {
+    dataSource = new PhoneBillDataSource(new File(tempDir, "bills"), 2, 60_000, 200);
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    dataSource.close();
+  }
+
+  private static PhoneCall call(int day) {
+    LocalDateTime begin = LocalDateTime.of(2026, 1, day, 10, 0);
+    return new PhoneCall("Jane Doe", "503-123-4567", "503-765-4321", begin, begin.plusMinutes(30));
+  }
+
+  @Test
+  public void connectionIsReusedAfterItIsClosed() throws SQLException {
+    Connection first;
+    try (Connection connection = dataSource.getConnection()) {
+      first = connection.unwrap(Connection.class);
+    }
+    try (Connection connection = dataSource.getConnection()) {
+      assertThat(connection.unwrap(Connection.class), is(sameInstance(first)));
+    }
+    assertThat(dataSource.getOpenedCount(), is(1));
+    assertThat(dataSource.getIdleCount(), is(1));
+  }
+
+  @Test
+  public void schemaIsCreatedForTheFirstConnection() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      assertThat(PhoneBillDAO.getSchemaVersion(connection), is(PhoneBillDAO.SCHEMA_VERSION));
+    }
+  }
+
+  @Test
+  public void closedConnectionCannotBeUsed() throws SQLException {
+    Connection connection = dataSource.getConnection();
+    connection.close();
+    connection.close();
+
+    assertThat(connection.isClosed(), is(true));
+    assertThrows(SQLException.class, connection::createStatement);
+    assertThat(dataSource.getIdleCount(), is(1));
+  }
+
+  @Test
+  public void preparedStatementIsCachedAcrossLeases() throws SQLException {
+    String sql = "SELECT id FROM customers WHERE name = ?";
+    PreparedStatement first;
+    try (Connection connection = dataSource.getConnection();
+         PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setString(1, "Jane Doe");
+      statement.executeQuery().close();
+      first = statement.unwrap(PreparedStatement.class);
+    }
+
+    try (Connection connection = dataSource.getConnection();
+         PreparedStatement statement = connection.prepareStatement(sql)) {
+      assertThat(statement.unwrap(PreparedStatement.class), is(sameInstance(first)));
+      assertThat(first.isClosed(), is(false));
+    }
+  }
+
+  @Test
+  public void statementInUseIsNotHandedOutTwice() throws SQLException {
+    String sql = "SELECT COUNT(*) FROM customers";
+    try (Connection connection = dataSource.getConnection();
+         PreparedStatement outer = connection.prepareStatement(sql);
+         PreparedStatement inner = connection.prepareStatement(sql)) {
+      assertThat(inner.unwrap(PreparedStatement.class),
+              is(not(sameInstance(outer.unwrap(PreparedStatement.class)))));
+      try (ResultSet rs = inner.executeQuery()) {
+        assertThat(rs.next(), is(true));
+      }
+    }
+  }
+
+  @Test
+  public void closedStatementCannotBeUsed() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM customers");
+      statement.close();
+
+      assertThat(statement.isClosed(), is(true));
+      assertThrows(SQLException.class, statement::executeQuery);
+    }
+  }
+
+  @Test
+  public void loaderAndDumperShareTheDatabase() throws IOException, SQLException, ParserException {
+    PhoneBill bill = new PhoneBill("Jane Doe");
+    bill.addPhoneCall(call(15));
+    bill.addPhoneCall(call(16));
+    try (Connection connection = dataSource.getConnection()) {
+      new JDBCDumper(connection).dump(bill);
+    }
+
+    PhoneBill loaded;
+    try (Connection connection = dataSource.getConnection()) {
+      loaded = new JDBCLoader(connection, "Jane Doe").parse();
+    }
+
+    assertThat(loaded.getPhoneCalls().size(), is(2));
+    assertThat(dataSource.getOpenedCount(), is(1));
+  }
+
+  @Test
+  public void uncommittedWorkIsRolledBackWhenConnectionIsReturned() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement = connection.prepareStatement("INSERT INTO customers (name) VALUES (?)")) {
+        statement.setString(1, "Jane Doe");
+        statement.executeUpdate();
+      }
+    }
+
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement();
+         ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM customers")) {
+      assertThat(connection.getAutoCommit(), is(true));
+      rs.next();
+      assertThat(rs.getInt(1), is(0));
+    }
+  }
+
+  @Test
+  public void invalidConnectionIsReplaced() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.unwrap(Connection.class).close();
+    }
+    try (Connection connection = dataSource.getConnection()) {
+      assertThat(connection.isValid(1), is(true));
+    }
+    assertThat(dataSource.getOpenedCount(), is(2));
+  }
+
+  @Test
+  public void idleConnectionsAreEvicted() throws SQLException, IOException {
+    dataSource.close();
+    dataSource = new PhoneBillDataSource(new File(tempDir, "bills"), 2, 0, 200);
+    Connection physical;
+    try (Connection connection = dataSource.getConnection()) {
+      physical = connection.unwrap(Connection.class);
+    }
+
+    dataSource.evictIdle();
+
+    assertThat(dataSource.getIdleCount(), is(0));
+    assertThat(physical.isClosed(), is(true));
+  }
+
+  @Test
+  public void waitingForABusyPoolTimesOut() throws SQLException {
+    Connection first = dataSource.getConnection();
+    Connection second = dataSource.getConnection();
+    try {
+      SQLException e = assertThrows(SQLException.class, dataSource::getConnection);
+      assertThat(e.getMessage(), containsString("Timed out"));
+
+    } finally {
+      first.close();
+      second.close();
+    }
+
+    try (Connection connection = dataSource.getConnection()) {
+      assertThat(connection.isClosed(), is(false));
+    }
+  }
+
+  @Test
+  public void closedDataSourceHandsOutNoConnections() throws SQLException, IOException {
+    Connection connection = dataSource.getConnection();
+    Connection physical = connection.unwrap(Connection.class);
+    dataSource.close();
+    connection.close();
+
+    assertThat(physical.isClosed(), is(true));
+    assertThrows(SQLException.class, dataSource::getConnection);
+  }
+
+  @Test
+  public void sameFileHasOneSharedDataSource() throws IOException {
+    File dbFile = new File(tempDir, "shared");
+    PhoneBillDataSource shared = PhoneBillDataSource.forFile(dbFile);
+    try {
+      assertThat(PhoneBillDataSource.forFile(dbFile.getAbsoluteFile()), is(sameInstance(shared)));
+
+      shared.close();
+      assertThat(PhoneBillDataSource.forFile(dbFile), is(not(sameInstance(shared))));
+
+    } finally {
+      PhoneBillDataSource.forFile(dbFile).close();
+    }
+  }
+}
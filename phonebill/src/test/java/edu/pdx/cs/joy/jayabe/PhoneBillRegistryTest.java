@@ -0,0 +1,120 @@
+package edu.pdx.cs.joy.jayabe;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PhoneBillRegistry} class.
+ */
+class PhoneBillRegistryTest {
+
+  private static PhoneCall call(String customer, int minute) {
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 1, 0, 0).plusMinutes(minute);
+    return new PhoneCall(customer, "503-123-4567", "503-765-4321", begin, begin.plusMinutes(1));
+  }
+
+  @Test
+  void callsAreAddedToTheirCustomersBills() {
+    PhoneBillRegistry registry = new PhoneBillRegistry();
+    registry.addPhoneCall(call("Alice", 1));
+    registry.addPhoneCall(call("Bob", 2));
+    registry.addPhoneCall(call("Alice", 3));
+
+    assertThat(registry.getCustomers(), containsInAnyOrder("Alice", "Bob"));
+    assertThat(registry.snapshot("Alice").getPhoneCalls(), hasSize(2));
+    assertThat(registry.snapshot("Bob").getPhoneCalls(), hasSize(1));
+    assertNull(registry.snapshot("Carol"));
+  }
+
+  @Test
+  void snapshotIsNotAffectedByLaterCalls() {
+    PhoneBillRegistry registry = new PhoneBillRegistry(4);
+    registry.addPhoneCall(call("Alice", 1));
+
+    SortedMap<String, PhoneBill> snapshot = registry.snapshot();
+    registry.addPhoneCall(call("Alice", 2));
+    registry.addPhoneCall(call("Bob", 3));
+
+    assertThat(snapshot.keySet(), contains("Alice"));
+    assertThat(snapshot.get("Alice").getPhoneCalls(), hasSize(1));
+    assertThat(registry.snapshot().get("Alice").getPhoneCalls(), hasSize(2));
+  }
+
+  @Test
+  void callsCanBeAddedFromManyThreads() throws Exception {
+    int threads = 8;
+    int customers = 200;
+    int callsPerCustomerPerThread = 25;
+    PhoneBillRegistry registry = new PhoneBillRegistry();
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < callsPerCustomerPerThread; i++) {
+            for (int c = 0; c < customers; c++) {
+              registry.addPhoneCall(call("Customer " + c, thread * 1000 + i));
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    SortedMap<String, PhoneBill> snapshot = registry.snapshot();
+    assertThat(snapshot.size(), equalTo(customers));
+    for (PhoneBill bill : snapshot.values()) {
+      assertThat(bill.getPhoneCalls(), hasSize(threads * callsPerCustomerPerThread));
+    }
+  }
+
+  @Test
+  void callsCanBeAddedWhileASnapshotIsBeingBuilt() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // A single stripe, so that holding any stripe would block every other thread
+      PhoneBillRegistry registry = new PhoneBillRegistry(1) {
+        @Override
+        PhoneBill copyOf(String customer, boolean rejectDuplicates, List<PhoneCall> calls) {
+          try {
+            executor.submit(() -> addPhoneCall(call("Bob", 2))).get(5, TimeUnit.SECONDS);
+          } catch (Exception e) {
+            throw new AssertionError("Adding a call was blocked while the snapshot was built", e);
+          }
+          return super.copyOf(customer, rejectDuplicates, calls);
+        }
+      };
+      registry.addPhoneCall(call("Alice", 1));
+
+      SortedMap<String, PhoneBill> snapshot = registry.snapshot();
+
+      assertThat(snapshot.keySet(), contains("Alice"));
+      assertThat(registry.getCustomers(), containsInAnyOrder("Alice", "Bob"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void numberOfStripesMustBePositive() {
+    assertThrows(IllegalArgumentException.class, () -> new PhoneBillRegistry(0));
+  }
+}
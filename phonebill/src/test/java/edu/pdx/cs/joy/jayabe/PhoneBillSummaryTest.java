@@ -0,0 +1,94 @@
+package edu.pdx.cs.joy.jayabe;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PhoneBillSummary} class.
+ */
+class PhoneBillSummaryTest {
+
+  private static PhoneCall call(String caller, LocalDateTime begin, int minutes) {
+    return new PhoneCall("Alice", caller, "503-765-4321", begin, begin.plusMinutes(minutes));
+  }
+
+  @Test
+  void emptyBillHasEmptySummary() {
+    PhoneBillSummary summary = new PhoneBill("Alice").getSummary();
+
+    assertThat(summary.getCallCount(), equalTo(0));
+    assertThat(summary.getTotalMinutes(), equalTo(0L));
+    assertNull(summary.getLongestCall());
+    assertNull(summary.getFirstCall());
+    assertNull(summary.getLastCall());
+    assertThat(summary.getMinutesPerDay().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  void summaryIsUpdatedAsCallsAreAdded() {
+    PhoneBill bill = new PhoneBill("Alice");
+    PhoneCall second = call("503-111-1111", LocalDateTime.of(2026, 1, 27, 14, 0), 45);
+    PhoneCall first = call("503-222-2222", LocalDateTime.of(2026, 1, 27, 9, 0), 10);
+    PhoneCall third = call("503-333-3333", LocalDateTime.of(2026, 1, 28, 8, 0), 5);
+
+    bill.addPhoneCall(second);
+    bill.addPhoneCall(first);
+    bill.addPhoneCall(third);
+
+    PhoneBillSummary summary = bill.getSummary();
+    assertThat(summary.getCallCount(), equalTo(3));
+    assertThat(summary.getTotalMinutes(), equalTo(60L));
+    assertSame(second, summary.getLongestCall());
+    assertThat(summary.getLongestCallMinutes(), equalTo(45L));
+    assertSame(first, summary.getFirstCall());
+    assertSame(third, summary.getLastCall());
+    assertThat(summary.getMinutesPerDay().get(LocalDate.of(2026, 1, 27)), equalTo(55L));
+    assertThat(summary.getMinutesPerDay().get(LocalDate.of(2026, 1, 28)), equalTo(5L));
+  }
+
+  @Test
+  void summaryOfOtherBillsIsComputedFromTheirCalls() {
+    PhoneCallTable table = new PhoneCallTable("Alice");
+    table.addPhoneCall(call("503-111-1111", LocalDateTime.of(2026, 1, 27, 14, 0), 45));
+    table.addPhoneCall(call("503-222-2222", LocalDateTime.of(2026, 1, 27, 9, 0), 10));
+
+    PhoneBillSummary summary = PhoneBillSummary.of(table);
+
+    assertThat(summary.getCallCount(), equalTo(2));
+    assertThat(summary.getTotalMinutes(), equalTo(55L));
+    assertThat(summary.getFirstCall().getCaller(), equalTo("503-222-2222"));
+  }
+
+  @Test
+  void summaryOfStreamedCallsIsComputedInOnePass() throws Exception {
+    String content = "Alice\n"
+            + "Alice,503-111-1111,503-765-4321,01/27/2026 14:00,01/27/2026 14:45\n"
+            + "Alice,503-222-2222,503-765-4321,01/26/2026 09:00,01/26/2026 09:10\n";
+
+    PhoneBillSummary summary;
+    try (Stream<PhoneCall> calls = new TextParser(new StringReader(content)).stream()) {
+      summary = PhoneBillSummary.of(calls::iterator);
+    }
+
+    assertThat(summary.getCallCount(), equalTo(2));
+    assertThat(summary.getTotalMinutes(), equalTo(55L));
+    assertThat(summary.getFirstCall().getCaller(), equalTo("503-222-2222"));
+    assertThat(summary.getLongestCallMinutes(), equalTo(45L));
+  }
+
+  @Test
+  void minutesPerDayIsReadOnly() {
+    PhoneBillSummary summary = new PhoneBill("Alice").getSummary();
+
+    assertThrows(UnsupportedOperationException.class,
+            () -> summary.getMinutesPerDay().put(LocalDate.of(2026, 1, 1), 1L));
+  }
+}
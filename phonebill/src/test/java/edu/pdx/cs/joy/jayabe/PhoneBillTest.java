@@ -3,7 +3,9 @@ package edu.pdx.cs.joy.jayabe;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -59,4 +61,215 @@ public class PhoneBillTest {
         assertTrue(calls.contains(call1));
         assertTrue(calls.contains(call2));
     }
+
+    @Test
+    public void testPhoneCallsAreSortedAsTheyAreAdded() {
+        PhoneBill phoneBill = new PhoneBill("Frank");
+
+        PhoneCall late = new PhoneCall("Frank", "360-910-6767", "503-830-0138",
+                LocalDateTime.of(2021, 10, 12, 9, 0), LocalDateTime.of(2021, 10, 12, 9, 5));
+        PhoneCall early = new PhoneCall("Frank", "360-910-6767", "503-830-0138",
+                LocalDateTime.of(2021, 10, 10, 9, 0), LocalDateTime.of(2021, 10, 10, 9, 5));
+        PhoneCall sameTimeLowerCaller = new PhoneCall("Frank", "111-111-1111", "503-830-0138",
+                LocalDateTime.of(2021, 10, 12, 9, 0), LocalDateTime.of(2021, 10, 12, 9, 30));
+
+        phoneBill.addPhoneCall(late);
+        phoneBill.addPhoneCall(early);
+        phoneBill.addPhoneCall(sameTimeLowerCaller);
+
+        List<PhoneCall> calls = new ArrayList<>(phoneBill.getPhoneCalls());
+        assertEquals(List.of(early, sameTimeLowerCaller, late), calls);
+    }
+
+    @Test
+    public void testCallsWithSameBeginTimeAndCallerAreAllKept() {
+        PhoneBill phoneBill = new PhoneBill("Frank");
+        LocalDateTime begin = LocalDateTime.of(2021, 10, 10, 10, 0);
+
+        PhoneCall first = new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(5));
+        PhoneCall second = new PhoneCall("Frank", "360-910-6767", "971-222-3333", begin, begin.plusMinutes(10));
+        PhoneCall third = new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(5));
+
+        phoneBill.addPhoneCall(first);
+        phoneBill.addPhoneCall(second);
+        phoneBill.addPhoneCall(third);
+
+        Collection<PhoneCall> calls = phoneBill.getPhoneCalls();
+        assertEquals(3, calls.size());
+        assertEquals(List.of(first, second, third), new ArrayList<>(calls));
+    }
+
+    @Test
+    public void testPhoneCallsViewIsReadOnlyAndLive() {
+        PhoneBill phoneBill = new PhoneBill("Frank");
+        Collection<PhoneCall> calls = phoneBill.getPhoneCalls();
+
+        PhoneCall call = new PhoneCall("Frank", "360-910-6767", "503-830-0138",
+                LocalDateTime.of(2021, 10, 10, 10, 0), LocalDateTime.of(2021, 10, 10, 10, 25));
+        assertThrows(UnsupportedOperationException.class, () -> calls.add(call));
+
+        phoneBill.addPhoneCall(call);
+        assertEquals(1, calls.size());
+        assertSame(calls, phoneBill.getPhoneCalls());
+    }
+
+    private static PhoneBill billWithCallsOnDays(int... days) {
+        PhoneBill phoneBill = new PhoneBill("Frank");
+        for (int day : days) {
+            LocalDateTime begin = LocalDateTime.of(2021, 10, day, 10, 0);
+            phoneBill.addPhoneCall(new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(15)));
+        }
+        return phoneBill;
+    }
+
+    private static List<Integer> daysOf(Collection<PhoneCall> calls) {
+        List<Integer> days = new ArrayList<>();
+        for (PhoneCall call : calls) {
+            days.add(call.getBeginTime().getDayOfMonth());
+        }
+        return days;
+    }
+
+    @Test
+    public void testCallsBetweenIncludesBothEndpoints() {
+        PhoneBill phoneBill = billWithCallsOnDays(5, 1, 3, 4, 2);
+
+        Collection<PhoneCall> calls = phoneBill.callsBetween(
+                LocalDateTime.of(2021, 10, 2, 10, 0), LocalDateTime.of(2021, 10, 4, 10, 0));
+
+        assertEquals(List.of(2, 3, 4), daysOf(calls));
+        assertEquals(3, calls.size());
+    }
+
+    @Test
+    public void testCallsAfterAndBeforeAreInclusive() {
+        PhoneBill phoneBill = billWithCallsOnDays(1, 2, 3, 4);
+        LocalDateTime third = LocalDateTime.of(2021, 10, 3, 10, 0);
+
+        assertEquals(List.of(3, 4), daysOf(phoneBill.callsAfter(third)));
+        assertEquals(List.of(1, 2, 3), daysOf(phoneBill.callsBefore(third)));
+    }
+
+    @Test
+    public void testEmptyRangeHasNoCalls() {
+        PhoneBill phoneBill = billWithCallsOnDays(1, 5);
+
+        Collection<PhoneCall> calls = phoneBill.callsBetween(
+                LocalDateTime.of(2021, 10, 2, 0, 0), LocalDateTime.of(2021, 10, 4, 0, 0));
+
+        assertTrue(calls.isEmpty());
+        assertEquals(0, calls.size());
+    }
+
+    @Test
+    public void testRangeViewReflectsCallsAddedLater() {
+        PhoneBill phoneBill = billWithCallsOnDays(1);
+        Collection<PhoneCall> calls = phoneBill.callsAfter(LocalDateTime.of(2021, 10, 2, 0, 0));
+        assertTrue(calls.isEmpty());
+
+        LocalDateTime begin = LocalDateTime.of(2021, 10, 3, 8, 0);
+        phoneBill.addPhoneCall(new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(1)));
+
+        assertEquals(List.of(3), daysOf(calls));
+    }
+
+    @Test
+    public void testCallsBetweenRejectsBackwardsRange() {
+        PhoneBill phoneBill = billWithCallsOnDays(1);
+
+        assertThrows(IllegalArgumentException.class, () -> phoneBill.callsBetween(
+                LocalDateTime.of(2021, 10, 4, 0, 0), LocalDateTime.of(2021, 10, 2, 0, 0)));
+    }
+
+    @Test
+    public void testCallsActiveAtIncludesCallsThatBeganEarlier() {
+        PhoneBill phoneBill = new PhoneBill("Frank");
+        LocalDateTime nine = LocalDateTime.of(2021, 10, 10, 9, 0);
+        PhoneCall longCall = new PhoneCall("Frank", "360-910-6767", "503-830-0138", nine, nine.plusHours(2));
+        PhoneCall shortCall = new PhoneCall("Frank", "360-910-6767", "503-830-0138", nine.plusMinutes(30), nine.plusMinutes(35));
+        phoneBill.addPhoneCall(shortCall);
+        phoneBill.addPhoneCall(longCall);
+
+        assertEquals(List.of(longCall), phoneBill.callsActiveAt(nine.plusHours(1)));
+        assertEquals(List.of(longCall, shortCall), phoneBill.callsActiveAt(nine.plusMinutes(32)));
+        assertEquals(List.of(longCall, shortCall),
+                phoneBill.callsOverlapping(nine.plusMinutes(20), nine.plusMinutes(40)));
+        assertTrue(phoneBill.callsBetween(nine.plusMinutes(40), nine.plusMinutes(50)).isEmpty());
+    }
+
+    @Test
+    public void testDuplicatesAreKeptByDefault() {
+        PhoneBill phoneBill = new PhoneBill("Frank");
+        LocalDateTime begin = LocalDateTime.of(2021, 10, 10, 10, 0);
+        phoneBill.addPhoneCall(new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(5)));
+        phoneBill.addPhoneCall(new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(5)));
+
+        assertFalse(phoneBill.isRejectingDuplicates());
+        assertEquals(2, phoneBill.getPhoneCalls().size());
+        assertEquals(0, phoneBill.getRejectedDuplicateCount());
+    }
+
+    @Test
+    public void testDuplicatesAreRejectedAndCounted() {
+        PhoneBill phoneBill = new PhoneBill("Frank", true);
+        LocalDateTime begin = LocalDateTime.of(2021, 10, 10, 10, 0);
+        PhoneCall original = new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(5));
+        PhoneCall otherCallee = new PhoneCall("Frank", "360-910-6767", "971-222-3333", begin, begin.plusMinutes(5));
+        PhoneCall otherEnd = new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(6));
+
+        phoneBill.addPhoneCall(original);
+        phoneBill.addPhoneCall(otherCallee);
+        phoneBill.addPhoneCall(otherEnd);
+        phoneBill.addPhoneCall(new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(5)));
+        phoneBill.addPhoneCall(new PhoneCall("Frank", "360-910-6767", "971-222-3333", begin, begin.plusMinutes(5)));
+
+        assertTrue(phoneBill.isRejectingDuplicates());
+        assertEquals(List.of(original, otherCallee, otherEnd), new ArrayList<>(phoneBill.getPhoneCalls()));
+        assertEquals(2, phoneBill.getRejectedDuplicateCount());
+        assertEquals(3, phoneBill.getSummary().getCallCount());
+    }
+
+    @Test
+    public void testManyDistinctCallsAreNotMistakenForDuplicates() {
+        PhoneBill phoneBill = new PhoneBill("Frank", true);
+        LocalDateTime begin = LocalDateTime.of(2021, 10, 10, 10, 0);
+        for (int i = 0; i < 10_000; i++) {
+            phoneBill.addPhoneCall(new PhoneCall("Frank", "360-910-6767", "503-830-0138",
+                    begin.plusMinutes(i / 10), begin.plusMinutes(i / 10 + i % 10)));
+        }
+
+        assertEquals(10_000, phoneBill.getPhoneCalls().size());
+        assertEquals(0, phoneBill.getRejectedDuplicateCount());
+    }
+
+    @Test
+    public void testAllCallsAreUnsavedUntilTheBillIsMarked() {
+        PhoneBill phoneBill = new PhoneBill("Frank");
+        LocalDateTime begin = LocalDateTime.of(2021, 10, 10, 10, 0);
+        phoneBill.addPhoneCall(new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(5)));
+
+        assertEquals(new ArrayList<>(phoneBill.getPhoneCalls()), new ArrayList<>(phoneBill.getUnsavedCalls()));
+
+        phoneBill.markSaved();
+        assertTrue(phoneBill.getUnsavedCalls().isEmpty());
+    }
+
+    @Test
+    public void testOnlyCallsAddedSinceTheBillWasMarkedAreUnsaved() {
+        PhoneBill phoneBill = new PhoneBill("Frank", true);
+        LocalDateTime begin = LocalDateTime.of(2021, 10, 10, 10, 0);
+        PhoneCall saved = new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(5));
+        phoneBill.addPhoneCall(saved);
+        phoneBill.markSaved();
+
+        PhoneCall later = new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin.plusHours(1), begin.plusHours(2));
+        PhoneCall earlier = new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin.minusHours(1), begin);
+        phoneBill.addPhoneCall(later);
+        phoneBill.addPhoneCall(earlier);
+        phoneBill.addPhoneCall(new PhoneCall("Frank", "360-910-6767", "503-830-0138", begin, begin.plusMinutes(5)));
+
+        assertEquals(List.of(later, earlier), new ArrayList<>(phoneBill.getUnsavedCalls()));
+        assertEquals(3, phoneBill.getPhoneCalls().size());
+        assertThrows(UnsupportedOperationException.class, () -> phoneBill.getUnsavedCalls().clear());
+    }
 }
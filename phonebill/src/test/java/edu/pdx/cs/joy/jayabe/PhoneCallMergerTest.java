@@ -0,0 +1,109 @@
+package edu.pdx.cs.joy.jayabe;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PhoneCallMerger} class.
+ */
+class PhoneCallMergerTest {
+
+  private static final LocalDateTime NOON = LocalDateTime.of(2026, 2, 1, 12, 0);
+
+  private static PhoneCall call(int beginMinute, String callee) {
+    return new PhoneCall("Alice", "503-123-4567", callee, NOON.plusMinutes(beginMinute),
+            NOON.plusMinutes(beginMinute + 5));
+  }
+
+  private static List<PhoneCall> drain(Iterator<PhoneCall> iterator) {
+    List<PhoneCall> calls = new ArrayList<>();
+    iterator.forEachRemaining(calls::add);
+    return calls;
+  }
+
+  @Test
+  void mergingNoSourcesReturnsNoCalls() {
+    assertFalse(new PhoneCallMerger(List.of(), false).hasNext());
+  }
+
+  @Test
+  void callsFromSeveralBillsAreMergedInSortedOrder() {
+    PhoneBill first = new PhoneBill("Alice");
+    PhoneBill second = new PhoneBill("Alice");
+    PhoneCall a = call(1, "503-000-0001");
+    PhoneCall b = call(2, "503-000-0002");
+    PhoneCall c = call(3, "503-000-0003");
+    PhoneCall d = call(4, "503-000-0004");
+    first.addPhoneCall(a);
+    first.addPhoneCall(d);
+    second.addPhoneCall(b);
+    second.addPhoneCall(c);
+
+    assertThat(drain(PhoneCallMerger.of(List.of(first, second, new PhoneBill("Alice")), false)),
+            contains(a, b, c, d));
+  }
+
+  @Test
+  void equalCallsAreReturnedInTheOrderOfTheirSources() {
+    PhoneCall fromFirst = call(1, "503-000-0001");
+    PhoneCall fromSecond = call(1, "503-000-0002");
+
+    PhoneCallMerger merger = new PhoneCallMerger(
+            List.of(List.of(fromFirst).iterator(), List.of(fromSecond).iterator()), false);
+
+    assertThat(drain(merger), contains(fromFirst, fromSecond));
+  }
+
+  @Test
+  void duplicatesAreDroppedOnlyWhenAsked() {
+    List<PhoneCall> first = List.of(call(1, "503-000-0001"), call(2, "503-000-0002"));
+    List<PhoneCall> second = List.of(call(1, "503-000-0001"), call(1, "503-000-0009"));
+
+    PhoneCallMerger keeping = new PhoneCallMerger(List.of(first.iterator(), second.iterator()), false);
+    assertThat(drain(keeping), hasSize(4));
+    assertThat(keeping.getDroppedDuplicateCount(), equalTo(0));
+
+    PhoneCallMerger dropping = new PhoneCallMerger(List.of(first.iterator(), second.iterator()), true);
+    assertThat(drain(dropping), contains(first.get(0), second.get(1), first.get(1)));
+    assertThat(dropping.getDroppedDuplicateCount(), equalTo(1));
+  }
+
+  @Test
+  void unsortedSourceIsRejected() {
+    List<PhoneCall> unsorted = List.of(call(2, "503-000-0002"), call(1, "503-000-0001"));
+    PhoneCallMerger merger = new PhoneCallMerger(List.of(unsorted.iterator()), false);
+
+    assertThrows(IllegalArgumentException.class, () -> drain(merger));
+  }
+
+  @Test
+  void mergeMatchesSortingAllCalls() {
+    Random random = new Random(10);
+    List<PhoneBill> bills = new ArrayList<>();
+    PhoneBill everything = new PhoneBill("Alice");
+    for (int b = 0; b < 7; b++) {
+      PhoneBill bill = new PhoneBill("Alice");
+      for (int i = 0; i < 500; i++) {
+        PhoneCall call = call(random.nextInt(2_000), "503-000-000" + random.nextInt(10));
+        bill.addPhoneCall(call);
+      }
+      bills.add(bill);
+    }
+    for (PhoneBill bill : bills) {
+      for (PhoneCall call : bill.getPhoneCalls()) {
+        everything.addPhoneCall(call);
+      }
+    }
+
+    assertThat(drain(PhoneCallMerger.of(bills, false)), equalTo(new ArrayList<>(everything.getPhoneCalls())));
+  }
+}
@@ -0,0 +1,140 @@
+package edu.pdx.cs.joy.jayabe;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PhoneCallTable} class.
+ */
+class PhoneCallTableTest {
+
+  private static PhoneCall call(String caller, LocalDateTime begin, int minutes) {
+    return new PhoneCall("Alice", caller, "503-765-4321", begin, begin.plusMinutes(minutes));
+  }
+
+  @Test
+  void newTableIsEmpty() {
+    PhoneCallTable table = new PhoneCallTable("Alice");
+
+    assertThat(table.getCustomer(), equalTo("Alice"));
+    assertThat(table.size(), equalTo(0));
+    assertThat(table.getPhoneCalls(), is(empty()));
+  }
+
+  @Test
+  void callsAreReconstructedFromTheirColumns() {
+    PhoneCallTable table = new PhoneCallTable("Alice");
+    LocalDateTime begin = LocalDateTime.of(2026, 1, 27, 10, 0);
+    table.addPhoneCall(new PhoneCall("Alice", "503-123-4567", "971-000-0042", begin, begin.plusMinutes(30)));
+
+    PhoneCall call = table.getPhoneCall(0);
+    assertThat(call.getCustomer(), equalTo("Alice"));
+    assertThat(call.getCaller(), equalTo("503-123-4567"));
+    assertThat(call.getCallee(), equalTo("971-000-0042"));
+    assertThat(call.getBeginTime(), equalTo(begin));
+    assertThat(call.getEndTime(), equalTo(begin.plusMinutes(30)));
+  }
+
+  @Test
+  void callsAreReturnedInTheSameOrderAsAPhoneBill() {
+    LocalDateTime morning = LocalDateTime.of(2026, 1, 27, 9, 0);
+    LocalDateTime evening = LocalDateTime.of(2026, 1, 27, 19, 0);
+    List<PhoneCall> calls = List.of(
+            call("503-999-9999", evening, 5),
+            call("503-111-1111", morning, 10),
+            call("503-999-9999", morning, 15),
+            call("503-111-1111", morning, 20),
+            call("503-000-0000", evening, 25));
+
+    PhoneCallTable table = new PhoneCallTable("Alice", 2);
+    PhoneBill bill = new PhoneBill("Alice");
+    for (PhoneCall call : calls) {
+      table.addPhoneCall(call);
+      bill.addPhoneCall(call);
+    }
+
+    assertThat(table.size(), equalTo(calls.size()));
+    assertThat(describe(table.getPhoneCalls()), equalTo(describe(bill.getPhoneCalls())));
+  }
+
+  @Test
+  void tableCanBeDumpedAsText() throws IOException {
+    PhoneCallTable table = new PhoneCallTable("Alice");
+    PhoneBill bill = new PhoneBill("Alice");
+    LocalDateTime begin = LocalDateTime.of(2026, 1, 27, 10, 0);
+    for (int i = 3; i > 0; i--) {
+      PhoneCall call = call("503-123-456" + i, begin.plusHours(i), i);
+      table.addPhoneCall(call);
+      bill.addPhoneCall(call);
+    }
+
+    StringWriter fromTable = new StringWriter();
+    new TextDumper(fromTable).dump(table);
+    StringWriter fromBill = new StringWriter();
+    new TextDumper(fromBill).dump(bill);
+
+    assertThat(fromTable.toString(), equalTo(fromBill.toString()));
+  }
+
+  @Test
+  void tableCanBePrettyPrinted() throws IOException {
+    PhoneCallTable table = new PhoneCallTable("Alice");
+    table.addPhoneCall(call("503-123-4567", LocalDateTime.of(2026, 1, 27, 10, 0), 30));
+
+    StringWriter sw = new StringWriter();
+    new PrettyPrinter(sw).dump(table);
+
+    assertThat(sw.toString(), containsString("503-123-4567"));
+    assertThat(sw.toString(), containsString("30 minutes"));
+  }
+
+  @Test
+  void invalidPhoneNumberIsRejected() {
+    PhoneCallTable table = new PhoneCallTable("Alice");
+    PhoneCall call = call("5031234567", LocalDateTime.of(2026, 1, 27, 10, 0), 30);
+
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> table.addPhoneCall(call));
+    assertThat(ex.getMessage(), containsString("nnn-nnn-nnnn"));
+  }
+
+  @Test
+  void timesWithSecondsAreRejected() {
+    PhoneCallTable table = new PhoneCallTable("Alice");
+    PhoneCall call = call("503-123-4567", LocalDateTime.of(2026, 1, 27, 10, 0, 30), 30);
+
+    assertThrows(IllegalArgumentException.class, () -> table.addPhoneCall(call));
+  }
+
+  @Test
+  void viewIsReadOnly() {
+    PhoneCallTable table = new PhoneCallTable("Alice");
+    PhoneCall call = call("503-123-4567", LocalDateTime.of(2026, 1, 27, 10, 0), 30);
+
+    assertThrows(UnsupportedOperationException.class, () -> table.getPhoneCalls().add(call));
+  }
+
+  @Test
+  void getPhoneCallRejectsIndexOutOfBounds() {
+    PhoneCallTable table = new PhoneCallTable("Alice");
+
+    assertThrows(IndexOutOfBoundsException.class, () -> table.getPhoneCall(0));
+  }
+
+  private static List<String> describe(Collection<PhoneCall> calls) {
+    List<String> descriptions = new ArrayList<>();
+    for (PhoneCall call : calls) {
+      descriptions.add(call.getCaller() + " " + call.getBeginTime() + " " + call.getEndTime());
+    }
+    return descriptions;
+  }
+}
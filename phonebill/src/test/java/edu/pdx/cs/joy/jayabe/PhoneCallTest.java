@@ -3,8 +3,12 @@ package edu.pdx.cs.joy.jayabe;
 import edu.pdx.cs.joy.AbstractPhoneCall;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.*;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -151,4 +155,126 @@ public class PhoneCallTest {
         
         assertThat(call, instanceOf(Comparable.class));
     }
+
+    @Test
+    void testPhoneNumbersArePackedAndFormattedWhenAskedFor() {
+        LocalDateTime begin = LocalDateTime.of(2025, 1, 15, 10, 0);
+        PhoneCall call = new PhoneCall("John", "503-123-4567", "971-987-6543", begin, begin.plusMinutes(30));
+
+        assertEquals(5031234567L, call.getPackedCaller());
+        assertEquals(9719876543L, call.getPackedCallee());
+        assertEquals("503-123-4567", call.getCaller());
+        assertEquals("971-987-6543", call.getCallee());
+        assertEquals(PhoneNumber.of(5031234567L), call.getCallerNumber());
+    }
+
+    @Test
+    void testInvalidPhoneNumberIsKeptAsGiven() {
+        LocalDateTime begin = LocalDateTime.of(2025, 1, 15, 10, 0);
+        PhoneCall call = new PhoneCall("John", "5031234567", "971-987-6543", begin, begin.plusMinutes(30));
+
+        assertEquals(-1, call.getPackedCaller());
+        assertEquals("5031234567", call.getCaller());
+        assertEquals("971-987-6543", call.getCallee());
+        assertThrows(IllegalArgumentException.class, call::getCallerNumber);
+    }
+
+    @Test
+    void testCompareToOrdersCallersLikeTheirFormattedNumbers() {
+        LocalDateTime begin = LocalDateTime.of(2025, 1, 15, 10, 0);
+        PhoneCall low = new PhoneCall("John", "503-123-4567", "971-987-6543", begin, begin.plusMinutes(30));
+        PhoneCall high = new PhoneCall("John", "971-000-0000", "971-987-6543", begin, begin.plusMinutes(30));
+        PhoneCall invalid = new PhoneCall("John", "503-999", "971-987-6543", begin, begin.plusMinutes(30));
+
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(high.compareTo(low) > 0);
+        assertEquals(Integer.signum("503-123-4567".compareTo("503-999")), Integer.signum(low.compareTo(invalid)));
+        assertEquals(Integer.signum("971-000-0000".compareTo("503-999")), Integer.signum(high.compareTo(invalid)));
+    }
+
+    @Test
+    void testHasSameCalleeComparesPackedAndInvalidNumbers() {
+        LocalDateTime begin = LocalDateTime.of(2025, 1, 15, 10, 0);
+        PhoneCall call = new PhoneCall("John", "503-123-4567", "971-987-6543", begin, begin.plusMinutes(30));
+
+        assertTrue(call.hasSameCallee(new PhoneCall("John", "503-123-4567", "971-987-6543", begin, begin)));
+        assertFalse(call.hasSameCallee(new PhoneCall("John", "503-123-4567", "971-987-6544", begin, begin)));
+        PhoneCall invalid = new PhoneCall("John", "503-123-4567", "bad", begin, begin);
+        assertTrue(invalid.hasSameCallee(new PhoneCall("John", "503-123-4567", "bad", begin, begin)));
+        assertFalse(invalid.hasSameCallee(new PhoneCall("John", "503-123-4567", "worse", begin, begin)));
+    }
+
+    /**
+     * Before phone numbers were packed, every parsed call held its own caller and callee
+     * strings. Packed calls hold no phone number strings at all, only the bill's customer name.
+     */
+    @Test
+    void testPackedCallsRetainNoPhoneNumberStrings() throws Exception {
+        int calls = 100_000;
+        StringBuilder text = new StringBuilder("Jane Doe\n");
+        LocalDateTime begin = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < calls; i++) {
+            String time = begin.plusMinutes(i).format(FORMATTER);
+            text.append("Jane Doe,503-555-").append(1000 + i % 9000).append(",971-555-6789,")
+                    .append(time).append(',').append(time).append('\n');
+        }
+
+        PhoneBill bill = new TextParser(new StringReader(text.toString())).parse();
+        List<BaselinePhoneCall> baseline = BaselinePhoneCall.parse(text.toString());
+
+        assertEquals(calls, bill.getPhoneCalls().size());
+        assertEquals(calls, baseline.size());
+        assertEquals(2 * calls + 1, stringsRetainedBy(baseline), "Number strings and the name held by unpacked calls");
+        assertEquals(1, stringsRetainedBy(bill.getPhoneCalls()), "Only the name held by packed calls");
+    }
+
+    /**
+     * Counts the distinct strings that the fields of the given objects refer to.
+     */
+    private static int stringsRetainedBy(Collection<?> objects) throws IllegalAccessException {
+        Set<Object> strings = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object object : objects) {
+            for (Field field : object.getClass().getDeclaredFields()) {
+                if (field.getType() == String.class && !Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    Object value = field.get(object);
+                    if (value != null) {
+                        strings.add(value);
+                    }
+                }
+            }
+        }
+        return strings.size();
+    }
+
+    /**
+     * A phone call laid out the way <code>PhoneCall</code> was before phone numbers were
+     * packed, parsed the way <code>TextParser</code> parsed it: every call shared the bill's
+     * customer name but held its own caller and callee strings, split from its line.
+     */
+    private static final class BaselinePhoneCall {
+        private final String customer;
+        private final String callerNumber;
+        private final String calleeNumber;
+        private final LocalDateTime begin;
+        private final LocalDateTime end;
+
+        private BaselinePhoneCall(String customer, String[] parts) {
+            this.customer = customer;
+            this.callerNumber = parts[1].trim();
+            this.calleeNumber = parts[2].trim();
+            this.begin = LocalDateTime.parse(parts[3].trim(), FORMATTER);
+            this.end = LocalDateTime.parse(parts[4].trim(), FORMATTER);
+        }
+
+        static List<BaselinePhoneCall> parse(String text) {
+            String[] lines = text.split("\n");
+            String customer = lines[0].trim();
+            List<BaselinePhoneCall> calls = new ArrayList<>();
+            for (int i = 1; i < lines.length; i++) {
+                calls.add(new BaselinePhoneCall(customer, lines[i].split(",")));
+            }
+            return calls;
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package edu.pdx.cs.joy.jayabe;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link PhoneNumber} class.
+ */
+class PhoneNumberTest {
+
+  @Test
+  void validPhoneNumberIsPackedIntoItsDigits() {
+    assertThat(PhoneNumber.pack("503-555-1234"), equalTo(5035551234L));
+    assertThat(PhoneNumber.pack("000-000-0007"), equalTo(7L));
+  }
+
+  @Test
+  void packedPhoneNumberIsFormattedWithDashes() {
+    assertThat(PhoneNumber.format(5035551234L), equalTo("503-555-1234"));
+    assertThat(PhoneNumber.format(7L), equalTo("000-000-0007"));
+  }
+
+  @Test
+  void parseAndToStringRoundTrip() {
+    PhoneNumber number = PhoneNumber.parse("971-987-6543");
+
+    assertThat(number.toLong(), equalTo(9719876543L));
+    assertThat(number.toString(), equalTo("971-987-6543"));
+    assertThat(PhoneNumber.of(number.toLong()), equalTo(number));
+  }
+
+  @Test
+  void formatToWritesIntoExistingArray() {
+    char[] chars = "to: ____________!".toCharArray();
+    PhoneNumber.parse("503-123-4567").formatTo(chars, 4);
+
+    assertThat(new String(chars), equalTo("to: 503-123-4567!"));
+  }
+
+  @Test
+  void malformedPhoneNumbersAreInvalid() {
+    for (String text : new String[] {"", "5035551234", "503-555-123", "503-555-12345",
+            "503 555 1234", "503-5a5-1234", "(503)5551234", "+03-555-1234"}) {
+      assertFalse(PhoneNumber.isValid(text), text);
+      assertThrows(IllegalArgumentException.class, () -> PhoneNumber.parse(text), text);
+    }
+    assertFalse(PhoneNumber.isValid(null));
+  }
+
+  @Test
+  void ofRejectsValuesWithMoreThanTenDigits() {
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumber.of(10_000_000_000L));
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumber.of(-1));
+  }
+
+  @Test
+  void equalPhoneNumbersHaveEqualHashCodes() {
+    PhoneNumber one = PhoneNumber.parse("503-555-1234");
+    PhoneNumber two = PhoneNumber.parse("503-555-1234");
+
+    assertThat(one, equalTo(two));
+    assertThat(one.hashCode(), equalTo(two.hashCode()));
+    assertThat(one, not(equalTo(PhoneNumber.parse("503-555-1235"))));
+  }
+
+  @Test
+  void phoneNumbersSortLikeTheirStrings() {
+    List<String> strings = new ArrayList<>(List.of("971-000-0000", "503-999-9999", "000-000-0001", "503-100-0000"));
+    List<PhoneNumber> numbers = new ArrayList<>();
+    for (String string : strings) {
+      numbers.add(PhoneNumber.parse(string));
+    }
+
+    Collections.sort(strings);
+    Collections.sort(numbers);
+
+    List<String> sortedNumbers = new ArrayList<>();
+    for (PhoneNumber number : numbers) {
+      sortedNumbers.add(number.toString());
+    }
+    assertThat(sortedNumbers, equalTo(strings));
+  }
+
+  @Test
+  void phoneCallCanBeCreatedFromPhoneNumbers() {
+    LocalDateTime begin = LocalDateTime.of(2026, 1, 27, 10, 0);
+    PhoneCall call = new PhoneCall("Alice", PhoneNumber.parse("503-123-4567"),
+            PhoneNumber.parse("503-765-4321"), begin, begin.plusMinutes(5));
+
+    assertThat(call.getCaller(), equalTo("503-123-4567"));
+    assertThat(call.getCalleeNumber(), equalTo(PhoneNumber.parse("503-765-4321")));
+  }
+}
@@ -145,4 +145,48 @@ class PrettyPrinterTest {
         assertThat(output, containsString("Charlie"));
         assertThat(output, containsString("==")); // Header separator
     }
+
+    @Test
+    void testPrettyPrintIncludesSummaryHeader() throws IOException {
+        PhoneBill bill = new PhoneBill("Alice");
+        bill.addPhoneCall(new PhoneCall("Alice", "503-123-4567", "503-765-4321",
+                LocalDateTime.of(2026, 1, 27, 10, 0), LocalDateTime.of(2026, 1, 27, 10, 30)));
+        bill.addPhoneCall(new PhoneCall("Alice", "503-123-4567", "503-999-8888",
+                LocalDateTime.of(2026, 1, 28, 14, 0), LocalDateTime.of(2026, 1, 28, 14, 15)));
+
+        StringWriter sw = new StringWriter();
+        new PrettyPrinter(sw).dump(bill);
+
+        String output = sw.toString();
+        assertThat(output, containsString("Total calls: 2"));
+        assertThat(output, containsString("Total duration: 45 minutes"));
+        assertThat(output, containsString("Longest call: 30 minutes"));
+        assertThat(output, containsString("Duration by day:"));
+        assertTrue(output.indexOf("Total calls") < output.indexOf("From:"),
+                "Summary should be printed before the calls");
+    }
+
+    @Test
+    void testPrettyPrintStreamedCalls() throws Exception {
+        String content = "Alice\n"
+                + "Alice,503-123-4567,503-765-4321,01/27/2026 10:00,01/27/2026 10:30\n"
+                + "Alice,503-123-4567,503-999-8888,01/28/2026 14:00,01/28/2026 14:15\n";
+
+        PhoneBillSummary summary;
+        try (java.util.stream.Stream<PhoneCall> calls = new TextParser(new StringReader(content)).stream()) {
+            summary = PhoneBillSummary.of(calls::iterator);
+        }
+
+        StringWriter sw = new StringWriter();
+        TextParser parser = new TextParser(new StringReader(content));
+        try (java.util.stream.Stream<PhoneCall> calls = parser.stream()) {
+            new PrettyPrinter(sw).dump(parser.getCustomer(), summary, calls::iterator);
+        }
+
+        String output = sw.toString();
+        assertThat(output, containsString("Phone Bill for: Alice"));
+        assertThat(output, containsString("Total calls: 2"));
+        assertThat(output, containsString("To:   503-999-8888"));
+        assertTrue(output.indexOf("503-765-4321") < output.indexOf("503-999-8888"));
+    }
 }
@@ -360,4 +360,138 @@ class Project4Test {
             assertEquals(1, bill2.getPhoneCalls().size());
         }
     }
+
+    @Test
+    void testActiveAtPrintsCallsInProgress(@TempDir File tempDir) {
+        File textFile = new File(tempDir, "phonebill.txt");
+        Project4.main("-textFile", textFile.getAbsolutePath(),
+                "Alice", "503-111-1111", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "11:00", "AM");
+
+        Project4.main("-textFile", textFile.getAbsolutePath(), "-activeAt", "01/27/2026", "10:20", "AM",
+                "Alice", "503-222-2222", "503-765-4321",
+                "01/27/2026", "10:15", "AM", "01/27/2026", "10:30", "AM");
+
+        String output = outContent.toString();
+        assertThat(output, containsString("in progress at 01/27/2026 10:20 AM"));
+        assertThat(output, containsString("503-111-1111"));
+        assertThat(output, containsString("503-222-2222"));
+    }
+
+    @Test
+    void testActiveAtWithNoCallsInProgress() {
+        Project4.main("-activeAt", "01/27/2026", "3:00", "PM",
+                "Alice", "503-123-4567", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "10:30", "AM");
+
+        assertThat(outContent.toString(), containsString("No phone calls were in progress"));
+    }
+
+    @Test
+    void testActiveAtRequiresDateTimeArguments() {
+        Project4.main("-activeAt", "01/27/2026");
+
+        assertThat(errContent.toString(), containsString("-activeAt requires"));
+    }
+
+    @Test
+    void testAppendAddsCallsToTheEndOfTheTextFile(@TempDir File tempDir) throws IOException, ParserException {
+        File textFile = new File(tempDir, "phonebill.txt");
+        Project4.main("-textFile", textFile.getAbsolutePath(), "-append",
+                "Alice", "503-222-2222", "503-765-4321",
+                "01/27/2026", "11:00", "AM", "01/27/2026", "11:30", "AM");
+        Project4.main("-textFile", textFile.getAbsolutePath(), "-append",
+                "Alice", "503-111-1111", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "10:30", "AM");
+
+        java.util.List<String> lines = java.nio.file.Files.readAllLines(textFile.toPath());
+        assertEquals(3, lines.size());
+        assertEquals("Alice", lines.get(0));
+        assertThat(lines.get(1), containsString("503-222-2222"));
+        assertThat(lines.get(2), containsString("503-111-1111"));
+
+        try (FileReader reader = new FileReader(textFile)) {
+            PhoneBill bill = new TextParser(reader).parse();
+            assertEquals("503-111-1111", bill.getPhoneCalls().iterator().next().getCaller(),
+                    "Calls should be sorted when the file is read");
+        }
+    }
+
+    @Test
+    void testAppendRejectsFileForAnotherCustomer(@TempDir File tempDir) throws IOException {
+        File textFile = new File(tempDir, "phonebill.txt");
+        Project4.main("-textFile", textFile.getAbsolutePath(),
+                "Alice", "503-111-1111", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "10:30", "AM");
+        long length = textFile.length();
+
+        Project4.main("-textFile", textFile.getAbsolutePath(), "-append",
+                "Bob", "503-222-2222", "503-765-4321",
+                "01/27/2026", "11:00", "AM", "01/27/2026", "11:30", "AM");
+
+        assertThat(errContent.toString(), containsString("does not match command line"));
+        assertEquals(length, textFile.length(), "The file should not be changed");
+    }
+
+    @Test
+    void testAppendWithPrettyPrintsTheWholeBill(@TempDir File tempDir) {
+        File textFile = new File(tempDir, "phonebill.txt");
+        Project4.main("-textFile", textFile.getAbsolutePath(), "-append",
+                "Alice", "503-111-1111", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "10:30", "AM");
+        Project4.main("-textFile", textFile.getAbsolutePath(), "-append", "-pretty", "-",
+                "Alice", "503-222-2222", "503-765-4321",
+                "01/27/2026", "11:00", "AM", "01/27/2026", "11:30", "AM");
+
+        assertThat(outContent.toString(), containsString("Total calls: 2"));
+    }
+
+    @Test
+    void testAppendRequiresTextFile() {
+        Project4.main("-append", "Alice", "503-111-1111", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "10:30", "AM");
+
+        assertThat(errContent.toString(), containsString("-append requires -textFile"));
+    }
+
+    @Test
+    void testBinFileStoresTheWholeBill(@TempDir File tempDir) throws IOException, ParserException {
+        File binFile = new File(tempDir, "phonebill.bin");
+        Project4.main("-binFile", binFile.getAbsolutePath(),
+                "Alice", "503-222-2222", "503-765-4321",
+                "01/27/2026", "11:00", "AM", "01/27/2026", "11:30", "AM");
+        Project4.main("-binFile", binFile.getAbsolutePath(),
+                "Alice", "503-111-1111", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "10:30", "AM");
+
+        try (java.nio.channels.FileChannel channel = new FileInputStream(binFile).getChannel()) {
+            PhoneBill bill = new BinaryParser(channel).parse();
+            assertEquals("Alice", bill.getCustomer());
+            assertEquals(2, bill.getPhoneCalls().size());
+            assertEquals("503-111-1111", bill.getPhoneCalls().iterator().next().getCaller());
+        }
+    }
+
+    @Test
+    void testBinFileRejectsFileForAnotherCustomer(@TempDir File tempDir) {
+        File binFile = new File(tempDir, "phonebill.bin");
+        Project4.main("-binFile", binFile.getAbsolutePath(),
+                "Alice", "503-111-1111", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "10:30", "AM");
+        Project4.main("-binFile", binFile.getAbsolutePath(),
+                "Bob", "503-111-1111", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "10:30", "AM");
+
+        assertThat(errContent.toString(), containsString("does not match command line"));
+    }
+
+    @Test
+    void testBinFileCannotBeUsedWithTextFile(@TempDir File tempDir) {
+        Project4.main("-binFile", new File(tempDir, "phonebill.bin").getAbsolutePath(),
+                "-textFile", new File(tempDir, "phonebill.txt").getAbsolutePath(),
+                "Alice", "503-111-1111", "503-765-4321",
+                "01/27/2026", "10:00", "AM", "01/27/2026", "10:30", "AM");
+
+        assertThat(errContent.toString(), containsString("Cannot specify -binFile"));
+    }
 }
@@ -142,4 +142,79 @@ public class TextDumperTest {
     // This test is to check if the main method is working correctly
     // You can add more test cases as needed
   }
+
+  @Test
+  void dumperWritesCallsWithoutABill() throws IOException, ParserException {
+    String customer = "Test Phone Bill";
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    PhoneCall call = new PhoneCall(customer, "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5));
+
+    StringWriter sw = new StringWriter();
+    new TextDumper(sw).dump(customer, java.util.List.of(call));
+
+    PhoneBill read = new TextParser(new StringReader(sw.toString())).parse();
+    assertThat(read.getCustomer(), equalTo(customer));
+    assertThat(read.getPhoneCalls(), hasSize(1));
+    assertThat(read.getPhoneCalls().iterator().next().toString(), equalTo(call.toString()));
+  }
+
+  @Test
+  void appendedCallStartsOnItsOwnLine(@TempDir File tempDir) throws IOException, ParserException {
+    File file = new File(tempDir, "bill.txt");
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    try (FileWriter writer = new FileWriter(file)) {
+      writer.write("Test Phone Bill\nTest Phone Bill,503-123-4567,503-765-4321,02/11/2026 09:00,02/11/2026 09:05");
+    }
+
+    TextDumper.appendPhoneCall(file, "Test Phone Bill",
+            new PhoneCall("Test Phone Bill", "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5)));
+
+    try (FileReader reader = new FileReader(file)) {
+      assertThat(new TextParser(reader).parse().getPhoneCalls(), hasSize(2));
+    }
+  }
+
+  @Test
+  void dumpingToAFileWritesTheSameTextAndAnOptionalIndex(@TempDir File tempDir) throws IOException {
+    String customer = "Test Phone Bill";
+    PhoneBill bill = new PhoneBill(customer);
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    bill.addPhoneCall(new PhoneCall(customer, "503-123-4567", "503-765-4321", begin, begin.plusMinutes(5)));
+    bill.addPhoneCall(new PhoneCall(customer, "503-123-4567", "503-765-4321", begin.plusDays(1), begin.plusDays(1).plusMinutes(5)));
+    StringWriter sw = new StringWriter();
+    new TextDumper(sw).dump(bill);
+
+    File withoutIndex = new File(tempDir, "plain.txt");
+    TextDumper.dump(withoutIndex, customer, bill.getPhoneCalls(), false);
+    File withIndex = new File(tempDir, "indexed.txt");
+    TextDumper.dump(withIndex, customer, bill.getPhoneCalls(), true);
+
+    assertThat(java.nio.file.Files.readString(withoutIndex.toPath()), equalTo(sw.toString()));
+    assertThat(java.nio.file.Files.readString(withIndex.toPath()), equalTo(sw.toString()));
+    assertThat(TextFileIndex.indexFileFor(withoutIndex).exists(), equalTo(false));
+    assertThat(TextFileIndex.indexFileFor(withIndex).exists(), equalTo(true));
+  }
+
+  @Test
+  void dumpingToAChannelWritesTheSameBytesAsAWriter(@TempDir File tempDir) throws IOException {
+    String customer = "Test Phone Bill";
+    PhoneBill bill = new PhoneBill(customer);
+    LocalDateTime begin = LocalDateTime.of(2026, 2, 11, 10, 0);
+    for (int i = 0; i < 20_000; i++) {
+      bill.addPhoneCall(new PhoneCall(customer, "503-123-4567", "503-765-4321",
+              begin.plusMinutes(7L * i), begin.plusMinutes(7L * i + 3)));
+    }
+
+    File writerFile = new File(tempDir, "writer.txt");
+    try (Writer writer = new FileWriter(writerFile)) {
+      new TextDumper(writer).dump(bill);
+    }
+    File channelFile = new File(tempDir, "channel.txt");
+    try (FileOutputStream out = new FileOutputStream(channelFile)) {
+      new TextDumper(out.getChannel()).dump(bill);
+    }
+
+    assertThat(java.nio.file.Files.readAllBytes(channelFile.toPath()),
+            equalTo(java.nio.file.Files.readAllBytes(writerFile.toPath())));
+  }
 }
@@ -0,0 +1,133 @@
+package edu.pdx.cs.joy.jayabe;
+
+import edu.pdx.cs.joy.ParserException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TextFileIndexTest {
+  private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+  private static List<PhoneCall> callsOverDays(String customer, int days) {
+    List<PhoneCall> calls = new ArrayList<>();
+    for (int day = 0; day < days; day++) {
+      for (int hour = 8; hour < 20; hour += 3) {
+        LocalDateTime begin = START.plusDays(day).plusHours(hour);
+        calls.add(new PhoneCall(customer, "503-111-2222", "503-333-4444", begin, begin.plusMinutes(10)));
+      }
+    }
+    return calls;
+  }
+
+  @Test
+  void indexWrittenByTextDumperMatchesIndexBuiltFromTheFile(@TempDir File tempDir) throws IOException, ParserException {
+    File textFile = new File(tempDir, "bill.txt");
+    String customer = "Zo\u00EB M\u00FCller";
+    TextDumper.dump(textFile, customer, callsOverDays(customer, 10), true);
+
+    TextFileIndex written = TextFileIndex.read(TextFileIndex.indexFileFor(textFile));
+    TextFileIndex built = TextFileIndex.build(textFile, Charset.defaultCharset());
+
+    assertNotNull(written);
+    assertThat(written.isCurrent(textFile), is(true));
+    assertThat(written.size(), equalTo(10));
+    assertThat(built.size(), equalTo(10));
+    for (int day = -1; day <= 10; day++) {
+      LocalDateTime from = START.plusDays(day).plusHours(12);
+      assertThat(written.offsetOf(from), equalTo(built.offsetOf(from)));
+      assertThat(written.lineNumberOf(from), equalTo(built.lineNumberOf(from)));
+    }
+  }
+
+  @Test
+  void offsetIsTheStartOfTheFirstLineInTheBucket(@TempDir File tempDir) throws IOException, ParserException {
+    File textFile = new File(tempDir, "bill.txt");
+    TextDumper.dump(textFile, "Jane Doe", callsOverDays("Jane Doe", 3), true);
+    List<String> lines = Files.readAllLines(textFile.toPath());
+
+    TextFileIndex index = TextFileIndex.load(textFile, Charset.defaultCharset());
+    long offset = index.offsetOf(START.plusDays(1).plusHours(12));
+
+    byte[] bytes = Files.readAllBytes(textFile.toPath());
+    String line = new String(bytes, (int) offset, lines.get(5).length());
+    assertThat(line, equalTo(lines.get(5)));
+    assertThat(index.lineNumberOf(START.plusDays(1)), equalTo(6L));
+  }
+
+  @Test
+  void timeAfterTheLastCallHasTheLengthOfTheFile(@TempDir File tempDir) throws IOException, ParserException {
+    File textFile = new File(tempDir, "bill.txt");
+    TextDumper.dump(textFile, "Jane Doe", callsOverDays("Jane Doe", 3), true);
+
+    TextFileIndex index = TextFileIndex.load(textFile, Charset.defaultCharset());
+
+    assertThat(index.offsetOf(START.plusDays(5)), equalTo(textFile.length()));
+  }
+
+  @Test
+  void missingIndexIsBuiltAndWritten(@TempDir File tempDir) throws IOException, ParserException {
+    File textFile = new File(tempDir, "bill.txt");
+    TextDumper.dump(textFile, "Jane Doe", callsOverDays("Jane Doe", 3), false);
+    File indexFile = TextFileIndex.indexFileFor(textFile);
+    assertThat(indexFile.exists(), is(false));
+
+    TextFileIndex index = TextFileIndex.load(textFile, Charset.defaultCharset());
+
+    assertThat(index.size(), equalTo(3));
+    assertThat(indexFile.exists(), is(true));
+  }
+
+  @Test
+  void damagedIndexIsRebuilt(@TempDir File tempDir) throws IOException, ParserException {
+    File textFile = new File(tempDir, "bill.txt");
+    TextDumper.dump(textFile, "Jane Doe", callsOverDays("Jane Doe", 3), true);
+    File indexFile = TextFileIndex.indexFileFor(textFile);
+    Files.write(indexFile.toPath(), new byte[] {1, 2, 3});
+    assertNull(TextFileIndex.read(indexFile));
+
+    TextFileIndex index = TextFileIndex.load(textFile, Charset.defaultCharset());
+
+    assertThat(index.size(), equalTo(3));
+    assertNotNull(TextFileIndex.read(indexFile));
+  }
+
+  @Test
+  void indexIsStaleAfterACallIsAppended(@TempDir File tempDir) throws IOException, ParserException {
+    File textFile = new File(tempDir, "bill.txt");
+    TextDumper.dump(textFile, "Jane Doe", callsOverDays("Jane Doe", 3), true);
+    LocalDateTime begin = START.plusHours(1);
+    TextDumper.appendPhoneCall(textFile, "Jane Doe",
+            new PhoneCall("Jane Doe", "503-111-2222", "503-333-4444", begin, begin.plusMinutes(5)));
+
+    assertThat(TextFileIndex.read(TextFileIndex.indexFileFor(textFile)).isCurrent(textFile), is(false));
+    TextFileIndex index = TextFileIndex.load(textFile, Charset.defaultCharset());
+
+    assertThat(index.isSorted(), is(false));
+    assertThat(TextFileIndex.read(TextFileIndex.indexFileFor(textFile)).isCurrent(textFile), is(true));
+  }
+
+  @Test
+  void lineThatCannotBeParsedIsReportedWithItsNumber(@TempDir File tempDir) throws IOException {
+    File textFile = new File(tempDir, "bill.txt");
+    Files.writeString(textFile.toPath(), "Jane Doe\r\n"
+            + "Jane Doe,503-111-2222,503-333-4444,03/01/2026 08:00,03/01/2026 08:10\r\n"
+            + "\r\n"
+            + "Jane Doe,503-111-2222,503-333-4444,03/01/2026 09:00\r\n");
+
+    ParserException e = org.junit.jupiter.api.Assertions.assertThrows(ParserException.class,
+            () -> TextFileIndex.load(textFile, Charset.defaultCharset()));
+    assertThat(e.getMessage(), startsWith("Line 4: "));
+  }
+}
@@ -2,9 +2,23 @@ package edu.pdx.cs.joy.jayabe;
 
 import edu.pdx.cs.joy.ParserException;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -27,6 +41,79 @@ public class TextParserTest {
     assertThat(calls, hasSize(2));
   }
 
+  @Test
+  void callsReferToTheBillsCustomerName() throws ParserException {
+    String content = "Jane Doe\n"
+            + "Jane Doe,503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30\n"
+            + "Jane Doe,503-555-1234,503-555-9999,01/16/2025 12:00,01/16/2025 12:15\n";
+
+    PhoneBill bill = new TextParser(new StringReader(content)).parse();
+
+    for (PhoneCall call : bill.getPhoneCalls()) {
+      assertThat(call.getCustomer(), is(sameInstance(bill.getCustomer())));
+    }
+  }
+
+  /**
+   * A call holds a reference to its customer's name rather than a copy of it, so a bill of a
+   * million calls still holds only the one name that was read from its first line.
+   */
+  @Test
+  void millionCallBillHoldsOneCustomerName() throws ParserException {
+    int calls = 1_000_000;
+    PhoneBill bill = new TextParser(new GeneratedBill("Jane Doe", calls)).parse();
+
+    assertThat(bill.getPhoneCalls(), hasSize(calls));
+    Set<String> names = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (PhoneCall call : bill.getPhoneCalls()) {
+      names.add(call.getCustomer());
+    }
+    assertThat(names, contains(sameInstance(bill.getCustomer())));
+  }
+
+  /**
+   * The text of a bill whose calls are generated a line at a time as they are read, so that
+   * a large bill does not have to be held in memory as text.
+   */
+  private static final class GeneratedBill extends Reader {
+    private static final LocalDateTime BEGIN = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm");
+
+    private final String customer;
+    private final int calls;
+    private int nextCall;
+    private String line;
+    private int position;
+
+    GeneratedBill(String customer, int calls) {
+      this.customer = customer;
+      this.calls = calls;
+      this.line = customer + "\n";
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (this.position == this.line.length()) {
+        if (this.nextCall == this.calls) {
+          return -1;
+        }
+        String time = BEGIN.plusMinutes(this.nextCall).format(FORMATTER);
+        this.line = this.customer + ",503-555-" + (1000 + this.nextCall % 9000) + ",971-555-6789,"
+                + time + "," + time + "\n";
+        this.position = 0;
+        this.nextCall++;
+      }
+      int count = Math.min(length, this.line.length() - this.position);
+      this.line.getChars(this.position, this.position + count, buffer, offset);
+      this.position += count;
+      return count;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
   @Test
   void emptyFileThrowsParserException() {
     String content = "";
@@ -63,4 +150,166 @@ public class TextParserTest {
     PhoneBill bill = parser.parse();
     assertThat(bill.getPhoneCalls(), hasSize(1));
   }
-}
\ No newline at end of file
+
+  @Test
+  void invalidPhoneNumberThrowsParserException() {
+    String content = "John Doe\nJohn Doe,503-555-123,503-555-6789,01/15/2025 10:00,01/15/2025 10:30";
+    TextParser parser = new TextParser(new StringReader(content));
+
+    ParserException ex = assertThrows(ParserException.class, parser::parse);
+    assertThat(ex.getMessage(), containsString("Invalid phone number"));
+  }
+
+  @Test
+  void streamParsesEachCallOnlyWhenItIsReached() throws ParserException {
+    String customer = "John Doe";
+    String content = customer + "\n"
+            + customer + ",503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30\n"
+            + customer + ",not a valid line\n";
+
+    TextParser parser = new TextParser(new StringReader(content));
+    try (Stream<PhoneCall> calls = parser.stream()) {
+      assertThat(parser.getCustomer(), equalTo(customer));
+      assertThat(calls.findFirst().orElseThrow().getCallee(), equalTo("503-555-6789"));
+    }
+  }
+
+  @Test
+  void streamWrapsParserExceptionForMalformedLine() throws ParserException {
+    String content = "John Doe\nJohn Doe,503-555-1234,503-555-6789,01/15/2025 10:00\n";
+
+    try (Stream<PhoneCall> calls = new TextParser(new StringReader(content)).stream()) {
+      TextParser.UncheckedParserException ex =
+              assertThrows(TextParser.UncheckedParserException.class, calls::count);
+      assertThat(ex.getCause().getMessage(), containsString("expected 5 fields"));
+    }
+  }
+
+  @Test
+  void consumerReceivesCallsInFileOrder() throws ParserException {
+    String customer = "John Doe";
+    String content = customer + "\n"
+            + customer + ",503-555-1234,503-555-9999,01/16/2025 12:00,01/16/2025 12:15\n"
+            + "\n"
+            + customer + ",503-555-1234,503-555-6789,01/15/2025 10:00,01/15/2025 10:30\n";
+
+    List<String> callees = new ArrayList<>();
+    TextParser parser = new TextParser(new StringReader(content));
+    parser.parse(call -> callees.add(call.getCallee()));
+
+    assertThat(parser.getCustomer(), equalTo(customer));
+    assertThat(callees, contains("503-555-9999", "503-555-6789"));
+  }
+
+  @Test
+  void consumerParsingThrowsParserExceptionForMalformedLine() {
+    String content = "John Doe\nJohn Doe,503-555-1234,503-555-6789,bad,01/15/2025 10:30\n";
+    TextParser parser = new TextParser(new StringReader(content));
+
+    assertThrows(ParserException.class, () -> parser.parse(call -> { }));
+  }
+
+  private static List<String> describe(Collection<PhoneCall> calls) {
+    return calls.stream().map(PhoneCall::toString).toList();
+  }
+
+  private static PhoneBill randomBill(String customer, Random random) {
+    PhoneBill bill = new PhoneBill(customer);
+    LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+    for (int i = 0; i < 500; i++) {
+      LocalDateTime begin = start.plusMinutes(random.nextInt(90 * 24 * 60));
+      bill.addPhoneCall(new PhoneCall(customer, "503-111-" + (1000 + random.nextInt(9000)), "503-333-4444",
+              begin, begin.plusMinutes(random.nextInt(120))));
+    }
+    return bill;
+  }
+
+  @Test
+  void rangeReadReturnsTheCallsThatBeganInTheRange(@TempDir File tempDir) throws IOException, ParserException {
+    Random random = new Random(16);
+    String customer = "Jane Doe";
+    PhoneBill bill = randomBill(customer, random);
+    File textFile = new File(tempDir, "bill.txt");
+    TextDumper.dump(textFile, customer, bill.getPhoneCalls(), true);
+
+    LocalDateTime start = LocalDateTime.of(2025, 12, 25, 0, 0);
+    for (int i = 0; i < 50; i++) {
+      LocalDateTime from = start.plusMinutes(random.nextInt(100 * 24 * 60));
+      LocalDateTime to = from.plusMinutes(random.nextInt(20 * 24 * 60));
+
+      PhoneBill range = new TextParser(textFile, from, to).parse();
+
+      assertThat(range.getCustomer(), equalTo(customer));
+      assertThat(describe(range.getPhoneCalls()), equalTo(describe(bill.callsBetween(from, to))));
+    }
+  }
+
+  @Test
+  void rangeReadOfAnUnsortedFileReadsEveryLine(@TempDir File tempDir) throws IOException, ParserException {
+    Random random = new Random(17);
+    PhoneBill bill = randomBill("Jane Doe", random);
+    File textFile = new File(tempDir, "bill.txt");
+    TextDumper.dump(textFile, "Jane Doe", bill.getPhoneCalls(), true);
+    LocalDateTime begin = LocalDateTime.of(2026, 1, 1, 0, 30);
+    PhoneCall early = new PhoneCall("Jane Doe", "503-222-2222", "503-333-4444", begin, begin.plusMinutes(5));
+    TextDumper.appendPhoneCall(textFile, "Jane Doe", early);
+    bill.addPhoneCall(early);
+
+    LocalDateTime from = LocalDateTime.of(2026, 1, 1, 0, 0);
+    LocalDateTime to = LocalDateTime.of(2026, 1, 3, 0, 0);
+    PhoneBill range = new TextParser(textFile, from, to).parse();
+
+    assertThat(describe(range.getPhoneCalls()), equalTo(describe(bill.callsBetween(from, to))));
+  }
+
+  @Test
+  void rangeReadSeeksPastEarlierLinesAndStopsAfterTheRange(@TempDir File tempDir) throws IOException, ParserException {
+    String customer = "Jane Doe";
+    String content = customer + "\n"
+            + customer + ",503-111-2222,503-333-4444,03/01/2026 08:00,03/01/2026 08:10\n"
+            + customer + ",503-111-2222,503-333-4444,03/02/2026 08:00,03/02/2026 08:10\n"
+            + customer + ",503-111-2222,503-333-4444,03/03/2026 08:00,03/03/2026 08:10\n";
+    File textFile = new File(tempDir, "bill.txt");
+    Files.writeString(textFile.toPath(), content);
+    new TextParser(textFile, LocalDateTime.of(2026, 3, 1, 0, 0), LocalDateTime.of(2026, 3, 1, 0, 0)).parse();
+
+    // Damage the first and last calls without changing the file's length or time, so that
+    // the index is still used
+    long modified = textFile.lastModified();
+    Files.writeString(textFile.toPath(), content.replace("03/01/2026 08:00", "XX/XX/XXXX XX:XX")
+            .replace("03/03/2026 08:00", "XX/XX/XXXX XX:XX"));
+    textFile.setLastModified(modified);
+
+    PhoneBill range = new TextParser(textFile, LocalDateTime.of(2026, 3, 2, 0, 0),
+            LocalDateTime.of(2026, 3, 2, 23, 59)).parse();
+
+    assertThat(range.getPhoneCalls(), hasSize(1));
+    assertThat(range.getPhoneCalls().iterator().next().getBeginTime(), equalTo(LocalDateTime.of(2026, 3, 2, 8, 0)));
+  }
+
+  @Test
+  void rangeReadReportsTheNumberOfALineThatCannotBeParsed(@TempDir File tempDir) throws IOException, ParserException {
+    String customer = "Jane Doe";
+    String content = customer + "\n"
+            + customer + ",503-111-2222,503-333-4444,03/01/2026 08:00,03/01/2026 08:10\n"
+            + customer + ",503-111-2222,503-333-4444,03/02/2026 08:00,03/02/2026 08:10\n"
+            + customer + ",503-111-2222,503-333-4444,03/02/2026 09:00,03/02/2026 09:10\n";
+    File textFile = new File(tempDir, "bill.txt");
+    Files.writeString(textFile.toPath(), content);
+    new TextParser(textFile, LocalDateTime.of(2026, 3, 1, 0, 0), LocalDateTime.of(2026, 3, 1, 0, 0)).parse();
+
+    long modified = textFile.lastModified();
+    Files.writeString(textFile.toPath(), content.replace("03/02/2026 09:00", "XX/XX/XXXX XX:XX"));
+    textFile.setLastModified(modified);
+
+    TextParser parser = new TextParser(textFile, LocalDateTime.of(2026, 3, 2, 0, 0), LocalDateTime.of(2026, 3, 3, 0, 0));
+    ParserException e = assertThrows(ParserException.class, parser::parse);
+    assertThat(e.getMessage(), startsWith("Line 4: "));
+  }
+
+  @Test
+  void rangeMustNotEndBeforeItBegins(@TempDir File tempDir) {
+    assertThrows(IllegalArgumentException.class, () -> new TextParser(new File(tempDir, "bill.txt"),
+            LocalDateTime.of(2026, 3, 2, 0, 0), LocalDateTime.of(2026, 3, 1, 0, 0)));
+  }
+}